@@ -0,0 +1,41 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.SpringBootTestingApplication;
+
+/**
+ * Starts the application on a private in-memory H2 database, without a web server unless one is asked for.
+ */
+final class BenchmarkApplication {
+
+  private BenchmarkApplication() {
+  }
+
+  static ConfigurableApplicationContext start(String database, String... args) {
+    return start(WebApplicationType.NONE, database, args);
+  }
+
+  static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String database,
+      String... args) {
+    // Command line arguments win over application.properties, which points at MySQL
+    List<String> arguments = new ArrayList<>(List.of(
+        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--spring.jpa.show-sql=false",
+        "--logging.level.root=WARN"));
+    arguments.addAll(Arrays.asList(args));
+    return new SpringApplicationBuilder(SpringBootTestingApplication.class)
+        .web(webApplicationType)
+        .run(arguments.toArray(new String[0]));
+  }
+}
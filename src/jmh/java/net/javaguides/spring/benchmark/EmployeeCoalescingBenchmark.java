@@ -0,0 +1,105 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Concurrent {@link EmployeeService#getEmployeeById(long)} calls on random ids with the employee cache and the
+ * second-level cache switched off, so every call is a miss. A window of zero sends every lookup on its own. The
+ * score gives the latency percentiles, the statements per second of each iteration are printed after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class EmployeeCoalescingBenchmark {
+
+  private static final int TABLE_SIZE = 10_000;
+
+  @Param({"0", "200us", "1ms"})
+  private String window;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private Statistics statistics;
+  private long[] ids;
+  private long iterationStartNanos;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("coalescing" + window.hashCode(),
+        "--employee.batch-loader.window=" + window,
+        "--employee.cache.maximum-size=0",
+        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+    employeeService = context.getBean(EmployeeService.class);
+    statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+    ids = new long[TABLE_SIZE];
+    for (int from = 0; from < TABLE_SIZE; from += 1000) {
+      List<Employee> employees = new ArrayList<>();
+      for (int i = from; i < from + 1000; i++) {
+        employees.add(Employee.builder()
+            .firstName("First" + i)
+            .lastName("Last" + i)
+            .email("employee" + i + "@vita.com")
+            .build());
+      }
+      List<Employee> savedEmployees = employeeService.saveEmployees(employees);
+      for (int i = 0; i < savedEmployees.size(); i++) {
+        ids[from + i] = savedEmployees.get(i).getId();
+      }
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void startIteration() {
+    statistics.clear();
+    iterationStartNanos = System.nanoTime();
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration() {
+    double seconds = (System.nanoTime() - iterationStartNanos) / 1e9;
+    System.out.printf("%n%.0f statements/s%n", statistics.getPrepareStatementCount() / seconds);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<Employee> getEmployeeById() {
+    return employeeService.getEmployeeById(ids[ThreadLocalRandom.current().nextInt(TABLE_SIZE)]);
+  }
+}
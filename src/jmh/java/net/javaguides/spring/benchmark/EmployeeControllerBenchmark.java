@@ -0,0 +1,99 @@
+package net.javaguides.spring.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.controller.EmployeeController;
+import net.javaguides.spring.ingest.EmployeeCsvImporter;
+import net.javaguides.spring.ingest.EmployeeWriteBehindQueue;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Request mapping, argument binding and JSON conversion of {@link EmployeeController} through MockMvc, with the
+ * service stubbed so only the web layer is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+
+  private MockMvc mockMvc;
+  private String employeeJson;
+
+  @Setup
+  public void setup() throws Exception {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    Employee employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+    List<EmployeeView> employees = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      employees.add(new EmployeeView(i + 1L, "First" + i, "Last" + i, "employee" + i + "@vita.com", 0L));
+    }
+
+    EmployeeService employeeService = mock(EmployeeService.class);
+    given(employeeService.getEmployeeById(anyLong())).willReturn(Optional.of(employee));
+    given(employeeService.getEmployeeListVersion()).willReturn(mock(EmployeeListVersion.class));
+    given(employeeService.getAllEmployeeViews()).willReturn(employees);
+    given(employeeService.saveEmployee(any(Employee.class))).willReturn(employee);
+
+    EmployeeController employeeController = new EmployeeController(employeeService,
+        mock(EmployeeWriteBehindQueue.class), mock(EmployeeCsvImporter.class), mock(EmployeeChangeFeed.class),
+        objectMapper, new MappingJackson2SmileHttpMessageConverter(), new MappingJackson2CborHttpMessageConverter());
+    mockMvc = MockMvcBuilders.standaloneSetup(employeeController)
+        .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+        .build();
+    employeeJson = objectMapper.writeValueAsString(employee);
+  }
+
+  @Benchmark
+  public MvcResult getEmployeeById() throws Exception {
+    return mockMvc.perform(get("/api/employees/{id}", 1L)).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult getAllEmployees() throws Exception {
+    return mockMvc.perform(get("/api/employees")).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult createEmployee() throws Exception {
+    return mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON).content(employeeJson))
+        .andReturn();
+  }
+}
@@ -0,0 +1,128 @@
+package net.javaguides.spring.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.protobuf.EmployeeProtobufHttpMessageConverter;
+
+/**
+ * Encoding and decoding employee lists in every format the controller negotiates: plain JSON, JSON with the
+ * Blackbird module the application registers, JSON gzipped as the server compresses it, Smile, CBOR and protobuf.
+ * The encoded size of each list is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeFormatBenchmark {
+
+  @Param({"json", "json-blackbird", "json-gzip", "smile", "cbor", "protobuf"})
+  private String format;
+
+  @Param({"1000", "100000"})
+  private int listSize;
+
+  private ObjectWriter listWriter;
+  private ObjectReader listReader;
+  private boolean gzip;
+  // Protobuf goes through the application's converter instead of a Jackson mapper
+  private EmployeeProtobufHttpMessageConverter protobufConverter;
+  private Type listType;
+  private List<Employee> employees;
+  private byte[] encodedEmployees;
+
+  @Setup
+  public void setup() throws IOException {
+    Jackson2ObjectMapperBuilder builder;
+    switch (format) {
+      case "smile":
+        builder = Jackson2ObjectMapperBuilder.smile();
+        break;
+      case "cbor":
+        builder = Jackson2ObjectMapperBuilder.cbor();
+        break;
+      default:
+        builder = Jackson2ObjectMapperBuilder.json();
+    }
+    if (!format.equals("json")) {
+      builder.modulesToInstall(new BlackbirdModule());
+    }
+    ObjectMapper objectMapper = builder.build();
+    TypeReference<List<Employee>> listTypeReference = new TypeReference<>() {
+    };
+    listWriter = objectMapper.writerFor(listTypeReference);
+    listReader = objectMapper.readerFor(listTypeReference);
+    gzip = format.equals("json-gzip");
+    if (format.equals("protobuf")) {
+      protobufConverter = new EmployeeProtobufHttpMessageConverter();
+      listType = listTypeReference.getType();
+    }
+
+    employees = new ArrayList<>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      employees.add(Employee.builder()
+          .id(i + 1L)
+          .firstName("First" + i)
+          .lastName("Last" + i)
+          .email("employee" + i + "@vita.com")
+          .version(i % 3)
+          .build());
+    }
+    encodedEmployees = protobufConverter != null ? serializeEmployees() : listWriter.writeValueAsBytes(employees);
+    System.out.printf("%n%s, %d employees: %d bytes%n", format, listSize, serializeEmployees().length);
+  }
+
+  @Benchmark
+  public byte[] serializeEmployees() throws IOException {
+    if (protobufConverter != null) {
+      MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+      protobufConverter.write(employees, listType, EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF,
+          outputMessage);
+      return outputMessage.getBodyAsBytes();
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(encodedEmployees.length);
+    try (OutputStream outputStream = gzip ? new GZIPOutputStream(bytes) : bytes) {
+      listWriter.writeValue(outputStream, employees);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public List<Employee> deserializeEmployees() throws IOException {
+    if (protobufConverter != null) {
+      return (List<Employee>) protobufConverter.read(listType, null, new MockHttpInputMessage(encodedEmployees));
+    }
+    return listReader.readValue(encodedEmployees);
+  }
+}
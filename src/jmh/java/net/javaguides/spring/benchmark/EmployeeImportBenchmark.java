@@ -0,0 +1,89 @@
+package net.javaguides.spring.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.ingest.EmployeeCsvImporter;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Loads {@code rows} new employees per operation, either one {@link EmployeeService#saveEmployee(Employee)} at a time
+ * or as a CSV through {@link EmployeeCsvImporter}. Rows per second is {@code rows} divided by the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeImportBenchmark {
+
+  @Param({"single-create", "csv-import"})
+  private String path;
+
+  @Param({"1000"})
+  private int rows;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private EmployeeCsvImporter employeeCsvImporter;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("import" + path);
+    employeeService = context.getBean(EmployeeService.class);
+    employeeCsvImporter = context.getBean(EmployeeCsvImporter.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public long load() {
+    if ("single-create".equals(path)) {
+      for (int i = 0; i < rows; i++) {
+        long n = sequence.incrementAndGet();
+        employeeService.saveEmployee(Employee.builder()
+            .firstName("Imported")
+            .lastName("Employee" + n)
+            .email("imported" + n + "@vita.com")
+            .build());
+      }
+      return rows;
+    }
+
+    StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+    for (int i = 0; i < rows; i++) {
+      long n = sequence.incrementAndGet();
+      csv.append("Imported,Employee").append(n).append(",imported").append(n).append("@vita.com\n");
+    }
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(
+        new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+    if (job.getRowsImported() != rows) {
+      throw new IllegalStateException("Imported " + job.getRowsImported() + " of " + rows + " rows");
+    }
+    return job.getRowsImported();
+  }
+}
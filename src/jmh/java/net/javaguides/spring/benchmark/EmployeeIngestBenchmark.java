@@ -0,0 +1,90 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.ingest.EmployeeWriteBehindQueue;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * A burst of creates, each saved in its own transaction against the same burst through the write-behind queue. An
+ * operation ends once every create of the burst is in the database, so the scores compare time to durable writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class EmployeeIngestBenchmark {
+
+  private static final int BURST_SIZE = 100;
+
+  @Param({"sync", "write-behind"})
+  private String mode;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private EmployeeWriteBehindQueue writeBehindQueue;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("ingest" + mode);
+    employeeService = context.getBean(EmployeeService.class);
+    writeBehindQueue = context.getBean(EmployeeWriteBehindQueue.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int createBurst() {
+    if ("sync".equals(mode)) {
+      for (int i = 0; i < BURST_SIZE; i++) {
+        employeeService.saveEmployee(employee());
+      }
+      return BURST_SIZE;
+    }
+
+    List<String> jobIds = new ArrayList<>(BURST_SIZE);
+    for (int i = 0; i < BURST_SIZE; i++) {
+      jobIds.add(writeBehindQueue.submit(employee()).getId());
+    }
+    for (String jobId : jobIds) {
+      while (writeBehindQueue.getJob(jobId).orElseThrow().getStatus() == EmployeeCreateJob.Status.QUEUED) {
+        LockSupport.parkNanos(100_000);
+      }
+    }
+    return BURST_SIZE;
+  }
+
+  private Employee employee() {
+    long n = sequence.incrementAndGet();
+    return Employee.builder().firstName("Ingested").lastName("Employee" + n).email("ingested" + n + "@vita.com").build();
+  }
+}
@@ -0,0 +1,94 @@
+package net.javaguides.spring.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.javaguides.spring.model.Employee;
+
+/**
+ * Jackson serialization of a single employee and of employee lists, using the same builder defaults as Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeJsonBenchmark {
+
+  @Param({"10", "100", "1000"})
+  private int listSize;
+
+  private ObjectWriter employeeWriter;
+  private ObjectReader employeeReader;
+  private ObjectWriter listWriter;
+  private ObjectReader listReader;
+  private Employee employee;
+  private List<Employee> employees;
+  private byte[] employeeJson;
+  private byte[] employeesJson;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    TypeReference<List<Employee>> listType = new TypeReference<>() {
+    };
+    employeeWriter = objectMapper.writerFor(Employee.class);
+    employeeReader = objectMapper.readerFor(Employee.class);
+    listWriter = objectMapper.writerFor(listType);
+    listReader = objectMapper.readerFor(listType);
+
+    employees = new ArrayList<>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      employees.add(Employee.builder()
+          .id(i + 1L)
+          .firstName("First" + i)
+          .lastName("Last" + i)
+          .email("employee" + i + "@vita.com")
+          .build());
+    }
+    employee = employees.get(0);
+    employeeJson = employeeWriter.writeValueAsBytes(employee);
+    employeesJson = listWriter.writeValueAsBytes(employees);
+  }
+
+  @Benchmark
+  public byte[] serializeEmployee() throws IOException {
+    return employeeWriter.writeValueAsBytes(employee);
+  }
+
+  @Benchmark
+  public Employee deserializeEmployee() throws IOException {
+    return employeeReader.readValue(employeeJson);
+  }
+
+  @Benchmark
+  public byte[] serializeEmployees() throws IOException {
+    return listWriter.writeValueAsBytes(employees);
+  }
+
+  @Benchmark
+  public List<Employee> deserializeEmployees() throws IOException {
+    return listReader.readValue(employeesJson);
+  }
+}
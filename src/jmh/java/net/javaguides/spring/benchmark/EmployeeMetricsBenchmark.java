@@ -0,0 +1,86 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Hot path cost of the metrics instrumentation: the same cached and uncached lookups with service timers, repository
+ * timers and row counts and Hibernate statistics switched on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeMetricsBenchmark {
+
+  private static final int TABLE_SIZE = 1000;
+
+  @Param({"true", "false"})
+  private boolean instrumented;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private EmployeeRepository employeeRepository;
+  private long[] ids;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("metrics" + instrumented,
+        "--employee.metrics.enabled=" + instrumented,
+        "--management.metrics.data.repository.autotime.enabled=" + instrumented,
+        "--spring.jpa.properties.hibernate.generate_statistics=" + instrumented);
+    employeeService = context.getBean(EmployeeService.class);
+    employeeRepository = context.getBean(EmployeeRepository.class);
+
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < TABLE_SIZE; i++) {
+      employees.add(Employee.builder().firstName("First" + i).lastName("Last" + i).email("employee" + i + "@vita.com")
+          .build());
+    }
+    ids = employeeService.saveEmployees(employees).stream().mapToLong(Employee::getId).toArray();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<Employee> cachedGetEmployeeById() {
+    return employeeService.getEmployeeById(ids[ThreadLocalRandom.current().nextInt(TABLE_SIZE)]);
+  }
+
+  @Benchmark
+  public Optional<Employee> repositoryFindById() {
+    return employeeRepository.findById(ids[ThreadLocalRandom.current().nextInt(TABLE_SIZE)]);
+  }
+
+  @Benchmark
+  public List<Employee> searchEmployeesByName() {
+    return employeeService.searchEmployeesByName("Last" + ThreadLocalRandom.current().nextInt(TABLE_SIZE), 0, 20);
+  }
+}
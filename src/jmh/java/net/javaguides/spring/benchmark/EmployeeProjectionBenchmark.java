@@ -0,0 +1,91 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Managed entities against read-only {@link EmployeeView} projections for the list and single employee reads. The
+ * entity lookup by id bypasses the employee cache but, as in the application, may hit the second-level cache. Run with
+ * {@code -Djmh.args="EmployeeProjection -prof gc"} to see the allocation per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeProjectionBenchmark {
+
+  @Param({"100", "10000"})
+  private int tableSize;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private EmployeeRepository employeeRepository;
+  private long[] ids;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("projection" + tableSize);
+    employeeService = context.getBean(EmployeeService.class);
+    employeeRepository = context.getBean(EmployeeRepository.class);
+
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < tableSize; i++) {
+      employees.add(Employee.builder()
+          .firstName("First" + i)
+          .lastName("Last" + i)
+          .email("employee" + i + "@vita.com")
+          .build());
+    }
+    ids = employeeService.saveEmployees(employees).stream().mapToLong(Employee::getId).toArray();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Employee> getAllEmployees() {
+    return employeeService.getAllEmployees();
+  }
+
+  @Benchmark
+  public List<EmployeeView> getAllEmployeeViews() {
+    return employeeService.getAllEmployeeViews();
+  }
+
+  @Benchmark
+  public Optional<Employee> findEmployeeById() {
+    return employeeRepository.findById(ids[ThreadLocalRandom.current().nextInt(tableSize)]);
+  }
+
+  @Benchmark
+  public Optional<EmployeeView> getEmployeeViewById() {
+    return employeeService.getEmployeeViewById(ids[ThreadLocalRandom.current().nextInt(tableSize)]);
+  }
+}
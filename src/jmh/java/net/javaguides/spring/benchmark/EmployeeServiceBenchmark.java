@@ -0,0 +1,102 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Service and repository operations against H2 at several table sizes. Lookups go through the same caches as the
+ * application, so repeated ids and emails are served from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  private int tableSize;
+
+  private ConfigurableApplicationContext context;
+  private EmployeeService employeeService;
+  private EmployeeRepository employeeRepository;
+  private final AtomicLong sequence = new AtomicLong();
+  private long[] ids;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("service" + tableSize);
+    employeeService = context.getBean(EmployeeService.class);
+    employeeRepository = context.getBean(EmployeeRepository.class);
+
+    ids = new long[tableSize];
+    for (int from = 0; from < tableSize; from += 1000) {
+      List<Employee> employees = new ArrayList<>();
+      for (int i = from; i < Math.min(from + 1000, tableSize); i++) {
+        employees.add(Employee.builder()
+            .firstName("First" + i)
+            .lastName("Last" + i)
+            .email("employee" + i + "@vita.com")
+            .build());
+      }
+      List<Employee> savedEmployees = employeeService.saveEmployees(employees);
+      for (int i = 0; i < savedEmployees.size(); i++) {
+        ids[from + i] = savedEmployees.get(i).getId();
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Employee saveEmployee() {
+    long n = sequence.incrementAndGet();
+    return employeeService.saveEmployee(Employee.builder()
+        .firstName("Saved")
+        .lastName("Employee" + n)
+        .email("saved" + n + "@vita.com")
+        .build());
+  }
+
+  @Benchmark
+  public Optional<Employee> getEmployeeById() {
+    return employeeService.getEmployeeById(ids[ThreadLocalRandom.current().nextInt(tableSize)]);
+  }
+
+  @Benchmark
+  public Optional<Employee> findByEmail() {
+    return employeeRepository.findByEmail("employee" + ThreadLocalRandom.current().nextInt(tableSize) + "@vita.com");
+  }
+
+  @Benchmark
+  public List<Employee> getAllEmployees() {
+    return employeeService.getAllEmployees();
+  }
+}
@@ -0,0 +1,115 @@
+package net.javaguides.spring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.repository.ShardedEmployeeRepository;
+
+/**
+ * {@link ShardedEmployeeRepository} over 1, 2 and 4 in-memory H2 shards holding the same employees. Lookups by id
+ * touch one shard whatever the count, the scatter-gather reads touch all of them in parallel. The shards share this
+ * machine's cores, so the scaling seen here is CPU parallelism only; separate database hosts add their own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class EmployeeShardingBenchmark {
+
+  private static final int TABLE_SIZE = 20000;
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"1", "2", "4"})
+  private int shards;
+
+  private ShardedEmployeeRepository employeeRepository;
+  private long[] ids;
+  private final AtomicLong inserted = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    List<DataSource> dataSources = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      HikariDataSource dataSource = new HikariDataSource();
+      dataSource.setJdbcUrl("jdbc:h2:mem:sharding" + shards + "-" + i + ";DB_CLOSE_DELAY=-1");
+      dataSource.setUsername("sa");
+      dataSource.setMaximumPoolSize(16);
+      dataSources.add(dataSource);
+    }
+    employeeRepository = new ShardedEmployeeRepository(dataSources);
+    employeeRepository.initializeSchema();
+
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < TABLE_SIZE; i++) {
+      employees.add(Employee.builder()
+          .firstName("First" + i)
+          .lastName("Last" + i)
+          .email("employee" + i + "@vita.com")
+          .build());
+    }
+    ids = employeeRepository.insertAll(employees).stream().mapToLong(Employee::getId).toArray();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    employeeRepository.close();
+  }
+
+  @Benchmark
+  public Optional<Employee> findById() {
+    return employeeRepository.findById(ids[ThreadLocalRandom.current().nextInt(TABLE_SIZE)]);
+  }
+
+  @Benchmark
+  public List<Employee> findPageAfter() {
+    return employeeRepository.findPageAfter(ids[ThreadLocalRandom.current().nextInt(TABLE_SIZE)], PAGE_SIZE);
+  }
+
+  @Benchmark
+  public List<Employee> findByLastNamePrefix() {
+    return employeeRepository.findByLastNamePrefix("Last" + ThreadLocalRandom.current().nextInt(100) + "%",
+        PAGE_SIZE, 0);
+  }
+
+  @Benchmark
+  public List<Employee> findAll() {
+    return employeeRepository.findAll();
+  }
+
+  @Benchmark
+  public Employee insert() {
+    long n = inserted.incrementAndGet();
+    return employeeRepository.insert(Employee.builder()
+        .firstName("New" + n)
+        .lastName("Employee" + n)
+        .email("new" + n + "@vita.com")
+        .build());
+  }
+}
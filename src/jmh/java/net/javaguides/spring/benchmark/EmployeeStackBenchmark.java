@@ -0,0 +1,96 @@
+package net.javaguides.spring.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Servlet and reactive stacks under the same request thread cap. Each operation sends {@code concurrency} name
+ * searches at once and waits for all of them, so requests per second is {@code concurrency} divided by the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeStackBenchmark {
+
+  private static final int TABLE_SIZE = 1000;
+  private static final int SERVER_THREADS = 8;
+
+  @Param({"servlet", "reactive"})
+  private String stack;
+
+  @Param({"8", "64", "256"})
+  private int concurrency;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient httpClient;
+  private String baseUrl;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    boolean reactive = "reactive".equals(stack);
+    context = BenchmarkApplication.start(reactive ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET,
+        "stack" + stack,
+        "--spring.profiles.active=" + (reactive ? "reactive" : "default"),
+        "--server.port=0",
+        "--server.tomcat.threads.max=" + SERVER_THREADS,
+        "--server.tomcat.threads.min-spare=" + SERVER_THREADS);
+    baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/employees";
+    httpClient = HttpClient.newHttpClient();
+
+    StringBuilder employees = new StringBuilder("[");
+    for (int i = 0; i < TABLE_SIZE; i++) {
+      employees.append(i == 0 ? "" : ",").append(String.format(
+          "{\"firstName\":\"First%d\",\"lastName\":\"Last%d\",\"email\":\"employee%d@vita.com\"}", i, i, i));
+    }
+    httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(employees.append("]").toString())).build(),
+        HttpResponse.BodyHandlers.discarding());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int searchEmployeesByName() {
+    List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      URI uri = URI.create(baseUrl + "/search?name=Last" + ThreadLocalRandom.current().nextInt(TABLE_SIZE));
+      responses.add(httpClient.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+    }
+    int ok = 0;
+    for (CompletableFuture<HttpResponse<Void>> response : responses) {
+      ok += response.join().statusCode() == 200 ? 1 : 0;
+    }
+    return ok;
+  }
+}
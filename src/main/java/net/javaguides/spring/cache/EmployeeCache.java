@@ -0,0 +1,149 @@
+package net.javaguides.spring.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.javaguides.spring.model.Employee;
+
+/**
+ * Bounded read-through cache of employees by id. Absent ids are cached too, for a shorter time.
+ * <p>
+ * Entries are futures, so a miss only puts an incomplete future in the map and loads on the calling thread outside of
+ * it. A slow load, like one waiting for its batch to fill, never holds a lock other ids of the cache may need.
+ */
+@Component
+public class EmployeeCache implements MeterBinder {
+
+  private final AsyncCache<Long, Optional<Employee>> cache;
+
+  @Autowired
+  public EmployeeCache(EmployeeCacheProperties properties) {
+    this(properties, Ticker.systemTicker());
+  }
+
+  EmployeeCache(EmployeeCacheProperties properties, Ticker ticker) {
+    long ttlNanos = properties.getTtl().toNanos();
+    long negativeTtlNanos = properties.getNegativeTtl().toNanos();
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(properties.getMaximumSize())
+        .expireAfter(new Expiry<Long, Optional<Employee>>() {
+          @Override
+          public long expireAfterCreate(Long id, Optional<Employee> employee, long currentTime) {
+            return employee.isPresent() ? ttlNanos : negativeTtlNanos;
+          }
+
+          @Override
+          public long expireAfterUpdate(Long id, Optional<Employee> employee, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, employee, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(Long id, Optional<Employee> employee, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .ticker(ticker)
+        .recordStats()
+        .buildAsync();
+  }
+
+  /**
+   * Returns the cached employee, loading it on a miss. Concurrent misses for the same id wait for a single load.
+   */
+  public Optional<Employee> get(long id, LongFunction<Optional<Employee>> loader) {
+    CompletableFuture<Optional<Employee>> load = new CompletableFuture<>();
+    CompletableFuture<Optional<Employee>> employee = cache.get(id, (key, executor) -> load);
+    if (employee == load) {
+      complete(load, () -> loader.apply(id));
+    }
+    return join(employee);
+  }
+
+  /**
+   * Returns the cached employees of {@code ids}, loading the missing ones with a single call to {@code loader}.
+   */
+  public Map<Long, Optional<Employee>> getAll(Collection<Long> ids,
+      Function<Set<Long>, Map<Long, Optional<Employee>>> loader) {
+    CompletableFuture<Map<Long, Optional<Employee>>> load = new CompletableFuture<>();
+    Set<Long> idsToLoad = new LinkedHashSet<>();
+    CompletableFuture<Map<Long, Optional<Employee>>> employees = cache.getAll(ids, (missingIds, executor) -> {
+      missingIds.forEach(idsToLoad::add);
+      return load;
+    });
+    if (!idsToLoad.isEmpty()) {
+      complete(load, () -> loader.apply(idsToLoad));
+    }
+    return join(employees);
+  }
+
+  public void put(Employee employee) {
+    cache.put(employee.getId(), CompletableFuture.completedFuture(Optional.of(employee)));
+  }
+
+  /**
+   * Removes the entry of {@code id}. A load still running for it completes for its callers but is not cached.
+   */
+  public void invalidate(long id) {
+    cache.synchronous().invalidate(id);
+  }
+
+  public void invalidateAll() {
+    cache.synchronous().invalidateAll();
+  }
+
+  public long estimatedSize() {
+    return cache.synchronous().estimatedSize();
+  }
+
+  public CacheStats stats() {
+    return cache.synchronous().stats();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "employeeCache");
+  }
+
+  // A failed load is removed from the cache, so the next lookup tries again
+  private static <T> void complete(CompletableFuture<T> load, Supplier<T> loader) {
+    try {
+      load.complete(loader.get());
+    } catch (RuntimeException | Error e) {
+      load.completeExceptionally(e);
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package net.javaguides.spring.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "employeecache")
+public class EmployeeCacheEndpoint {
+
+  private final EmployeeCache employeeCache;
+
+  @ReadOperation
+  public Map<String, Object> stats() {
+    CacheStats stats = employeeCache.stats();
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("size", employeeCache.estimatedSize());
+    body.put("hitCount", stats.hitCount());
+    body.put("missCount", stats.missCount());
+    body.put("hitRate", stats.hitRate());
+    body.put("loadSuccessCount", stats.loadSuccessCount());
+    body.put("loadFailureCount", stats.loadFailureCount());
+    body.put("totalLoadTimeNanos", stats.totalLoadTime());
+    body.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+    body.put("evictionCount", stats.evictionCount());
+    return body;
+  }
+}
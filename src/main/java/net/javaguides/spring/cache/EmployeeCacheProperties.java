@@ -0,0 +1,20 @@
+package net.javaguides.spring.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.cache")
+public class EmployeeCacheProperties {
+  private long maximumSize = 10_000;
+  private Duration ttl = Duration.ofMinutes(10);
+  /**
+   * How long a lookup for an id that does not exist is remembered.
+   */
+  private Duration negativeTtl = Duration.ofSeconds(5);
+}
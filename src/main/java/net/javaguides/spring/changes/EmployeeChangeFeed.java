@@ -0,0 +1,422 @@
+package net.javaguides.spring.changes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import net.javaguides.spring.exception.ServiceUnavailableException;
+import net.javaguides.spring.exception.TooManyRequestsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeChange;
+
+/**
+ * Committed employee writes, numbered in order and kept in a ring buffer of the most recent ones, pushed to
+ * Server-Sent Events subscribers. Publishing only appends to the buffer and wakes the notifier, so writers never wait
+ * for subscribers. A few dispatch threads send each subscriber what it has not seen yet, one subscriber at a time,
+ * and subscribers hold no thread while idle. A subscriber that falls further behind than the buffer, or that does
+ * not say where it left off, gets a {@code reset} event and should reload the list. A subscriber whose write takes
+ * longer than the write timeout is dropped, and another dispatch thread stands in until that write gives up.
+ */
+@Component
+@Profile("!reactive")
+public class EmployeeChangeFeed implements SmartLifecycle, MeterBinder {
+
+  // Stopped before the web server, so open subscriptions are completed rather than cut off
+  private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 512;
+  private static final String RESET_EVENT = "reset";
+  // Bounds the time a far behind subscriber holds a dispatch thread before the others get their turn
+  private static final int MAX_EVENTS_PER_RUN = 1000;
+  private static final long RESET = -1;
+
+  private final ObjectMapper objectMapper;
+  private final Entry[] buffer;
+  private final int maxSubscribers;
+  private final long heartbeatNanos;
+  private final long timeoutMillis;
+  private final long writeTimeoutNanos;
+  private final int dispatchThreads;
+  // Part of every event id, so an id from another node or from before a restart is not mistaken for one of ours
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition published = lock.newCondition();
+  // Written under lock, read without it to check for news
+  private volatile long lastSequence;
+  private volatile boolean running;
+  private ThreadPoolExecutor dispatchers;
+  // Threads added in place of those stuck writing to a dropped subscriber
+  private int standInThreads;
+  private Thread notifier;
+
+  public EmployeeChangeFeed(ObjectMapper objectMapper, EmployeeChangeFeedProperties properties) {
+    this.objectMapper = objectMapper;
+    this.buffer = new Entry[properties.getBufferSize()];
+    this.maxSubscribers = properties.getMaxSubscribers();
+    this.heartbeatNanos = properties.getHeartbeat().toNanos();
+    this.timeoutMillis = properties.getTimeout().toMillis();
+    this.writeTimeoutNanos = properties.getWriteTimeout().toNanos();
+    this.dispatchThreads = properties.getDispatchThreads();
+  }
+
+  /**
+   * Adds a change to the feed, once the current transaction commits if there is one. Returns right away.
+   */
+  public void publish(EmployeeChange.Type type, long employeeId, Employee employee) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      append(type, employeeId, employee);
+      return;
+    }
+
+    // Subscribers would otherwise hear of writes that are rolled back
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        append(type, employeeId, employee);
+      }
+    });
+  }
+
+  /**
+   * Opens a subscription that starts after the event {@code lastEventId}, or with a {@code reset} event when it is
+   * null or no longer in the buffer. Throws {@link TooManyRequestsException} when there are too many subscribers and
+   * {@link ServiceUnavailableException} while shutting down.
+   */
+  public SseEmitter subscribe(String lastEventId) {
+    if (!running) {
+      throw new ServiceUnavailableException("The change feed is not accepting subscribers while shutting down");
+    }
+    if (subscribers.size() >= maxSubscribers) {
+      throw new TooManyRequestsException("Too many change feed subscribers, retry later");
+    }
+
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter, resumeAfter(lastEventId));
+    emitter.onCompletion(subscriber::close);
+    emitter.onTimeout(subscriber::close);
+    emitter.onError(error -> subscriber.close());
+    subscribers.add(subscriber);
+    // Events sent before the emitter is returned are held until the response is ready
+    schedule(subscriber);
+    return emitter;
+  }
+
+  public long lastSequence() {
+    return lastSequence;
+  }
+
+  public int subscribers() {
+    return subscribers.size();
+  }
+
+  @Override
+  public void start() {
+    AtomicInteger threads = new AtomicInteger();
+    dispatchers = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "employee-changes-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    running = true;
+    notifier = new Thread(this::notifySubscribers, "employee-changes-notifier");
+    notifier.setDaemon(true);
+    notifier.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    notifier.interrupt();
+    try {
+      notifier.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    dispatchers.shutdownNow();
+    // Clients reconnect with their Last-Event-ID, to this node once it is back or to another one
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("employee.changes.subscribers", subscribers, Set::size)
+        .description("Open change feed subscriptions")
+        .register(registry);
+  }
+
+  private void append(EmployeeChange.Type type, long employeeId, Employee employee) {
+    lock.lock();
+    try {
+      long sequence = lastSequence + 1;
+      buffer[(int) (sequence % buffer.length)] = new Entry(new EmployeeChange(sequence, type, employeeId, employee));
+      lastSequence = sequence;
+      published.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} changes after {@code sequence}, or null when some of them have left the buffer.
+   */
+  private List<Entry> changesAfter(long sequence, int limit) {
+    lock.lock();
+    try {
+      if (sequence < lastSequence - buffer.length) {
+        return null;
+      }
+      int count = (int) Math.min(limit, lastSequence - sequence);
+      List<Entry> changes = new ArrayList<>(count);
+      for (long next = sequence + 1; next <= sequence + count; next++) {
+        changes.add(buffer[(int) (next % buffer.length)]);
+      }
+      return changes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long resumeAfter(String lastEventId) {
+    if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+      return RESET;
+    }
+    try {
+      long sequence = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+      return sequence >= 0 && sequence <= lastSequence ? sequence : RESET;
+    } catch (NumberFormatException e) {
+      return RESET;
+    }
+  }
+
+  private String eventId(long sequence) {
+    return epoch + "-" + sequence;
+  }
+
+  private void notifySubscribers() {
+    long notified = lastSequence;
+    // Wakes up often enough to drop stalled subscribers soon after their write timeout
+    long idleNanos = Math.min(heartbeatNanos, writeTimeoutNanos);
+    while (running) {
+      lock.lock();
+      try {
+        if (lastSequence == notified) {
+          published.awaitNanos(idleNanos);
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      // Many changes published while the last round ran are picked up in one round
+      notified = lastSequence;
+      long now = System.nanoTime();
+      for (Subscriber subscriber : subscribers) {
+        if (subscriber.isStalled(now)) {
+          subscriber.drop();
+        } else if (subscriber.cursor != notified || now - subscriber.lastSendNanos >= heartbeatNanos) {
+          schedule(subscriber);
+        }
+      }
+    }
+  }
+
+  private void schedule(Subscriber subscriber) {
+    if (subscriber.scheduled.compareAndSet(false, true)) {
+      try {
+        dispatchers.execute(subscriber);
+      } catch (RejectedExecutionException e) {
+        // Shutting down, the subscription is completed by stop
+        subscriber.scheduled.set(false);
+      }
+    }
+  }
+
+  /**
+   * Grows or shrinks the dispatch threads by {@code delta} stand-ins, so subscribers still being read from are not
+   * held up by threads stuck writing to dropped ones.
+   */
+  private synchronized void addStandInThreads(int delta) {
+    standInThreads += delta;
+    int size = dispatchThreads + standInThreads;
+    // The maximum can never be below the core size
+    if (delta > 0) {
+      dispatchers.setMaximumPoolSize(size);
+      dispatchers.setCorePoolSize(size);
+    } else {
+      dispatchers.setCorePoolSize(size);
+      dispatchers.setMaximumPoolSize(size);
+    }
+  }
+
+  private final class Entry {
+    private final EmployeeChange change;
+    // Written once for all subscribers, the first dispatch thread to need it serializes it
+    private volatile String json;
+
+    Entry(EmployeeChange change) {
+      this.change = change;
+    }
+
+    String json() throws JsonProcessingException {
+      String serialized = json;
+      if (serialized == null) {
+        serialized = objectMapper.writeValueAsString(change);
+        json = serialized;
+      }
+      return serialized;
+    }
+  }
+
+  private final class Subscriber implements Runnable {
+    private final SseEmitter emitter;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Sequence of the last change sent, only written by the dispatch thread running this subscriber
+    private volatile long cursor;
+    private volatile long lastSendNanos = System.nanoTime();
+    private volatile boolean closed;
+    private volatile boolean dropped;
+    // Guarded by this, set while a dispatch thread is writing to the subscriber
+    private boolean sending;
+    private long sendStartNanos;
+    private boolean replaced;
+
+    Subscriber(SseEmitter emitter, long cursor) {
+      this.emitter = emitter;
+      this.cursor = cursor;
+    }
+
+    @Override
+    public void run() {
+      startSending();
+      try {
+        send();
+      } catch (IOException | IllegalStateException e) {
+        // The client went away, or the subscription completed or timed out
+        close();
+      } finally {
+        stopSending();
+        scheduled.set(false);
+      }
+      if (dropped) {
+        // The stalled write went through in the end, the client reconnects with its Last-Event-ID
+        completeQuietly();
+        return;
+      }
+      // Changes published after the last look but while this was scheduled would otherwise wait for the next one
+      if (!closed && running && cursor != lastSequence) {
+        schedule(this);
+      }
+    }
+
+    private void send() throws IOException {
+      int sent = 0;
+      while (sent < MAX_EVENTS_PER_RUN && !dropped) {
+        List<Entry> changes = cursor == RESET ? null : changesAfter(cursor, MAX_EVENTS_PER_RUN - sent);
+        if (changes == null) {
+          long sequence = lastSequence;
+          emitter.send(SseEmitter.event().id(eventId(sequence)).name(RESET_EVENT).data(sequence));
+          cursor = sequence;
+          sent++;
+          continue;
+        }
+        if (changes.isEmpty()) {
+          break;
+        }
+        for (Entry entry : changes) {
+          emitter.send(SseEmitter.event().id(eventId(entry.change.getSequence())).data(entry.json()));
+          cursor = entry.change.getSequence();
+        }
+        sent += changes.size();
+      }
+
+      long now = System.nanoTime();
+      if (sent == 0 && now - lastSendNanos >= heartbeatNanos) {
+        emitter.send(SseEmitter.event().comment("heartbeat"));
+        sent++;
+      }
+      if (sent > 0) {
+        lastSendNanos = now;
+      }
+    }
+
+    private synchronized void startSending() {
+      sending = true;
+      sendStartNanos = System.nanoTime();
+    }
+
+    private synchronized void stopSending() {
+      sending = false;
+      if (replaced) {
+        replaced = false;
+        addStandInThreads(-1);
+      }
+    }
+
+    synchronized boolean isStalled(long now) {
+      return sending && !dropped && now - sendStartNanos >= writeTimeoutNanos;
+    }
+
+    /**
+     * Removes a subscriber whose client stopped reading. Its dispatch thread is stuck until the container times the
+     * write out, so a stand-in serves the other subscribers meanwhile. The emitter is left alone, its lock is held by
+     * the stuck write.
+     */
+    synchronized void drop() {
+      dropped = true;
+      close();
+      if (sending && !replaced) {
+        replaced = true;
+        addStandInThreads(1);
+      }
+    }
+
+    private void completeQuietly() {
+      try {
+        emitter.complete();
+      } catch (IllegalStateException e) {
+        // Already completed
+      }
+    }
+
+    void close() {
+      closed = true;
+      subscribers.remove(this);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package net.javaguides.spring.changes;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.changes")
+public class EmployeeChangeFeedProperties {
+  /**
+   * Most recent changes kept for subscribers that fall behind or reconnect. Subscribers further behind are told to
+   * reload the list.
+   */
+  private int bufferSize = 10_000;
+  /**
+   * Subscribers open at once on this node. Further subscriptions are refused with 429.
+   */
+  private int maxSubscribers = 5_000;
+  /**
+   * Threads writing events to subscribers.
+   */
+  private int dispatchThreads = 4;
+  /**
+   * How long a write to one subscriber may take. A subscriber that stops reading is dropped after it, and another
+   * thread stands in for the one stuck writing to it.
+   */
+  private Duration writeTimeout = Duration.ofSeconds(10);
+  /**
+   * How often idle subscribers get a comment, which keeps proxies from closing the connection.
+   */
+  private Duration heartbeat = Duration.ofSeconds(15);
+  /**
+   * How long a subscription stays open. Clients reconnect with their Last-Event-ID and miss nothing.
+   */
+  private Duration timeout = Duration.ofMinutes(30);
+}
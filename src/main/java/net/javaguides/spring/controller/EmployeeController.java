@@ -1,29 +1,71 @@
 package net.javaguides.spring.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.protobuf.CodedOutputStream;
 
 import lombok.RequiredArgsConstructor;
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.ingest.EmployeeCsvImporter;
+import net.javaguides.spring.ingest.EmployeeWriteBehindQueue;
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.protobuf.EmployeeProtobufHttpMessageConverter;
+import net.javaguides.spring.search.EmployeeMatch;
 import net.javaguides.spring.service.EmployeeService;
+import net.javaguides.spring.web.WebConfiguration;
 
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+  private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
   private final EmployeeService employeeService;
+  private final EmployeeWriteBehindQueue employeeWriteBehindQueue;
+  private final EmployeeCsvImporter employeeCsvImporter;
+  private final EmployeeChangeFeed employeeChangeFeed;
+  private final ObjectMapper objectMapper;
+  private final MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+  private final MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
 
   @PostMapping
   @ResponseStatus(HttpStatus.CREATED)
@@ -31,31 +73,225 @@ public class EmployeeController {
     return employeeService.saveEmployee(employee);
   }
 
+  // Answers once the create is queued, GET the Location for its outcome
+  @PostMapping(params = "async=true")
+  public ResponseEntity<EmployeeCreateJob> createEmployeeAsync(@RequestBody Employee employee) {
+    EmployeeCreateJob job = employeeWriteBehindQueue.submit(employee);
+    URI location = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/jobs/{id}").buildAndExpand(job.getId())
+        .toUri();
+    return ResponseEntity.accepted().location(location).body(job);
+  }
+
+  @GetMapping("jobs/{id}")
+  public ResponseEntity<EmployeeCreateJob> getCreateJob(@PathVariable("id") String jobId) {
+    return ResponseEntity.of(employeeWriteBehindQueue.getJob(jobId));
+  }
+
+  // The upload is imported in the background, GET the Location for its progress
+  @PostMapping(value = "imports", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<EmployeeImportJob> importEmployees(@RequestParam("file") MultipartFile file)
+      throws IOException {
+    EmployeeImportJob job = employeeCsvImporter.submit(file);
+    URI location = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(job.getId())
+        .toUri();
+    return ResponseEntity.accepted().location(location).body(job);
+  }
+
+  @GetMapping("imports/{id}")
+  public ResponseEntity<EmployeeImportJob> getImportJob(@PathVariable("id") String jobId) {
+    return ResponseEntity.of(employeeCsvImporter.getJob(jobId));
+  }
+
+  @PostMapping("batch")
+  @ResponseStatus(HttpStatus.CREATED)
+  public List<Employee> createEmployees(@RequestBody List<Employee> employees) {
+    return employeeService.saveEmployees(employees);
+  }
+
   @GetMapping
-  public List<Employee> getAllEmployess() {
-    return employeeService.getAllEmployees();
+  public List<EmployeeView> getAllEmployess(WebRequest webRequest) {
+    // Checked before the list is loaded, so an unchanged list is neither read nor serialized again
+    if (webRequest.checkNotModified(listETag(employeeService.getEmployeeListVersion()))) {
+      return null;
+    }
+    return employeeService.getAllEmployeeViews();
+  }
+
+  @GetMapping(params = "limit")
+  public EmployeePage getEmployeesPage(@RequestParam("limit") int limit,
+      @RequestParam(value = "after", defaultValue = "0") long after) {
+    return employeeService.getEmployeesPage(after, limit);
+  }
+
+  @GetMapping(params = "ids")
+  public ResponseEntity<List<Employee>> getEmployeesByIds(@RequestParam("ids") List<Long> employeeIds) {
+    // An empty element, like the one in ids=1,,2, binds as null
+    if (employeeIds.contains(null)) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(employeeService.getEmployeesByIds(employeeIds));
+  }
+
+  @GetMapping(value = "search", params = "q")
+  public List<EmployeeMatch> searchEmployees(@RequestParam("q") String query,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return employeeService.searchEmployees(query, limit);
+  }
+
+  @GetMapping(value = "search", params = "name")
+  public List<Employee> searchEmployeesByName(@RequestParam("name") String name,
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @RequestParam(value = "size", defaultValue = "20") int size) {
+    return employeeService.searchEmployeesByName(name, page, size);
+  }
+
+  @GetMapping("export")
+  public ResponseEntity<StreamingResponseBody> exportEmployees() {
+    return export(objectMapper, APPLICATION_NDJSON);
+  }
+
+  // Binary exports are a plain sequence of Smile or CBOR values, read back with ObjectReader.readValues
+  @GetMapping(value = "export", produces = WebConfiguration.APPLICATION_SMILE_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportEmployeesAsSmile() {
+    return export(smileHttpMessageConverter.getObjectMapper(),
+        MediaType.parseMediaType(WebConfiguration.APPLICATION_SMILE_VALUE));
+  }
+
+  @GetMapping(value = "export", produces = MediaType.APPLICATION_CBOR_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportEmployeesAsCbor() {
+    return export(cborHttpMessageConverter.getObjectMapper(), MediaType.APPLICATION_CBOR);
+  }
+
+  // Length-delimited Employee messages, read back with Employee.parseDelimitedFrom
+  @GetMapping(value = "export", produces = EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportEmployeesAsProtobuf() {
+    StreamingResponseBody body = outputStream -> {
+      CodedOutputStream output = CodedOutputStream.newInstance(outputStream);
+      employeeService.exportEmployees(employee -> {
+        try {
+          output.writeMessageNoTag(EmployeeProtobufHttpMessageConverter.toMessage(employee));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      output.flush();
+    };
+
+    return ResponseEntity.ok().contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF).body(body);
+  }
+
+  // Clients that lost the connection send the id of the last event they got and continue right after it
+  @GetMapping("changes")
+  public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    return employeeChangeFeed.subscribe(lastEventId);
   }
 
   @GetMapping("{id}")
   public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long employeeId) {
+    // A matching If-None-Match is answered with 304 before the body is written
     return employeeService.getEmployeeById(employeeId)
-        .map(ResponseEntity::ok)
+        .map(employee -> ResponseEntity.ok().eTag(eTag(employee)).body(employee))
         .orElseGet(() -> ResponseEntity.notFound().build());
   }
 
   @PutMapping
-  public ResponseEntity<Employee> updateEmployee(@RequestBody Employee employee) {
-    return employeeService.getEmployeeById(employee.getId())
-        .map(dbEmployee -> employeeService.updateEmployee(employee))
-        .map(ResponseEntity::ok)
-        .orElseGet(() -> ResponseEntity.notFound().build());
+  public ResponseEntity<Employee> updateEmployee(@RequestBody Employee employee,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long expectedVersion = expectedVersion(ifMatch);
+    if (!employeeService.updateEmployee(employee, expectedVersion)) {
+      return notUpdated(ifMatch);
+    }
+    // The service set the new version, read back from the row when there was no precondition to derive it from
+    return ResponseEntity.ok().eTag(eTag(employee)).body(employee);
+  }
+
+  @PatchMapping("{id}")
+  public ResponseEntity<Void> patchEmployee(@PathVariable("id") long employeeId, @RequestBody Employee changes,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long expectedVersion = expectedVersion(ifMatch);
+    if (!employeeService.patchEmployee(employeeId, changes, expectedVersion)) {
+      return notUpdated(ifMatch);
+    }
+    // The service set the version of the row it read back, with or without a precondition
+    return ResponseEntity.noContent().eTag(eTag(changes)).build();
   }
 
   @DeleteMapping("{id}")
   public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId) {
-    employeeService.deleteEmployee(employeeId);
+    if (!employeeService.deleteEmployee(employeeId)) {
+      return ResponseEntity.notFound().build();
+    }
 
     return new ResponseEntity<String>("Employee deleted successfully", HttpStatus.OK);
   }
 
+  @DeleteMapping(params = "ids")
+  public ResponseEntity<String> deleteEmployees(@RequestParam("ids") List<Long> employeeIds) {
+    if (employeeIds.contains(null)) {
+      return ResponseEntity.badRequest().body("Every id must be a number");
+    }
+    int deleted = employeeService.deleteEmployees(employeeIds);
+
+    return new ResponseEntity<String>(deleted + " employees deleted successfully", HttpStatus.OK);
+  }
+
+  private ResponseEntity<StreamingResponseBody> export(ObjectMapper mapper, MediaType contentType) {
+    boolean lineDelimited = contentType.equals(APPLICATION_NDJSON);
+    ObjectWriter employeeWriter = mapper.writerFor(Employee.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    StreamingResponseBody body = outputStream -> {
+      JsonGenerator generator = mapper.getFactory().createGenerator(outputStream);
+      if (lineDelimited) {
+        generator.setRootValueSeparator(null);
+      }
+      employeeService.exportEmployees(employee -> {
+        try {
+          employeeWriter.writeValue(generator, employee);
+          if (lineDelimited) {
+            generator.writeRaw('\n');
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      generator.flush();
+    };
+
+    return ResponseEntity.ok().contentType(contentType).body(body);
+  }
+
+  private static String eTag(Employee employee) {
+    return "\"" + employee.getVersion() + "\"";
+  }
+
+  // Weak so that Tomcat still compresses the list, it leaves responses with a strong ETag alone
+  private static String listETag(EmployeeListVersion listVersion) {
+    return "W/\"" + listVersion.getCount() + "-" + listVersion.getVersionSum() + "-" + listVersion.getMaxId() + "-"
+        + listVersion.getChecksum() + "\"";
+  }
+
+  // Null updates any version. Only a single strong ETag can match, weak and unparsable ones become a version no row
+  // has, so the update fails the precondition.
+  private static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+
+    String value = ifMatch.trim();
+    if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+      return -1L;
+    }
+    try {
+      return Long.valueOf(value.substring(1, value.length() - 1));
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  // No row matched: the employee does not exist or, with If-Match, may be at another version
+  private static <T> ResponseEntity<T> notUpdated(String ifMatch) {
+    return ifMatch == null ? ResponseEntity.notFound().build()
+        : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
+
 }
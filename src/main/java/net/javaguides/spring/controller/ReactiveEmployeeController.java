@@ -0,0 +1,103 @@
+package net.javaguides.spring.controller;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.search.EmployeeMatch;
+import net.javaguides.spring.service.ReactiveEmployeeService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link EmployeeController} with the same routes and payloads, active with the reactive
+ * profile.
+ */
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping("/api/employees")
+public class ReactiveEmployeeController {
+
+  private final ReactiveEmployeeService employeeService;
+
+  @PostMapping
+  @ResponseStatus(HttpStatus.CREATED)
+  public Mono<Employee> createEmployee(@RequestBody Employee employee) {
+    return employeeService.saveEmployee(employee);
+  }
+
+  @PostMapping("batch")
+  @ResponseStatus(HttpStatus.CREATED)
+  public Mono<List<Employee>> createEmployees(@RequestBody List<Employee> employees) {
+    return employeeService.saveEmployees(employees);
+  }
+
+  @GetMapping
+  public Flux<Employee> getAllEmployess() {
+    return employeeService.getAllEmployees();
+  }
+
+  @GetMapping(params = "limit")
+  public Mono<EmployeePage> getEmployeesPage(@RequestParam("limit") int limit,
+      @RequestParam(value = "after", defaultValue = "0") long after) {
+    return employeeService.getEmployeesPage(after, limit);
+  }
+
+  @GetMapping(value = "search", params = "q")
+  public Flux<EmployeeMatch> searchEmployees(@RequestParam("q") String query,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return employeeService.searchEmployees(query, limit);
+  }
+
+  @GetMapping(value = "search", params = "name")
+  public Flux<Employee> searchEmployeesByName(@RequestParam("name") String name,
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @RequestParam(value = "size", defaultValue = "20") int size) {
+    return employeeService.searchEmployeesByName(name, page, size);
+  }
+
+  @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<Employee> exportEmployees() {
+    return employeeService.exportEmployees();
+  }
+
+  @GetMapping("{id}")
+  public Mono<ResponseEntity<Employee>> getEmployeeById(@PathVariable("id") long employeeId) {
+    return employeeService.getEmployeeById(employeeId)
+        .map(ResponseEntity::ok)
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  @PutMapping
+  public Mono<ResponseEntity<Employee>> updateEmployee(@RequestBody Employee employee) {
+    return employeeService.getEmployeeById(employee.getId())
+        .flatMap(dbEmployee -> employeeService.updateEmployee(employee))
+        .map(ResponseEntity::ok)
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  @DeleteMapping("{id}")
+  public Mono<ResponseEntity<String>> deleteEmployee(@PathVariable("id") long employeeId) {
+    return employeeService.deleteEmployee(employeeId)
+        .map(deleted -> deleted ? new ResponseEntity<String>("Employee deleted successfully", HttpStatus.OK)
+            : ResponseEntity.notFound().build());
+  }
+
+}
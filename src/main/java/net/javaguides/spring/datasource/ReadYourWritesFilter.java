@@ -0,0 +1,82 @@
+package net.javaguides.spring.datasource;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Keeps a client on the primary for a while after it sent a write, so it reads its own changes before they reach
+ * the replicas. The deadline travels in a cookie, any server of the cluster honours it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+  public static final String COOKIE_NAME = "read-primary-until";
+
+  private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+  private final Duration window;
+  private final Clock clock;
+
+  public ReadYourWritesFilter(Duration window) {
+    this(window, Clock.systemUTC());
+  }
+
+  ReadYourWritesFilter(Duration window, Clock clock) {
+    this.window = window;
+    this.clock = clock;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long now = clock.millis();
+    boolean write = !READ_METHODS.contains(request.getMethod());
+    if (write) {
+      // Set before the chain runs, the response may be committed by the time it returns
+      String deadline = Long.toString(now + window.toMillis());
+      response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, deadline)
+          .path("/")
+          .maxAge(window)
+          .httpOnly(true)
+          .build().toString());
+    }
+    if (!write && !withinWindow(request, now)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    ReplicaRoutingDataSource.pinPrimary();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReplicaRoutingDataSource.unpinPrimary();
+    }
+  }
+
+  // Checked against the clock too, clients that ignore Max-Age keep sending an expired cookie. Deadlines more than one
+  // window ahead were not set by this filter and are ignored.
+  private boolean withinWindow(HttpServletRequest request, long now) {
+    Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+    if (cookie == null) {
+      return false;
+    }
+    try {
+      long deadline = Long.parseLong(cookie.getValue());
+      return deadline > now && deadline <= now + window.toMillis();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
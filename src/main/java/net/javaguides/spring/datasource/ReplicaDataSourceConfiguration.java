@@ -0,0 +1,69 @@
+package net.javaguides.spring.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Replaces the auto-configured datasource with one that routes read-only transactions to the replicas in
+ * {@code employee.datasource.replicas}. Without replicas the auto-configured datasource is left alone.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive & !sharded")
+@ConditionalOnProperty(prefix = "employee.datasource", name = "replicas[0].url")
+public class ReplicaDataSourceConfiguration {
+
+  private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+      ReplicaDataSourceProperties replicaProperties, Environment environment) {
+    Binder binder = Binder.get(environment);
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    binder.bind(HIKARI_PREFIX, Bindable.ofInstance(primary));
+
+    List<DataSource> replicas = new ArrayList<>();
+    for (ReplicaDataSourceProperties.Replica replica : replicaProperties.getReplicas()) {
+      HikariDataSource replicaDataSource = DataSourceBuilder.create(properties.getClassLoader())
+          .type(HikariDataSource.class)
+          .url(replica.getUrl())
+          .username(replica.getUsername() != null ? replica.getUsername() : properties.determineUsername())
+          .password(replica.getPassword() != null ? replica.getPassword() : properties.determinePassword())
+          .build();
+      // Same pool settings as the primary, under a name of its own for the pool metrics
+      binder.bind(HIKARI_PREFIX, Bindable.ofInstance(replicaDataSource));
+      replicaDataSource.setPoolName("replica-" + replicas.size());
+      replicas.add(replicaDataSource);
+    }
+
+    return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getHealthCheckInterval(),
+        replicaProperties.getHealthCheckTimeout(), replicaProperties.getFailureThreshold());
+  }
+
+  // Defers fetching the connection to the first statement, once the transaction is marked read-only
+  @Bean
+  @Primary
+  public LazyConnectionDataSourceProxy dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+
+  @Bean
+  public ReadYourWritesFilter readYourWritesFilter(ReplicaDataSourceProperties replicaProperties) {
+    return new ReadYourWritesFilter(replicaProperties.getReadYourWritesWindow());
+  }
+}
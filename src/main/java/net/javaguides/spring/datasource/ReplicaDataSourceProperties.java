@@ -0,0 +1,45 @@
+package net.javaguides.spring.datasource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.datasource")
+public class ReplicaDataSourceProperties {
+  /**
+   * Read replicas of spring.datasource. Read-only transactions go to them, everything else to the primary.
+   */
+  private List<Replica> replicas = new ArrayList<>();
+  /**
+   * How long a client's reads stay on the primary after it sent a write.
+   */
+  private Duration readYourWritesWindow = Duration.ofSeconds(5);
+  private Duration healthCheckInterval = Duration.ofSeconds(5);
+  private Duration healthCheckTimeout = Duration.ofSeconds(1);
+  /**
+   * Failed connection attempts in a row after which a replica is left out until a health check passes. A replica
+   * pool that is only out of free connections does not count as failing.
+   */
+  private int failureThreshold = 3;
+
+  @Getter
+  @Setter
+  public static class Replica {
+    private String url;
+    /**
+     * Defaults to spring.datasource.username.
+     */
+    private String username;
+    /**
+     * Defaults to spring.datasource.password.
+     */
+    private String password;
+  }
+}
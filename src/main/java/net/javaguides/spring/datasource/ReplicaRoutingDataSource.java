@@ -0,0 +1,200 @@
+package net.javaguides.spring.datasource;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections everywhere else. Replicas are
+ * taken round-robin, skipping those that failed their last health check or several connection attempts in a row; with
+ * no healthy replica reads fall back to the primary.
+ * <p>
+ * The routing decision is made when the connection is fetched, so Spring's transaction managers need this behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: they fetch the connection before they
+ * mark the transaction read-only.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+  private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final int healthCheckTimeoutSeconds;
+  private final int failureThreshold;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService healthChecker;
+
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval,
+      Duration healthCheckTimeout, int failureThreshold) {
+    this.primary = primary;
+    this.replicas = replicas.stream().map(Replica::new).collect(Collectors.toList());
+    // Connection.isValid takes whole seconds, zero would mean no timeout at all
+    this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "replica-health-check");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = healthCheckInterval.toMillis();
+    healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends the current thread's reads to the primary until {@link #unpinPrimary()}, so a client sees its own writes
+   * before they reach the replicas.
+   */
+  public static void pinPrimary() {
+    PRIMARY_PINNED.set(Boolean.TRUE);
+  }
+
+  public static void unpinPrimary() {
+    PRIMARY_PINNED.remove();
+  }
+
+  /**
+   * Runs {@code action} with its reads on the primary, leaving the thread pinned afterwards only if it was before.
+   */
+  public static <T> T onPrimary(Supplier<T> action) {
+    boolean pinned = PRIMARY_PINNED.get() != null;
+    pinPrimary();
+    try {
+      return action.get();
+    } finally {
+      if (!pinned) {
+        unpinPrimary();
+      }
+    }
+  }
+
+  public static void onPrimary(Runnable action) {
+    onPrimary(() -> {
+      action.run();
+      return null;
+    });
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getConnection(DataSource::getConnection);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return getConnection(dataSource -> dataSource.getConnection(username, password));
+  }
+
+  private Connection getConnection(ConnectionSource source) throws SQLException {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_PINNED.get() != null) {
+      return source.connect(primary);
+    }
+
+    int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      int index = (start + i) % replicas.size();
+      Replica replica = replicas.get(index);
+      if (!replica.healthy) {
+        continue;
+      }
+      try {
+        Connection connection = source.connect(replica.dataSource);
+        if (replica.failures.get() != 0) {
+          replica.failures.set(0);
+        }
+        return connection;
+      } catch (SQLException e) {
+        if (isPoolExhausted(e)) {
+          // Busy, not down: this read goes elsewhere, the next ones try it again
+          log.debug("Replica {} has no free connection, reading elsewhere", index);
+        } else if (replica.failures.incrementAndGet() >= failureThreshold) {
+          // Left out until the next health check finds it back up
+          log.warn("Replica {} is unavailable, reading elsewhere", index, e);
+          replica.healthy = false;
+        } else {
+          log.warn("Could not connect to replica {}, reading elsewhere", index, e);
+        }
+      }
+    }
+    return source.connect(primary);
+  }
+
+  /**
+   * Whether the pool timed out waiting for a free connection without having failed to open one, which Hikari reports
+   * with the last connection failure as the cause.
+   */
+  private static boolean isPoolExhausted(SQLException e) {
+    return e instanceof SQLTransientConnectionException && e.getCause() == null;
+  }
+
+  void checkReplicas() {
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get(i);
+      boolean healthy;
+      try (Connection connection = replica.dataSource.getConnection()) {
+        healthy = connection.isValid(healthCheckTimeoutSeconds);
+      } catch (SQLException e) {
+        if (isPoolExhausted(e)) {
+          // Every connection is in use, which says nothing either way
+          continue;
+        }
+        healthy = false;
+      }
+      if (healthy != replica.healthy) {
+        log.info("Replica {} is {}", i, healthy ? "healthy again" : "unhealthy");
+      }
+      if (healthy) {
+        replica.failures.set(0);
+      }
+      replica.healthy = healthy;
+    }
+  }
+
+  @Override
+  public void close() {
+    healthChecker.shutdownNow();
+    close(primary);
+    replicas.forEach(replica -> close(replica.dataSource));
+  }
+
+  private static void close(DataSource dataSource) {
+    if (dataSource instanceof Closeable) {
+      try {
+        ((Closeable) dataSource).close();
+      } catch (Exception e) {
+        log.warn("Could not close datasource", e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ConnectionSource {
+    Connection connect(DataSource dataSource) throws SQLException;
+  }
+
+  private static class Replica {
+    private final DataSource dataSource;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package net.javaguides.spring.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class EmployeeAlreadyExistsException extends RuntimeException {
+
+  public EmployeeAlreadyExistsException(String message) {
+    super(message);
+  }
+
+  public EmployeeAlreadyExistsException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
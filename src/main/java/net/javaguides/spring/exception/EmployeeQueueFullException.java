@@ -0,0 +1,12 @@
+package net.javaguides.spring.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class EmployeeQueueFullException extends RuntimeException {
+
+  public EmployeeQueueFullException(String message) {
+    super(message);
+  }
+}
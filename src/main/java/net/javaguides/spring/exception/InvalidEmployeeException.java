@@ -0,0 +1,12 @@
+package net.javaguides.spring.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidEmployeeException extends RuntimeException {
+
+  public InvalidEmployeeException(String message) {
+    super(message);
+  }
+}
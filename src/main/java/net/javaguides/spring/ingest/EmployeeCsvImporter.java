@@ -0,0 +1,325 @@
+package net.javaguides.spring.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.spring.datasource.ReplicaRoutingDataSource;
+import net.javaguides.spring.exception.TooManyRequestsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Imports employees from a CSV file with a {@code firstName,lastName,email} header, in any column order. Rows are read
+ * one at a time and saved in chunks, one transaction each. Invalid rows, emails repeated within a chunk and emails
+ * that already exist are rejected one by one, without failing the rest of their chunk.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class EmployeeCsvImporter implements DisposableBean {
+
+  private static final ObjectReader CSV_READER = new CsvMapper()
+      .enable(CsvParser.Feature.WRAP_AS_ARRAY)
+      .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+      .readerFor(String[].class);
+  private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+  private final EmployeeService employeeService;
+  private final int chunkSize;
+  private final int maxReportedRejections;
+  private final ThreadPoolExecutor executor;
+  private final Cache<String, Progress> jobs;
+
+  public EmployeeCsvImporter(EmployeeService employeeService, EmployeeImportProperties properties) {
+    this.employeeService = employeeService;
+    this.chunkSize = properties.getChunkSize();
+    this.maxReportedRejections = properties.getMaxReportedRejections();
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(properties.getMaxConcurrent(), properties.getMaxConcurrent(), 1,
+        TimeUnit.MINUTES, new SynchronousQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "employee-import-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    this.jobs = Caffeine.newBuilder().expireAfterWrite(properties.getJobRetention()).build();
+  }
+
+  /**
+   * Starts importing {@code file} in the background and returns its job, or throws
+   * {@link TooManyRequestsException} when the maximum number of imports is already running.
+   */
+  public EmployeeImportJob submit(MultipartFile file) throws IOException {
+    // The servlet container has already written the upload to disk, this moves it where the import can outlive the
+    // request. The file is never held in memory.
+    Path csv = Files.createTempFile("employee-import-", ".csv");
+    try {
+      file.transferTo(csv);
+    } catch (IOException | RuntimeException e) {
+      delete(csv);
+      throw e;
+    }
+
+    Progress progress = new Progress();
+    jobs.put(progress.id, progress);
+    try {
+      executor.execute(() -> {
+        try (InputStream input = Files.newInputStream(csv)) {
+          run(progress, input);
+        } catch (IOException e) {
+          progress.fail(e.getMessage());
+        } finally {
+          delete(csv);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      jobs.invalidate(progress.id);
+      delete(csv);
+      throw new TooManyRequestsException("Too many employee imports running, retry later");
+    }
+    return progress.snapshot();
+  }
+
+  /**
+   * Imports {@code csv} on the calling thread and returns the finished job.
+   */
+  public EmployeeImportJob importEmployees(InputStream csv) {
+    Progress progress = new Progress();
+    jobs.put(progress.id, progress);
+    run(progress, csv);
+    return progress.snapshot();
+  }
+
+  public Optional<EmployeeImportJob> getJob(String id) {
+    return Optional.ofNullable(jobs.getIfPresent(id)).map(Progress::snapshot);
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    // Running imports stop after their current chunk, which is committed before the database goes away
+    executor.shutdownNow();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  private void run(Progress progress, InputStream csv) {
+    // Duplicate checks must see the chunks committed just before, which a lagging replica may not have yet
+    ReplicaRoutingDataSource.onPrimary(() -> read(progress, csv));
+    // Written again so the finished job is retained from now on
+    jobs.put(progress.id, progress);
+  }
+
+  private void read(Progress progress, InputStream csv) {
+    try (MappingIterator<String[]> rows = CSV_READER.readValues(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+      if (!rows.hasNextValue()) {
+        progress.fail("The CSV file is empty");
+        return;
+      }
+      Columns columns = Columns.of(rows.nextValue());
+      if (columns == null) {
+        progress.fail("The CSV header must name the firstName, lastName and email columns");
+        return;
+      }
+
+      List<Row> chunk = new ArrayList<>(chunkSize);
+      while (rows.hasNextValue()) {
+        String[] values = rows.nextValue();
+        long number = progress.rowsRead.incrementAndGet();
+        String rejection = columns.validate(values);
+        if (rejection != null) {
+          progress.reject(number, rejection);
+        } else {
+          chunk.add(new Row(number, columns.employee(values)));
+        }
+
+        if (chunk.size() == chunkSize) {
+          save(progress, chunk);
+          chunk.clear();
+          jobs.put(progress.id, progress);
+          if (Thread.currentThread().isInterrupted()) {
+            progress.fail("Import interrupted by shutdown after row " + number);
+            return;
+          }
+        }
+      }
+      save(progress, chunk);
+      progress.complete();
+    } catch (IOException | UncheckedIOException | RuntimeJsonMappingException e) {
+      progress.fail("Unreadable CSV after row " + progress.rowsRead.get() + ": " + e.getMessage());
+    } catch (RuntimeException e) {
+      // A failed duplicate check or anything else unexpected ends the job instead of leaving it running for good
+      log.warn("Import {} failed after row {}", progress.id, progress.rowsRead.get(), e);
+      progress.fail("Import failed after row " + progress.rowsRead.get() + ": " + e.getMessage());
+    }
+  }
+
+  private void save(Progress progress, List<Row> chunk) {
+    Map<String, Row> rowsByEmail = new LinkedHashMap<>();
+    for (Row row : chunk) {
+      if (rowsByEmail.putIfAbsent(row.employee.getEmail(), row) != null) {
+        progress.reject(row.number, "Email repeated in the file: " + row.employee.getEmail());
+      }
+    }
+    for (String email : employeeService.getExistingEmails(rowsByEmail.keySet())) {
+      Row row = rowsByEmail.remove(email);
+      // A case-insensitive collation can report an email in another case, the insert then fails the chunk
+      if (row != null) {
+        progress.reject(row.number, "Employee already exist with given email: " + email);
+      }
+    }
+    if (rowsByEmail.isEmpty()) {
+      return;
+    }
+
+    try {
+      employeeService.saveEmployees(rowsByEmail.values().stream().map(row -> row.employee)
+          .collect(Collectors.toList()));
+      progress.rowsImported.addAndGet(rowsByEmail.size());
+    } catch (RuntimeException e) {
+      // Only this chunk is rolled back, the import carries on with the next one
+      log.warn("Failed to import {} employees of import {}", rowsByEmail.size(), progress.id, e);
+      rowsByEmail.values().forEach(row -> progress.reject(row.number, e.getMessage()));
+    }
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete {}", file, e);
+    }
+  }
+
+  private static class Columns {
+    private final int count;
+    private final int firstName;
+    private final int lastName;
+    private final int email;
+
+    private Columns(int count, int firstName, int lastName, int email) {
+      this.count = count;
+      this.firstName = firstName;
+      this.lastName = lastName;
+      this.email = email;
+    }
+
+    static Columns of(String[] header) {
+      int firstName = -1;
+      int lastName = -1;
+      int email = -1;
+      for (int i = 0; i < header.length; i++) {
+        String name = header[i].replace(BYTE_ORDER_MARK, "").trim();
+        if (name.equalsIgnoreCase("firstName")) {
+          firstName = i;
+        } else if (name.equalsIgnoreCase("lastName")) {
+          lastName = i;
+        } else if (name.equalsIgnoreCase("email")) {
+          email = i;
+        }
+      }
+      return firstName < 0 || lastName < 0 || email < 0 ? null
+          : new Columns(header.length, firstName, lastName, email);
+    }
+
+    String validate(String[] values) {
+      if (values.length != count) {
+        return "Expected " + count + " columns, found " + values.length;
+      }
+      return EmployeeFields.validate(values[firstName], values[lastName], values[email]);
+    }
+
+    Employee employee(String[] values) {
+      return Employee.builder()
+          .firstName(values[firstName].trim())
+          .lastName(values[lastName].trim())
+          .email(values[email].trim())
+          .build();
+    }
+  }
+
+  private static class Row {
+    private final long number;
+    private final Employee employee;
+
+    Row(long number, Employee employee) {
+      this.number = number;
+      this.employee = employee;
+    }
+  }
+
+  private class Progress {
+    private final String id = UUID.randomUUID().toString();
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<EmployeeImportJob.Rejection> rejections = Collections.synchronizedList(new ArrayList<>());
+    private volatile EmployeeImportJob.Status status = EmployeeImportJob.Status.RUNNING;
+    private volatile String error;
+    private volatile long endNanos;
+
+    void reject(long row, String reason) {
+      rowsRejected.incrementAndGet();
+      if (rejections.size() < maxReportedRejections) {
+        rejections.add(new EmployeeImportJob.Rejection(row, reason));
+      }
+    }
+
+    void complete() {
+      endNanos = System.nanoTime();
+      status = EmployeeImportJob.Status.COMPLETED;
+    }
+
+    void fail(String error) {
+      this.error = error;
+      endNanos = System.nanoTime();
+      status = EmployeeImportJob.Status.FAILED;
+    }
+
+    EmployeeImportJob snapshot() {
+      EmployeeImportJob.Status currentStatus = status;
+      long elapsedNanos = (currentStatus == EmployeeImportJob.Status.RUNNING ? System.nanoTime() : endNanos)
+          - startNanos;
+      long rowsPerSecond = elapsedNanos > 0 ? rowsRead.get() * 1_000_000_000L / elapsedNanos : 0;
+      List<EmployeeImportJob.Rejection> reportedRejections;
+      synchronized (rejections) {
+        reportedRejections = new ArrayList<>(rejections);
+      }
+      return new EmployeeImportJob(id, currentStatus, rowsRead.get(), rowsImported.get(), rowsRejected.get(),
+          rowsPerSecond, reportedRejections, error);
+    }
+  }
+}
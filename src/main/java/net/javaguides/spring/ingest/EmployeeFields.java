@@ -0,0 +1,44 @@
+package net.javaguides.spring.ingest;
+
+/**
+ * Checks shared by the creates that are written after the request has been answered, so a row the database would
+ * refuse is turned away up front instead of failing a whole batch.
+ */
+final class EmployeeFields {
+
+  static final int MAX_LENGTH = 255;
+
+  private EmployeeFields() {
+  }
+
+  /**
+   * Returns why the fields cannot be saved, or {@code null} when they can.
+   */
+  static String validate(String firstName, String lastName, String email) {
+    String rejection = validate("firstName", firstName);
+    if (rejection == null) {
+      rejection = validate("lastName", lastName);
+    }
+    if (rejection == null) {
+      rejection = validate("email", email);
+    }
+    if (rejection == null) {
+      String value = email.trim();
+      int at = value.indexOf('@');
+      if (at <= 0 || at != value.lastIndexOf('@') || at == value.length() - 1) {
+        rejection = "email is not valid: " + value;
+      }
+    }
+    return rejection;
+  }
+
+  private static String validate(String field, String value) {
+    if (value == null || value.isBlank()) {
+      return field + " is missing";
+    }
+    if (value.trim().length() > MAX_LENGTH) {
+      return field + " is longer than " + MAX_LENGTH + " characters";
+    }
+    return null;
+  }
+}
@@ -0,0 +1,27 @@
+package net.javaguides.spring.ingest;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.import")
+public class EmployeeImportProperties {
+  /**
+   * Rows committed per transaction. A failed chunk is rolled back on its own, the chunks before it stay imported.
+   */
+  private int chunkSize = 1000;
+  /**
+   * Imports running at once. Further imports are refused with 429 until one finishes.
+   */
+  private int maxConcurrent = 2;
+  private int maxReportedRejections = 100;
+  /**
+   * How long the progress of an import stays available after its last update.
+   */
+  private Duration jobRetention = Duration.ofHours(1);
+}
@@ -0,0 +1,34 @@
+package net.javaguides.spring.ingest;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.ingest")
+public class EmployeeIngestProperties {
+  /**
+   * Creates waiting to be written. Asynchronous creates are refused with 429 while the queue is full.
+   */
+  private int queueCapacity = 10000;
+  /**
+   * Most creates written in one transaction.
+   */
+  private int batchSize = 500;
+  /**
+   * How long the writer waits for a batch to fill up before writing what it has.
+   */
+  private Duration linger = Duration.ofMillis(20);
+  /**
+   * How long the outcome of a create stays available on the job endpoint.
+   */
+  private Duration jobRetention = Duration.ofMinutes(10);
+  /**
+   * Most outcomes kept at once. Past it outcomes are evicted before their retention is up.
+   */
+  private long maxJobs = 100000;
+}
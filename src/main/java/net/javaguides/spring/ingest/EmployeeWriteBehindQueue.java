@@ -0,0 +1,215 @@
+package net.javaguides.spring.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.exception.EmployeeQueueFullException;
+import net.javaguides.spring.exception.InvalidEmployeeException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Bounded queue of employee creates, written behind the request by a single thread. The writer takes whatever is
+ * queued, up to the batch size, waiting at most the linger time for more, and saves it in one
+ * {@link EmployeeService#saveEmployees(List)} transaction. The outcome of every create is kept by job id for the
+ * retention time.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class EmployeeWriteBehindQueue implements SmartLifecycle, MeterBinder {
+
+  // Started before and stopped after the web server, so nothing is queued once the writer has drained the queue
+  private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2048;
+  private static final long IDLE_POLL_MILLIS = 100;
+
+  private final EmployeeService employeeService;
+  private final int batchSize;
+  private final long lingerNanos;
+  private final BlockingQueue<QueuedCreate> queue;
+  private final Cache<String, EmployeeCreateJob> jobs;
+  private volatile boolean running;
+  private Thread writer;
+
+  public EmployeeWriteBehindQueue(EmployeeService employeeService, EmployeeIngestProperties properties) {
+    this.employeeService = employeeService;
+    this.batchSize = properties.getBatchSize();
+    this.lingerNanos = properties.getLinger().toNanos();
+    this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    this.jobs = Caffeine.newBuilder()
+        .maximumSize(properties.getMaxJobs())
+        .expireAfterWrite(properties.getJobRetention())
+        .build();
+  }
+
+  /**
+   * Queues {@code employee} for creation and returns its job. Throws {@link InvalidEmployeeException} when a field is
+   * missing or malformed, and {@link EmployeeQueueFullException} when the queue has no room left.
+   */
+  public EmployeeCreateJob submit(Employee employee) {
+    // Checked before it is queued, so the client hears about it now and the row never fails a batch
+    String rejection = EmployeeFields.validate(employee.getFirstName(), employee.getLastName(), employee.getEmail());
+    if (rejection != null) {
+      throw new InvalidEmployeeException(rejection);
+    }
+    if (!running) {
+      throw new EmployeeQueueFullException("Employee creates are not accepted while shutting down");
+    }
+
+    EmployeeCreateJob job = new EmployeeCreateJob(UUID.randomUUID().toString(), EmployeeCreateJob.Status.QUEUED,
+        null, null);
+    // Recorded before it is queued, so the writer's outcome can never be overwritten by the queued status
+    jobs.put(job.getId(), job);
+    if (!queue.offer(new QueuedCreate(job.getId(), employee))) {
+      jobs.invalidate(job.getId());
+      throw new EmployeeQueueFullException("Too many employee creates queued, retry later");
+    }
+    return job;
+  }
+
+  public Optional<EmployeeCreateJob> getJob(String id) {
+    return Optional.ofNullable(jobs.getIfPresent(id));
+  }
+
+  public int queued() {
+    return queue.size();
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    writer = new Thread(this::drain, "employee-write-behind");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("employee.ingest.queued", queue, BlockingQueue::size)
+        .description("Employee creates waiting to be written")
+        .register(registry);
+  }
+
+  private void drain() {
+    List<QueuedCreate> batch = new ArrayList<>(batchSize);
+    // Keeps going after stop until everything accepted so far is written
+    while (running || !queue.isEmpty()) {
+      try {
+        QueuedCreate first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+          if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+            continue;
+          }
+          QueuedCreate next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("Employee write-behind interrupted with {} creates queued", queue.size());
+        return;
+      }
+
+      save(batch);
+      batch.clear();
+    }
+  }
+
+  private void save(List<QueuedCreate> batch) {
+    List<Employee> employees = batch.stream().map(create -> create.employee).collect(Collectors.toList());
+    try {
+      List<Employee> savedEmployees = employeeService.saveEmployees(employees);
+      for (int i = 0; i < batch.size(); i++) {
+        jobs.put(batch.get(i).jobId, new EmployeeCreateJob(batch.get(i).jobId, EmployeeCreateJob.Status.CREATED,
+            savedEmployees.get(i).getId(), null));
+      }
+    } catch (EmployeeAlreadyExistsException | DataIntegrityViolationException e) {
+      if (batch.size() == 1) {
+        if (e instanceof EmployeeAlreadyExistsException) {
+          fail(batch.get(0), e.getMessage());
+        } else {
+          log.warn("Database refused queued employee create {}", batch.get(0).jobId, e);
+          fail(batch.get(0), writeFailure(1));
+        }
+        return;
+      }
+      // A duplicate email or any other row the database refuses rolls back the whole batch, halving it finds the
+      // offending creates in a few transactions
+      int middle = batch.size() / 2;
+      save(batch.subList(0, middle));
+      save(batch.subList(middle, batch.size()));
+    } catch (RuntimeException e) {
+      log.warn("Failed to write {} queued employee creates", batch.size(), e);
+      String error = writeFailure(batch.size());
+      batch.forEach(create -> fail(create, error));
+    }
+  }
+
+  // Jobs are served to any client that has the id, the exception may name tables, constraints or values of other rows
+  private static String writeFailure(int rejected) {
+    return "Could not write " + rejected + (rejected == 1 ? " queued employee create" : " queued employee creates")
+        + ", the cause is in the server log";
+  }
+
+  private void fail(QueuedCreate create, String error) {
+    jobs.put(create.jobId, new EmployeeCreateJob(create.jobId, EmployeeCreateJob.Status.FAILED, null, error));
+  }
+
+  private static class QueuedCreate {
+    private final String jobId;
+    private final Employee employee;
+
+    QueuedCreate(String jobId, Employee employee) {
+      this.jobId = jobId;
+      this.employee = employee;
+    }
+  }
+}
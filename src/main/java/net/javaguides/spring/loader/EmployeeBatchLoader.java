@@ -0,0 +1,154 @@
+package net.javaguides.spring.loader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import net.javaguides.spring.model.Employee;
+
+/**
+ * Merges concurrent lookups of employees by id into one query, like a DataLoader. The first lookup of a batch waits
+ * up to the window for others to join, or until the batch is full, then queries all of its ids on its own thread and
+ * hands every waiting lookup its result. An id looked up twice in the same batch is queried once. There is no loader
+ * thread: a query runs on the thread that opened its batch, with that thread's datasource routing.
+ */
+public class EmployeeBatchLoader {
+
+  private final Function<Collection<Long>, List<Employee>> query;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final Object lock = new Object();
+  // The batch new lookups join, null until the next lookup opens one. Guarded by lock.
+  private Batch open;
+
+  /**
+   * {@code query} returns the employees with the given ids, in any order, leaving out ids that do not exist.
+   */
+  public EmployeeBatchLoader(EmployeeBatchLoaderProperties properties,
+      Function<Collection<Long>, List<Employee>> query) {
+    this.query = query;
+    this.windowNanos = properties.getWindow().toNanos();
+    this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+  }
+
+  public Optional<Employee> load(long id) {
+    return loadAll(List.of(id)).get(id);
+  }
+
+  /**
+   * Returns an entry for each of {@code ids}, empty for ids that do not exist. More ids than the maximum batch size
+   * are split across batches.
+   */
+  public Map<Long, Optional<Employee>> loadAll(Collection<Long> ids) {
+    Collection<Long> distinctIds = new LinkedHashSet<>(ids);
+    if (windowNanos <= 0) {
+      Map<Long, Optional<Employee>> results = new LinkedHashMap<>();
+      for (List<Long> chunk : chunks(distinctIds)) {
+        results.putAll(toResults(chunk, query.apply(chunk)));
+      }
+      return results;
+    }
+
+    Map<Long, CompletableFuture<Optional<Employee>>> futures = new LinkedHashMap<>();
+    List<Batch> opened = new ArrayList<>(1);
+    synchronized (lock) {
+      for (Long id : distinctIds) {
+        if (open == null) {
+          open = new Batch();
+          opened.add(open);
+        }
+        futures.put(id, open.futures.computeIfAbsent(id, batchId -> new CompletableFuture<>()));
+        if (open.futures.size() >= maxBatchSize) {
+          open.full.countDown();
+          open = null;
+        }
+      }
+    }
+    // Batches are always run by the thread that opened them, so every future gets completed
+    for (Batch batch : opened) {
+      batch.awaitAndRun();
+    }
+
+    Map<Long, Optional<Employee>> results = new LinkedHashMap<>();
+    futures.forEach((id, future) -> results.put(id, join(future)));
+    return results;
+  }
+
+  private List<List<Long>> chunks(Collection<Long> ids) {
+    List<List<Long>> chunks = new ArrayList<>();
+    List<Long> chunk = new ArrayList<>(Math.min(ids.size(), maxBatchSize));
+    for (Long id : ids) {
+      chunk.add(id);
+      if (chunk.size() == maxBatchSize) {
+        chunks.add(chunk);
+        chunk = new ArrayList<>(maxBatchSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
+  private static Map<Long, Optional<Employee>> toResults(Collection<Long> ids, List<Employee> employees) {
+    Map<Long, Employee> employeesById = new HashMap<>();
+    employees.forEach(employee -> employeesById.put(employee.getId(), employee));
+    Map<Long, Optional<Employee>> results = new LinkedHashMap<>();
+    ids.forEach(id -> results.put(id, Optional.ofNullable(employeesById.get(id))));
+    return results;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private class Batch {
+    // Only added to while the batch is open, read once it is closed
+    private final Map<Long, CompletableFuture<Optional<Employee>>> futures = new LinkedHashMap<>();
+    private final CountDownLatch full = new CountDownLatch(1);
+
+    void awaitAndRun() {
+      try {
+        full.await(windowNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        // The lookups that joined are still waiting, so the batch is sent right away
+        Thread.currentThread().interrupt();
+      }
+      List<Long> ids;
+      synchronized (lock) {
+        if (open == this) {
+          open = null;
+        }
+        ids = new ArrayList<>(futures.keySet());
+      }
+
+      try {
+        Map<Long, Optional<Employee>> results = toResults(ids, query.apply(ids));
+        futures.forEach((id, future) -> future.complete(results.get(id)));
+      } catch (RuntimeException | Error e) {
+        // Every lookup of the batch fails with the query
+        futures.values().forEach(future -> future.completeExceptionally(e));
+      }
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package net.javaguides.spring.loader;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.batch-loader")
+public class EmployeeBatchLoaderProperties {
+  /**
+   * How long the first lookup of a batch waits for others to join it. Zero turns coalescing off, every lookup then
+   * runs its own query.
+   */
+  private Duration window = Duration.ofMillis(1);
+  /**
+   * Ids per query. A full batch is sent without waiting for the rest of the window.
+   */
+  private int maxBatchSize = 100;
+}
@@ -0,0 +1,28 @@
+package net.javaguides.spring.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service method timers and repository row counts. Route timers, repository invocation timers, Hibernate statistics
+ * and connection pool gauges come from the actuator auto-configuration.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "employee.metrics", name = "enabled", matchIfMissing = true)
+public class MetricsConfiguration {
+
+  @Bean
+  public TimedAspect timedAspect(MeterRegistry registry) {
+    return new TimedAspect(registry);
+  }
+
+  @Bean
+  public static RepositoryRowsPostProcessor repositoryRowsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+    return new RepositoryRowsPostProcessor(registry);
+  }
+}
@@ -0,0 +1,77 @@
+package net.javaguides.spring.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Slice;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records how many rows each repository method returned as {@code employee.repository.rows}. Streams and reactive
+ * results are not counted, their rows are only read after the method returns.
+ */
+class RepositoryRowsInterceptor implements MethodInterceptor {
+
+  static final String ROWS_SUMMARY = "employee.repository.rows";
+
+  private final ObjectProvider<MeterRegistry> registry;
+  private final String repository;
+  // One lookup per call instead of building a meter id and tags on the hot path
+  private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+  RepositoryRowsInterceptor(ObjectProvider<MeterRegistry> registry, Class<?> repositoryInterface) {
+    this.registry = registry;
+    this.repository = repositoryInterface.getSimpleName();
+  }
+
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Object result = invocation.proceed();
+    long rows = rows(invocation.getMethod(), result);
+    if (rows >= 0) {
+      summaries.computeIfAbsent(invocation.getMethod(), this::summary).record(rows);
+    }
+    return result;
+  }
+
+  private DistributionSummary summary(Method method) {
+    return DistributionSummary.builder(ROWS_SUMMARY)
+        .tag("repository", repository)
+        .tag("method", method.getName())
+        .register(registry.getObject());
+  }
+
+  // Returns -1 for results that are not rows: void, counts, flags, streams and other lazily read iterables
+  private static long rows(Method method, Object result) {
+    if (method.getReturnType() == void.class) {
+      return -1;
+    }
+    if (result == null) {
+      return 0;
+    }
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof Slice) {
+      return ((Slice<?>) result).getNumberOfElements();
+    }
+    if (result instanceof Optional) {
+      return ((Optional<?>) result).isPresent() ? 1 : 0;
+    }
+    if (result instanceof Number || result instanceof Boolean || result instanceof Map || result instanceof Iterable
+        || result instanceof BaseStream || result instanceof Publisher) {
+      return -1;
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,29 @@
+package net.javaguides.spring.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adds {@link RepositoryRowsInterceptor} to every Spring Data repository proxy.
+ */
+class RepositoryRowsPostProcessor implements BeanPostProcessor {
+
+  private final ObjectProvider<MeterRegistry> registry;
+
+  RepositoryRowsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof RepositoryFactoryBeanSupport) {
+      ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory -> factory
+          .addRepositoryProxyPostProcessor((proxyFactory, information) -> proxyFactory
+              .addAdvice(new RepositoryRowsInterceptor(registry, information.getRepositoryInterface()))));
+    }
+    return bean;
+  }
+}
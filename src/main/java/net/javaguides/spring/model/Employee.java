@@ -1,11 +1,18 @@
 package net.javaguides.spring.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,10 +27,22 @@ import lombok.Setter;
 @Builder
 
 @Entity
-@Table(name = "employees")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
+@Table(name = "employees", indexes = {
+    @Index(name = Employee.EMAIL_INDEX, columnList = "email", unique = true),
+    @Index(name = Employee.NAME_INDEX, columnList = "last_name, first_name")
+})
 public class Employee {
+  public static final String EMAIL_INDEX = "uk_employees_email";
+  public static final String NAME_INDEX = "idx_employees_last_first";
+  public static final String CACHE_REGION = "employees";
+  public static final String QUERY_CACHE_REGION = "employee-queries";
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // Pooled ids keep Hibernate's JDBC insert batching enabled, IDENTITY would disable it
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+  @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
   private long id;
 
   @Column(name = "first_name", nullable = false)
@@ -34,4 +53,9 @@ public class Employee {
 
   @Column(nullable = false)
   private String email;
+
+  // Bumped by every update, it backs the ETag of the employee and the If-Match check of PUT
+  @Version
+  @Column(nullable = false)
+  private long version;
 }
@@ -0,0 +1,31 @@
+package net.javaguides.spring.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A committed write to an employee, as sent on {@code GET /api/employees/changes}.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeChange {
+
+  public enum Type {
+    CREATED, UPDATED, PATCHED, DELETED
+  }
+
+  /**
+   * Position in this node's change feed, one higher than the change before.
+   */
+  private long sequence;
+  private Type type;
+  private long employeeId;
+
+  /**
+   * The stored employee after the write, null for {@link Type#DELETED}. A {@link Type#PATCHED} change carries the
+   * whole row, not just the patched fields.
+   */
+  private Employee employee;
+}
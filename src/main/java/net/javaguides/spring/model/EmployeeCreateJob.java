@@ -0,0 +1,31 @@
+package net.javaguides.spring.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of an employee create accepted with {@code POST /api/employees?async=true}.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeCreateJob {
+
+  public enum Status {
+    QUEUED, CREATED, FAILED
+  }
+
+  private String id;
+  private Status status;
+
+  /**
+   * Id of the created employee, once {@link Status#CREATED}.
+   */
+  private Long employeeId;
+
+  /**
+   * Why the create failed, once {@link Status#FAILED}.
+   */
+  private String error;
+}
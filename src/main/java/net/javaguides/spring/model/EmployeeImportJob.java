@@ -0,0 +1,46 @@
+package net.javaguides.spring.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a CSV import started with {@code POST /api/employees/imports}. Rows are numbered from 1, not counting
+ * the header.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeImportJob {
+
+  public enum Status {
+    RUNNING, COMPLETED, FAILED
+  }
+
+  private String id;
+  private Status status;
+  private long rowsRead;
+  private long rowsImported;
+  private long rowsRejected;
+  private long rowsPerSecond;
+
+  /**
+   * The first rejected rows and why, up to {@code employee.import.max-reported-rejections}.
+   */
+  private List<Rejection> rejections;
+
+  /**
+   * Why the import stopped, once {@link Status#FAILED}.
+   */
+  private String error;
+
+  @Getter
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Rejection {
+    private long row;
+    private String reason;
+  }
+}
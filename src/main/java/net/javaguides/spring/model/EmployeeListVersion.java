@@ -0,0 +1,20 @@
+package net.javaguides.spring.model;
+
+/**
+ * Aggregate of the employees table that changes whenever a row is inserted, updated or deleted, so it can stand in
+ * for the whole list in an ETag.
+ */
+public interface EmployeeListVersion {
+  long getCount();
+
+  long getVersionSum();
+
+  long getMaxId();
+
+  /**
+   * Sum over the rows of a hash of id and version. The other fields alone stay the same when, for example, one row is
+   * deleted and an id below the maximum is inserted, which the id blocks of the JPA nodes and the shards both do. A
+   * collision now needs the hashes of the changed rows to cancel out as well.
+   */
+  long getChecksum();
+}
@@ -0,0 +1,19 @@
+package net.javaguides.spring.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeePage {
+  private List<Employee> content;
+
+  /**
+   * Id to pass as {@code after} to fetch the next page, or {@code null} on the last page.
+   */
+  private Long nextCursor;
+}
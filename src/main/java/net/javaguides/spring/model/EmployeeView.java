@@ -0,0 +1,18 @@
+package net.javaguides.spring.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-only copy of an employee, selected column by column so Hibernate neither manages nor snapshots it. Serializes
+ * to the same JSON as {@link Employee}.
+ */
+@Getter
+@AllArgsConstructor
+public class EmployeeView {
+  private long id;
+  private String firstName;
+  private String lastName;
+  private String email;
+  private long version;
+}
@@ -0,0 +1,179 @@
+package net.javaguides.spring.protobuf;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+import com.google.protobuf.Message;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.search.EmployeeMatch;
+
+/**
+ * Reads and writes the employee API types as the messages of {@code employee.proto}. Protobuf strings cannot be
+ * null: missing names and emails are written as empty strings and empty strings are read back as null, so a
+ * protobuf PATCH leaves out fields the same way a JSON one does.
+ */
+public class EmployeeProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+  public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+  public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE);
+
+  private static final Set<Class<?>> WRITABLE_TYPES = Set.of(Employee.class, EmployeeView.class, EmployeePage.class);
+  private static final Set<Class<?>> WRITABLE_ELEMENT_TYPES = Set.of(Employee.class, EmployeeView.class,
+      EmployeeMatch.class);
+
+  public EmployeeProtobufHttpMessageConverter() {
+    super(APPLICATION_PROTOBUF);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return WRITABLE_TYPES.contains(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return clazz == Employee.class && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+    return (type == Employee.class || listElementType(type) == Employee.class) && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+    Class<?> elementType = listElementType(type);
+    return (supports(clazz) || elementType != null && WRITABLE_ELEMENT_TYPES.contains(elementType))
+        && canWrite(mediaType);
+  }
+
+  // Spring MVC asks for the media types by the raw class once canWrite accepted the generic type, and a raw List
+  // carries no element type to check
+  @Override
+  public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+    return supports(clazz) || List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes()
+        : Collections.emptyList();
+  }
+
+  @Override
+  public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+    if (type == Employee.class) {
+      return toEmployee(EmployeeProtos.Employee.parseFrom(inputMessage.getBody()));
+    }
+    return EmployeeProtos.EmployeeList.parseFrom(inputMessage.getBody()).getEmployeesList().stream()
+        .map(EmployeeProtobufHttpMessageConverter::toEmployee)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    return read(clazz, null, inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+    toMessage(object).writeTo(outputMessage.getBody());
+  }
+
+  public static EmployeeProtos.Employee toMessage(Employee employee) {
+    return EmployeeProtos.Employee.newBuilder()
+        .setId(employee.getId())
+        .setFirstName(nullToEmpty(employee.getFirstName()))
+        .setLastName(nullToEmpty(employee.getLastName()))
+        .setEmail(nullToEmpty(employee.getEmail()))
+        .setVersion(employee.getVersion())
+        .build();
+  }
+
+  public static EmployeeProtos.Employee toMessage(EmployeeView employee) {
+    return EmployeeProtos.Employee.newBuilder()
+        .setId(employee.getId())
+        .setFirstName(nullToEmpty(employee.getFirstName()))
+        .setLastName(nullToEmpty(employee.getLastName()))
+        .setEmail(nullToEmpty(employee.getEmail()))
+        .setVersion(employee.getVersion())
+        .build();
+  }
+
+  public static Employee toEmployee(EmployeeProtos.Employee message) {
+    return Employee.builder()
+        .id(message.getId())
+        .firstName(emptyToNull(message.getFirstName()))
+        .lastName(emptyToNull(message.getLastName()))
+        .email(emptyToNull(message.getEmail()))
+        .version(message.getVersion())
+        .build();
+  }
+
+  private static Message toMessage(Object object) {
+    if (object instanceof Employee) {
+      return toMessage((Employee) object);
+    }
+    if (object instanceof EmployeeView) {
+      return toMessage((EmployeeView) object);
+    }
+    if (object instanceof EmployeePage) {
+      EmployeePage page = (EmployeePage) object;
+      EmployeeProtos.EmployeePage.Builder message = EmployeeProtos.EmployeePage.newBuilder();
+      page.getContent().forEach(employee -> message.addContent(toMessage(employee)));
+      if (page.getNextCursor() != null) {
+        message.setNextCursor(page.getNextCursor());
+      }
+      return message.build();
+    }
+
+    List<?> list = (List<?>) object;
+    // An empty list encodes to no bytes whatever its message type
+    if (!list.isEmpty() && list.get(0) instanceof EmployeeMatch) {
+      EmployeeProtos.EmployeeMatchList.Builder message = EmployeeProtos.EmployeeMatchList.newBuilder();
+      list.forEach(match -> message.addMatches(toMessage((EmployeeMatch) match)));
+      return message.build();
+    }
+    EmployeeProtos.EmployeeList.Builder message = EmployeeProtos.EmployeeList.newBuilder();
+    list.forEach(employee -> message.addEmployees(employee instanceof Employee ? toMessage((Employee) employee)
+        : toMessage((EmployeeView) employee)));
+    return message.build();
+  }
+
+  private static EmployeeProtos.EmployeeMatch toMessage(EmployeeMatch match) {
+    return EmployeeProtos.EmployeeMatch.newBuilder()
+        .setId(match.getId())
+        .setFirstName(nullToEmpty(match.getFirstName()))
+        .setLastName(nullToEmpty(match.getLastName()))
+        .setEmail(nullToEmpty(match.getEmail()))
+        .setScore(match.getScore())
+        .build();
+  }
+
+  private static Class<?> listElementType(Type type) {
+    if (type == null) {
+      return null;
+    }
+    ResolvableType resolvableType = ResolvableType.forType(type);
+    if (!List.class.isAssignableFrom(resolvableType.toClass())) {
+      return null;
+    }
+    return resolvableType.asCollection().resolveGeneric(0);
+  }
+
+  private static String nullToEmpty(String value) {
+    return value != null ? value : "";
+  }
+
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+}
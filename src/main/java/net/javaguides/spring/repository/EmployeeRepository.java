@@ -1,23 +1,112 @@
 package net.javaguides.spring.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeeView;
 
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+// Declared queries run read-only like the inherited finders, so they can be served by a replica when called outside
+// a transaction. The deletes declare their own read-write transactions.
+@Transactional(readOnly = true)
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeRepositoryCustom {
 
+  @QueryHints({
+      @QueryHint(name = HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)
+  })
   Optional<Employee> findByEmail(String email);
 
+  // Query cached, so polling the list only scans the table again after employees changed
+  @QueryHints({
+      @QueryHint(name = HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)
+  })
+  @Query("select count(e) as count, coalesce(sum(e.version), 0) as versionSum, coalesce(max(e.id), 0) as maxId,"
+      + " coalesce(sum(mod(e.id * 40503 + e.version * 65599, 1000003)"
+      + " * mod(e.id * 40503 + e.version * 65599, 1000003)), 0) as checksum"
+      + " from Employee e")
+  EmployeeListVersion findListVersion();
+
+  // Unlike deleteById these do not load the employees first, and they report how many rows they removed
+  @Transactional
+  @Modifying
+  @Query("delete from Employee e where e.id = ?1")
+  int deleteDirectlyById(long id);
+
+  @Transactional
+  @Modifying
+  @Query("delete from Employee e where e.id in ?1")
+  int deleteDirectlyByIdIn(Collection<Long> ids);
+
+  // Locked, so a delete later in the same transaction removes exactly the ids returned
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select e.id from Employee e where e.id in ?1")
+  List<Long> findIdsForDelete(Collection<Long> ids);
+
+  @Query("select new net.javaguides.spring.model.EmployeeView(e.id, e.firstName, e.lastName, e.email, e.version)"
+      + " from Employee e")
+  List<EmployeeView> findAllViews();
+
+  @Query("select new net.javaguides.spring.model.EmployeeView(e.id, e.firstName, e.lastName, e.email, e.version)"
+      + " from Employee e where e.id = ?1")
+  Optional<EmployeeView> findViewById(long id);
+
+  @Query("select e.email from Employee e where e.email in ?1")
+  List<String> findExistingEmails(Collection<String> emails);
+
+  @Query("select e from Employee e where e.id > ?1 order by e.id")
+  List<Employee> findPageAfter(long id, Pageable pageable);
+
+  @Query("select e from Employee e where e.lastName like ?1 escape '!' order by e.lastName, e.firstName, e.id")
+  List<Employee> findByLastNamePrefix(String prefixPattern, Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      // A full export would otherwise churn every entry out of the second-level cache
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+  })
+  @Query("select e from Employee e")
+  Stream<Employee> streamAll();
+
+  @QueryHints({
+      @QueryHint(name = HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)
+  })
   @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
   Employee findByJPQL(String firstName, String lastName);
 
+  @QueryHints({
+      @QueryHint(name = HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)
+  })
   @Query("select e from Employee e where e.firstName = :first_name and e.lastName = :last_name")
   Employee findByJPQLNamedParams(@Param("first_name") String firstName, @Param("last_name") String lastName);
 
+  // The native finders are not query cached: Hibernate cannot tell which tables a native query reads, so it
+  // could not invalidate their results when employees change.
   @Query(value = "select * from employees e where e.first_name = ?1 and e.last_name = ?2", nativeQuery = true)
   Employee findByNativeSQL(String firstName, String lastName);
 
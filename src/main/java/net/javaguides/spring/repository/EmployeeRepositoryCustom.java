@@ -0,0 +1,26 @@
+package net.javaguides.spring.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import net.javaguides.spring.model.Employee;
+
+public interface EmployeeRepositoryCustom {
+
+  /**
+   * Overwrites the names and email of the employee with {@code employee}'s id in one UPDATE and bumps its version.
+   * When {@code expectedVersion} is not null only that version is updated. Returns the number of updated rows.
+   */
+  int update(Employee employee, Long expectedVersion);
+
+  /**
+   * Like {@link #update(Employee, Long)}, but only sets the fields of {@code changes} that are not null.
+   */
+  int patch(long id, Employee changes, Long expectedVersion);
+
+  /**
+   * Like {@code findAllById}, but takes the employees held by the second-level cache from there and reads only the
+   * others, in one IN query. Ids that do not exist are left out.
+   */
+  List<Employee> loadAllById(Collection<Long> ids);
+}
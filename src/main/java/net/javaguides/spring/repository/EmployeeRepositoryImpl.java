@@ -0,0 +1,82 @@
+package net.javaguides.spring.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.javaguides.spring.model.Employee;
+
+/**
+ * Updates written as a single UPDATE statement. Saving a detached employee would merge it, which reads the row
+ * before writing it. Lookups by many ids that check the second-level cache, which an IN query would skip.
+ */
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @Transactional
+  public int update(Employee employee, Long expectedVersion) {
+    return update(employee.getId(), employee, expectedVersion, false);
+  }
+
+  @Override
+  @Transactional
+  public int patch(long id, Employee changes, Long expectedVersion) {
+    return update(id, changes, expectedVersion, true);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<Employee> loadAllById(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    return entityManager.unwrap(Session.class)
+        .byMultipleIds(Employee.class)
+        // Without a cache mode the second-level cache is not looked at
+        .with(CacheMode.NORMAL)
+        .withBatchSize(ids.size())
+        .multiLoad(new ArrayList<>(ids))
+        .stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  private int update(long id, Employee values, Long expectedVersion, boolean skipNulls) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<Employee> update = criteriaBuilder.createCriteriaUpdate(Employee.class);
+    Root<Employee> employee = update.from(Employee.class);
+    set(update, employee, "firstName", values.getFirstName(), skipNulls);
+    set(update, employee, "lastName", values.getLastName(), skipNulls);
+    set(update, employee, "email", values.getEmail(), skipNulls);
+    update.set(employee.<Long>get("version"), criteriaBuilder.sum(employee.<Long>get("version"), 1L));
+
+    Predicate where = criteriaBuilder.equal(employee.get("id"), id);
+    if (expectedVersion != null) {
+      where = criteriaBuilder.and(where, criteriaBuilder.equal(employee.get("version"), expectedVersion));
+    }
+    return entityManager.createQuery(update.where(where)).executeUpdate();
+  }
+
+  private static void set(CriteriaUpdate<Employee> update, Root<Employee> employee, String attribute, String value,
+      boolean skipNulls) {
+    if (value != null || !skipNulls) {
+      update.set(employee.<String>get(attribute), value);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package net.javaguides.spring.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import io.r2dbc.spi.Row;
+import net.javaguides.spring.model.Employee;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC access to the employees table for the reactive profile, with the finders of {@link EmployeeRepository}.
+ * <p>
+ * Written against {@link DatabaseClient} rather than as a Spring Data interface: Spring Data JPA claims every
+ * repository of an {@code @Entity} and refuses reactive ones.
+ * <p>
+ * New ids come from the same {@code employees_seq} table Hibernate uses on MySQL, reserved in blocks of the same size
+ * as the JPA pool, so both stacks can insert into one database without handing out the same id. A block is reserved
+ * in a transaction of its own, so it stays reserved when the insert that needed it rolls back.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+
+  private static final String SELECT = "select id, first_name, last_name, email, version from employees";
+  // allocationSize of the employees_seq generator on Employee
+  private static final int ID_ALLOCATION = 50;
+  private static final int MAX_RESERVE_ATTEMPTS = 10;
+
+  private final DatabaseClient databaseClient;
+  private final TransactionalOperator newTransaction;
+  // Ids left in the reserved block, guarded by this
+  private long nextId;
+  private long lastId = -1;
+
+  public ReactiveEmployeeRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+    this.databaseClient = databaseClient;
+    this.newTransaction = TransactionalOperator.create(transactionManager,
+        new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+  }
+
+  public Mono<Employee> findById(long id) {
+    return databaseClient.sql(SELECT + " where id = :id").bind("id", id).map(ReactiveEmployeeRepository::employee)
+        .one();
+  }
+
+  public Flux<Employee> findAll() {
+    return databaseClient.sql(SELECT).map(ReactiveEmployeeRepository::employee).all();
+  }
+
+  public Mono<Employee> findByEmail(String email) {
+    return databaseClient.sql(SELECT + " where email = :email").bind("email", email)
+        .map(ReactiveEmployeeRepository::employee).one();
+  }
+
+  public Flux<Employee> findByFirstNameAndLastName(String firstName, String lastName) {
+    return databaseClient.sql(SELECT + " where first_name = :firstName and last_name = :lastName")
+        .bind("firstName", firstName)
+        .bind("lastName", lastName)
+        .map(ReactiveEmployeeRepository::employee).all();
+  }
+
+  public Flux<String> findExistingEmails(Collection<String> emails) {
+    return databaseClient.sql("select email from employees where email in (:emails)")
+        .bind("emails", List.copyOf(emails))
+        .map(row -> row.get("email", String.class)).all();
+  }
+
+  public Flux<Employee> findPageAfter(long id, int limit) {
+    return databaseClient.sql(SELECT + " where id > :id order by id limit :limit")
+        .bind("id", id)
+        .bind("limit", limit)
+        .map(ReactiveEmployeeRepository::employee).all();
+  }
+
+  public Flux<Employee> findByLastNamePrefix(String prefixPattern, int limit, long offset) {
+    return databaseClient.sql(SELECT + " where last_name like :prefixPattern escape '!'"
+        + " order by last_name, first_name, id limit :limit offset :offset")
+        .bind("prefixPattern", prefixPattern)
+        .bind("limit", limit)
+        .bind("offset", offset)
+        .map(ReactiveEmployeeRepository::employee).all();
+  }
+
+  /**
+   * Inserts employees with id 0, at version 0, and updates the others, bumping their version. Emits nothing when the employee to
+   * update does not exist.
+   */
+  public Mono<Employee> save(Employee employee) {
+    if (employee.getId() == 0) {
+      return nextId().flatMap(id -> databaseClient.sql("insert into employees (id, first_name, last_name, email)"
+          + " values (:id, :firstName, :lastName, :email)")
+          .bind("id", id)
+          .bind("firstName", employee.getFirstName())
+          .bind("lastName", employee.getLastName())
+          .bind("email", employee.getEmail())
+          .fetch().rowsUpdated()
+          .map(rows -> {
+            employee.setId(id);
+            // The column default, whatever version the caller passed in
+            employee.setVersion(0);
+            return employee;
+          }));
+    }
+
+    return databaseClient.sql("update employees set first_name = :firstName, last_name = :lastName, email = :email,"
+        + " version = version + 1 where id = :id")
+        .bind("firstName", employee.getFirstName())
+        .bind("lastName", employee.getLastName())
+        .bind("email", employee.getEmail())
+        .bind("id", employee.getId())
+        .fetch().rowsUpdated()
+        .filter(rows -> rows > 0)
+        .flatMap(rows -> findById(employee.getId()));
+  }
+
+  public Flux<Employee> saveAll(List<Employee> employees) {
+    return Flux.fromIterable(employees).concatMap(this::save);
+  }
+
+  public Mono<Integer> deleteById(long id) {
+    return databaseClient.sql("delete from employees where id = :id").bind("id", id).fetch().rowsUpdated();
+  }
+
+  private Mono<Long> nextId() {
+    synchronized (this) {
+      if (nextId <= lastId) {
+        return Mono.just(nextId++);
+      }
+    }
+    return reserveIds().map(last -> {
+      synchronized (this) {
+        // Like Hibernate's pooled optimizer, a sequence value of v stands for the ids v - 49 to v
+        long first = Math.max(1, last - ID_ALLOCATION + 1);
+        nextId = first + 1;
+        lastId = last;
+        return first;
+      }
+    });
+  }
+
+  /**
+   * Moves {@code employees_seq} one block ahead and returns the value it had, the way Hibernate's table generator
+   * does. A concurrent reservation by either stack makes the conditional update miss, and it is tried again a few
+   * times before giving up.
+   */
+  private Mono<Long> reserveIds() {
+    return newTransaction.transactional(databaseClient.sql("select next_val from employees_seq")
+        .map(row -> row.get("next_val", Long.class))
+        .one()
+        .flatMap(value -> databaseClient.sql("update employees_seq set next_val = :next where next_val = :value")
+            .bind("next", value + ID_ALLOCATION)
+            .bind("value", value)
+            .fetch().rowsUpdated()
+            .filter(rows -> rows > 0)
+            .map(rows -> value)))
+        .repeatWhenEmpty(attempts -> attempts.take(MAX_RESERVE_ATTEMPTS - 1))
+        .switchIfEmpty(Mono.error(() -> new ConcurrencyFailureException("Could not reserve a block of employee ids"
+            + " in " + MAX_RESERVE_ATTEMPTS + " attempts, employees_seq kept changing")));
+  }
+
+  private static Employee employee(Row row) {
+    return Employee.builder()
+        .id(row.get("id", Long.class))
+        .firstName(row.get("first_name", String.class))
+        .lastName(row.get("last_name", String.class))
+        .email(row.get("email", String.class))
+        .version(row.get("version", Long.class))
+        .build();
+  }
+}
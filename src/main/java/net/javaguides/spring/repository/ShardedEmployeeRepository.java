@@ -0,0 +1,524 @@
+package net.javaguides.spring.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeeView;
+
+/**
+ * JDBC access to an employees table split over several databases, for the sharded profile, with the finders of
+ * {@link EmployeeRepository}.
+ * <p>
+ * An employee lives on shard {@code (id - 1) mod shards}: every shard hands out its own ids in steps of the shard
+ * count, so ids are unique across shards without a central allocator. New employees go to the shard their email
+ * hashes to. Emails are looked up and kept unique through {@code employee_emails}, partitioned by email hash, so an
+ * employee whose email changed keeps its shard. Lookups by id or email touch one shard, or two after an email change;
+ * lists, pages and name searches query every shard in parallel and merge the results.
+ * <p>
+ * Writes are local transactions. Changes that span two shards, an email change or a batch insert, write the email
+ * claim first and undo it when the rest fails, and free an email only once the row that held it is committed without
+ * it. A claim left behind by a crash in between is taken over by the next employee that wants the email.
+ */
+public class ShardedEmployeeRepository implements Closeable {
+
+  private static final String SELECT = "select id, first_name, last_name, email, version from employees";
+  // Each shard's pool defaults to ten connections, more query threads would only queue on it
+  private static final int THREADS_PER_SHARD = 10;
+  private static final int EXPORT_FETCH_SIZE = 1000;
+
+  private static final RowMapper<Employee> EMPLOYEE = (resultSet, rowNum) -> Employee.builder()
+      .id(resultSet.getLong("id"))
+      .firstName(resultSet.getString("first_name"))
+      .lastName(resultSet.getString("last_name"))
+      .email(resultSet.getString("email"))
+      .version(resultSet.getLong("version"))
+      .build();
+  private static final RowMapper<EmployeeView> EMPLOYEE_VIEW = (resultSet, rowNum) -> new EmployeeView(
+      resultSet.getLong("id"),
+      resultSet.getString("first_name"),
+      resultSet.getString("last_name"),
+      resultSet.getString("email"),
+      resultSet.getLong("version"));
+  // Matches the order by of the name search as long as the database compares names by code point, like H2 does
+  private static final Comparator<Employee> BY_NAME = Comparator.comparing(Employee::getLastName)
+      .thenComparing(Employee::getFirstName)
+      .thenComparingLong(Employee::getId);
+
+  private final List<Shard> shards;
+  private final ExecutorService executor;
+
+  public ShardedEmployeeRepository(List<DataSource> dataSources) {
+    this.shards = dataSources.stream().map(Shard::new).collect(Collectors.toList());
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(1, (shards.size() - 1) * THREADS_PER_SHARD), runnable -> {
+      Thread thread = new Thread(runnable, "shard-query-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public int shardCount() {
+    return shards.size();
+  }
+
+  /**
+   * Creates the tables of {@code schema-sharded.sql} on every shard, each with its own id sequence.
+   */
+  public void initializeSchema() {
+    String script;
+    try {
+      script = StreamUtils.copyToString(new ClassPathResource("schema-sharded.sql").getInputStream(),
+          StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    for (int i = 0; i < shards.size(); i++) {
+      String shardScript = script.replace("{first_id}", Integer.toString(i + 1))
+          .replace("{shard_count}", Integer.toString(shards.size()));
+      new ResourceDatabasePopulator(new ByteArrayResource(shardScript.getBytes(StandardCharsets.UTF_8)))
+          .execute(shards.get(i).dataSource);
+    }
+  }
+
+  public Optional<Employee> findById(long id) {
+    return shardOf(id).jdbc.query(SELECT + " where id = ?", EMPLOYEE, id).stream().findFirst();
+  }
+
+  public List<Employee> findAllById(Collection<Long> ids) {
+    Map<Shard, List<Long>> idsByShard = ids.stream()
+        .collect(Collectors.groupingBy(this::shardOf, LinkedHashMap::new, Collectors.toList()));
+    return scatter(idsByShard.keySet(), shard -> shard.named.query(SELECT + " where id in (:ids)",
+        new MapSqlParameterSource("ids", idsByShard.get(shard)), EMPLOYEE)).stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  public Optional<Employee> findByEmail(String email) {
+    return emailOwner(email).flatMap(this::findById).filter(employee -> email.equals(employee.getEmail()));
+  }
+
+  public List<String> findExistingEmails(Collection<String> emails) {
+    Map<Shard, List<String>> emailsByShard = emails.stream()
+        .collect(Collectors.groupingBy(this::emailShardOf, LinkedHashMap::new, Collectors.toList()));
+    return scatter(emailsByShard.keySet(), shard -> shard.named.query(
+        "select email, employee_id from employee_emails where email in (:emails)",
+        new MapSqlParameterSource("emails", emailsByShard.get(shard)),
+        (resultSet, rowNum) -> new EmailClaim(resultSet.getString("email"), resultSet.getLong("employee_id"))))
+        .stream()
+        .flatMap(List::stream)
+        .filter(this::isHeld)
+        .map(EmailClaim::getEmail)
+        .collect(Collectors.toList());
+  }
+
+  public List<Employee> findAll() {
+    return scatter(shard -> shard.jdbc.query(SELECT, EMPLOYEE)).stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparingLong(Employee::getId))
+        .collect(Collectors.toList());
+  }
+
+  public List<EmployeeView> findAllViews() {
+    return scatter(shard -> shard.jdbc.query(SELECT, EMPLOYEE_VIEW)).stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparingLong(EmployeeView::getId))
+        .collect(Collectors.toList());
+  }
+
+  public EmployeeListVersion findListVersion() {
+    List<ListVersion> versions = scatter(shard -> shard.jdbc.queryForObject(
+        // The same checksum as EmployeeRepository#findListVersion, a sum, so the shards' add up
+        "select count(*), coalesce(sum(version), 0), coalesce(max(id), 0),"
+            + " coalesce(sum(mod(id * 40503 + version * 65599, 1000003)"
+            + " * mod(id * 40503 + version * 65599, 1000003)), 0) from employees",
+        (resultSet, rowNum) -> new ListVersion(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3),
+            resultSet.getLong(4))));
+    return new ListVersion(
+        versions.stream().mapToLong(ListVersion::getCount).sum(),
+        versions.stream().mapToLong(ListVersion::getVersionSum).sum(),
+        versions.stream().mapToLong(ListVersion::getMaxId).max().orElse(0),
+        versions.stream().mapToLong(ListVersion::getChecksum).sum());
+  }
+
+  // Every shard returns its first rows after the cursor, the page is the first of them all
+  public List<Employee> findPageAfter(long id, int limit) {
+    return scatter(shard -> shard.jdbc.query(SELECT + " where id > ? order by id limit ?", EMPLOYEE, id, limit))
+        .stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparingLong(Employee::getId))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  // An offset can't be pushed down: any shard may hold the whole page, so each returns offset + limit rows
+  public List<Employee> findByLastNamePrefix(String prefixPattern, int limit, long offset) {
+    long rows = offset + limit;
+    return scatter(shard -> shard.jdbc.query(SELECT + " where last_name like ? escape '!'"
+        + " order by last_name, first_name, id limit ?", EMPLOYEE, prefixPattern, rows))
+        .stream()
+        .flatMap(List::stream)
+        .sorted(BY_NAME)
+        .skip(offset)
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Passes every employee to {@code action}, shard by shard, without holding more than a fetch of rows.
+   */
+  public void streamAll(Consumer<Employee> action) {
+    for (Shard shard : shards) {
+      shard.streamingJdbc.query(SELECT, resultSet -> {
+        action.accept(EMPLOYEE.mapRow(resultSet, 0));
+      });
+    }
+  }
+
+  /**
+   * Inserts the employee on the shard of its email and sets its id and version.
+   *
+   * @throws DuplicateKeyException when another employee has the email
+   */
+  public Employee insert(Employee employee) {
+    Shard shard = emailShardOf(employee.getEmail());
+    shard.transaction.executeWithoutResult(status -> insert(shard, employee));
+    return employee;
+  }
+
+  /**
+   * Inserts the employees, each shard's in one transaction and the shards in parallel. When a shard fails, the
+   * employees already committed on the others are deleted again before the failure is rethrown.
+   */
+  public List<Employee> insertAll(List<Employee> employees) {
+    Map<Shard, List<Employee>> employeesByShard = employees.stream()
+        .collect(Collectors.groupingBy(employee -> emailShardOf(employee.getEmail()), LinkedHashMap::new,
+            Collectors.toList()));
+    List<Shard> targets = new ArrayList<>(employeesByShard.keySet());
+    List<CompletableFuture<Void>> inserts = targets.stream()
+        .map(shard -> CompletableFuture.runAsync(() -> shard.transaction.executeWithoutResult(
+            status -> employeesByShard.get(shard).forEach(employee -> insert(shard, employee))), executor))
+        .collect(Collectors.toList());
+    CompletableFuture.allOf(inserts.toArray(new CompletableFuture<?>[0])).handle((result, failure) -> null).join();
+
+    RuntimeException failure = null;
+    for (CompletableFuture<Void> insert : inserts) {
+      try {
+        join(insert);
+      } catch (RuntimeException e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      for (int i = 0; i < targets.size(); i++) {
+        if (!inserts.get(i).isCompletedExceptionally()) {
+          deleteByIds(targets.get(i), employeesByShard.get(targets.get(i)).stream()
+              .map(Employee::getId).collect(Collectors.toList()));
+        }
+      }
+      throw failure;
+    }
+    return employees;
+  }
+
+  /**
+   * Replaces the fields of the employee with {@code employee}'s id, only at {@code expectedVersion} unless it is
+   * null, and bumps its version. Returns the number of rows updated.
+   *
+   * @throws DuplicateKeyException when the new email belongs to another employee
+   */
+  public int update(Employee employee, Long expectedVersion) {
+    return update(employee.getId(), employee, expectedVersion, false);
+  }
+
+  /**
+   * Like {@link #update(Employee, Long)}, but leaves the fields that are null in {@code changes} alone.
+   */
+  public int patch(long id, Employee changes, Long expectedVersion) {
+    return update(id, changes, expectedVersion, true);
+  }
+
+  public int deleteById(long id) {
+    return deleteByIds(shardOf(id), List.of(id)).size();
+  }
+
+  /**
+   * Deletes the employees of {@code ids} and returns the ids of those that existed.
+   */
+  public List<Long> deleteByIdIn(Collection<Long> ids) {
+    Map<Shard, List<Long>> idsByShard = ids.stream()
+        .collect(Collectors.groupingBy(this::shardOf, LinkedHashMap::new, Collectors.toList()));
+    return scatter(idsByShard.keySet(), shard -> deleteByIds(shard, idsByShard.get(shard))).stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Stops the query threads and closes the shards' datasources.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    for (Shard shard : shards) {
+      if (shard.dataSource instanceof Closeable) {
+        try {
+          ((Closeable) shard.dataSource).close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  private void insert(Shard shard, Employee employee) {
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    shard.jdbc.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+          "insert into employees (first_name, last_name, email) values (?, ?, ?)", new String[] {"id"});
+      statement.setString(1, employee.getFirstName());
+      statement.setString(2, employee.getLastName());
+      statement.setString(3, employee.getEmail());
+      return statement;
+    }, keyHolder);
+    employee.setId(keyHolder.getKey().longValue());
+    employee.setVersion(0);
+    // The claim lives on the employee's own shard, so it commits or rolls back with the row
+    claimEmail(employee.getEmail(), employee.getId());
+  }
+
+  private int update(long id, Employee changes, Long expectedVersion, boolean skipNulls) {
+    Shard shard = shardOf(id);
+    // Set inside the transaction once the new email is claimed, so the claims can be settled after it
+    AtomicReference<String> previousEmail = new AtomicReference<>();
+    Integer rows;
+    try {
+      rows = shard.transaction.execute(status -> {
+        List<String> emails = shard.jdbc.queryForList("select email from employees where id = ? for update",
+            String.class, id);
+        if (emails.isEmpty()) {
+          return 0;
+        }
+
+        String currentEmail = emails.get(0);
+        if (changes.getEmail() != null && !changes.getEmail().equals(currentEmail)) {
+          claimEmail(changes.getEmail(), id);
+          previousEmail.set(currentEmail);
+        }
+
+        List<String> assignments = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        assign("first_name", changes.getFirstName(), skipNulls, assignments, arguments);
+        assign("last_name", changes.getLastName(), skipNulls, assignments, arguments);
+        assign("email", changes.getEmail(), skipNulls, assignments, arguments);
+        assignments.add("version = version + 1");
+        arguments.add(id);
+        String condition = " where id = ?";
+        if (expectedVersion != null) {
+          condition += " and version = ?";
+          arguments.add(expectedVersion);
+        }
+        return shard.jdbc.update("update employees set " + String.join(", ", assignments) + condition,
+            arguments.toArray());
+      });
+    } catch (RuntimeException e) {
+      // The claim is usually on another shard and already committed, the row never got the email
+      if (previousEmail.get() != null) {
+        releaseClaim(changes.getEmail(), id, e);
+      }
+      throw e;
+    }
+
+    int updated = rows != null ? rows : 0;
+    if (previousEmail.get() != null) {
+      // Settled only now the row is committed: released before, a rollback would leave the row with a free email.
+      // A crash in between leaves a stale claim, which the next employee that wants the email takes over.
+      releaseEmail(updated > 0 ? previousEmail.get() : changes.getEmail(), id);
+    }
+    return updated;
+  }
+
+  private List<Long> deleteByIds(Shard shard, List<Long> ids) {
+    List<Long> deletedIds = new ArrayList<>();
+    List<String> emails = new ArrayList<>();
+    shard.transaction.executeWithoutResult(status -> {
+      MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
+      // Locked, so the rows found are exactly the ones deleted
+      shard.named.query("select id, email from employees where id in (:ids) for update", parameters,
+          resultSet -> {
+            deletedIds.add(resultSet.getLong("id"));
+            emails.add(resultSet.getString("email"));
+          });
+      if (!deletedIds.isEmpty()) {
+        shard.named.update("delete from employees where id in (:ids)", parameters);
+      }
+    });
+
+    // Freed once the rows are gone for good, like the previous email of an update
+    Map<Shard, List<String>> emailsByShard = emails.stream()
+        .collect(Collectors.groupingBy(this::emailShardOf, LinkedHashMap::new, Collectors.toList()));
+    emailsByShard.forEach((emailShard, shardEmails) -> emailShard.named.update(
+        "delete from employee_emails where email in (:emails) and employee_id in (:ids)",
+        new MapSqlParameterSource("emails", shardEmails).addValue("ids", deletedIds)));
+    return deletedIds;
+  }
+
+  private void claimEmail(String email, long id) {
+    Shard shard = emailShardOf(email);
+    try {
+      shard.jdbc.update("insert into employee_emails (email, employee_id) values (?, ?)", email, id);
+    } catch (DuplicateKeyException e) {
+      long owner = shard.jdbc.queryForObject("select employee_id from employee_emails where email = ?", Long.class,
+          email);
+      if (owner == id) {
+        return;
+      }
+      if (isHeld(new EmailClaim(email, owner))
+          || shard.jdbc.update("update employee_emails set employee_id = ? where email = ? and employee_id = ?",
+              id, email, owner) == 0) {
+        throw e;
+      }
+    }
+  }
+
+  private void releaseEmail(String email, long id) {
+    emailShardOf(email).jdbc.update("delete from employee_emails where email = ? and employee_id = ?", email, id);
+  }
+
+  private void releaseClaim(String email, long id, RuntimeException failure) {
+    try {
+      releaseEmail(email, id);
+    } catch (RuntimeException e) {
+      // Left as a stale claim, the write's own failure is the one to report
+      failure.addSuppressed(e);
+    }
+  }
+
+  private Optional<Long> emailOwner(String email) {
+    return emailShardOf(email).jdbc.queryForList("select employee_id from employee_emails where email = ?",
+        Long.class, email).stream().findFirst();
+  }
+
+  // A claim is stale when the employee it names was deleted or changed its email halfway through a failed write
+  private boolean isHeld(EmailClaim claim) {
+    return findById(claim.getEmployeeId()).filter(employee -> claim.getEmail().equals(employee.getEmail()))
+        .isPresent();
+  }
+
+  private static void assign(String column, String value, boolean skipNulls, List<String> assignments,
+      List<Object> arguments) {
+    if (value != null || !skipNulls) {
+      assignments.add(column + " = ?");
+      arguments.add(value);
+    }
+  }
+
+  private Shard shardOf(long id) {
+    return shards.get((int) Math.floorMod(id - 1, (long) shards.size()));
+  }
+
+  private Shard emailShardOf(String email) {
+    return shards.get(Math.floorMod(email.hashCode(), shards.size()));
+  }
+
+  private <T> List<T> scatter(Function<Shard, T> query) {
+    return scatter(shards, query);
+  }
+
+  // The first shard is queried on the calling thread while the others run on the executor
+  private <T> List<T> scatter(Collection<Shard> targets, Function<Shard, T> query) {
+    List<Shard> targetList = new ArrayList<>(targets);
+    if (targetList.isEmpty()) {
+      return List.of();
+    }
+
+    List<CompletableFuture<T>> others = targetList.subList(1, targetList.size()).stream()
+        .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+        .collect(Collectors.toList());
+    List<T> results = new ArrayList<>(targetList.size());
+    results.add(query.apply(targetList.get(0)));
+    others.forEach(future -> results.add(join(future)));
+    return results;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static class Shard {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate streamingJdbc;
+    private final NamedParameterJdbcTemplate named;
+    private final TransactionTemplate transaction;
+
+    Shard(DataSource dataSource) {
+      this.dataSource = dataSource;
+      this.jdbc = new JdbcTemplate(dataSource);
+      this.streamingJdbc = new JdbcTemplate(dataSource);
+      streamingJdbc.setFetchSize(EXPORT_FETCH_SIZE);
+      this.named = new NamedParameterJdbcTemplate(jdbc);
+      this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static class EmailClaim {
+    private final String email;
+    private final long employeeId;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static class ListVersion implements EmployeeListVersion {
+    private final long count;
+    private final long versionSum;
+    private final long maxId;
+    private final long checksum;
+  }
+}
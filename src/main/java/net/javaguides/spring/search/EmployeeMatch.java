@@ -0,0 +1,14 @@
+package net.javaguides.spring.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeMatch {
+  private long id;
+  private String firstName;
+  private String lastName;
+  private String email;
+  private int score;
+}
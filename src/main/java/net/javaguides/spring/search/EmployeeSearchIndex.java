@@ -0,0 +1,313 @@
+package net.javaguides.spring.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+
+import org.springframework.stereotype.Component;
+
+import net.javaguides.spring.model.Employee;
+
+/**
+ * In-memory trigram index over employee first names, last names and emails for substring type-ahead search.
+ * <p>
+ * Besides the trigrams of every field, each field is keyed by its full value, its first one to three characters and
+ * the first three characters of every word after a space, '.', '@' or '-'. A query walks those posting lists one
+ * ranking tier at a time in id order, so it stops as soon as {@code limit} matches are found instead of scoring every
+ * employee sharing a common trigram.
+ */
+@Component
+public class EmployeeSearchIndex {
+
+  private static final int EXACT = 4;
+  private static final int PREFIX = 3;
+  private static final int WORD_PREFIX = 2;
+  private static final int SUBSTRING = 1;
+  // Key kinds live above the three 16 bit characters of a key
+  private static final long TRIGRAM_KEY = 0L;
+  private static final long PREFIX_KEY = 1L << 48;
+  private static final long WORD_KEY = 2L << 48;
+  private static final long EXACT_KEY = 3L << 48;
+
+  private final Map<Long, Postings> postings = new HashMap<>();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public void index(Employee employee) {
+    Document document = new Document(employee);
+    lock.writeLock().lock();
+    try {
+      Document previous = documents.put(document.id, document);
+      if (previous != null) {
+        unindex(previous);
+      }
+      for (long key : document.keys()) {
+        postings.computeIfAbsent(key, k -> new Postings()).add(document.id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      Document previous = documents.remove(id);
+      if (previous != null) {
+        unindex(previous);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      documents.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} employees with a field containing {@code query}, best matches first: exact field,
+   * field prefix, word prefix and then any substring, lowest id first within a tier. Queries shorter than three
+   * characters only match exact fields and field prefixes.
+   */
+  public List<EmployeeMatch> search(String query, int limit) {
+    String text = normalize(query);
+    if (text.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    long[] trigrams = trigrams(text);
+    List<EmployeeMatch> matches = new ArrayList<>(limit);
+    Set<Long> matched = new HashSet<>();
+    lock.readLock().lock();
+    try {
+      collect(new long[] {EXACT_KEY | hash(text)}, text, EXACT, limit, matches, matched);
+      collect(append(trigrams, PREFIX_KEY | chars(text)), text, PREFIX, limit, matches, matched);
+      if (text.length() >= 3) {
+        collect(append(trigrams, WORD_KEY | chars(text)), text, WORD_PREFIX, limit, matches, matched);
+        collect(trigrams, text, SUBSTRING, limit, matches, matched);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return matches;
+  }
+
+  private void collect(long[] keys, String text, int score, int limit, List<EmployeeMatch> matches,
+      Set<Long> matched) {
+    if (matches.size() >= limit) {
+      return;
+    }
+
+    Postings[] lists = new Postings[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      lists[i] = postings.get(keys[i]);
+      if (lists[i] == null) {
+        return;
+      }
+    }
+    // Walk the rarest list and probe the others, so the cost follows the most selective key
+    Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+    Postings rarest = lists[0];
+    for (int i = 0; i < rarest.size && matches.size() < limit; i++) {
+      long id = rarest.ids[i];
+      if (containsInAll(lists, id) && !matched.contains(id)) {
+        Document document = documents.get(id);
+        if (document.score(text) == score) {
+          matches.add(document.match(score));
+          matched.add(id);
+        }
+      }
+    }
+  }
+
+  private void unindex(Document document) {
+    for (long key : document.keys()) {
+      Postings list = postings.get(key);
+      if (list != null && list.remove(document.id) && list.size == 0) {
+        postings.remove(key);
+      }
+    }
+  }
+
+  private static boolean containsInAll(Postings[] lists, long id) {
+    for (int i = 1; i < lists.length; i++) {
+      if (!lists[i].contains(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static boolean isWordBoundary(char c) {
+    return c == ' ' || c == '.' || c == '@' || c == '-';
+  }
+
+  private static long hash(String text) {
+    return text.hashCode() & 0xffffffffL;
+  }
+
+  // Packs up to the first three characters of text at offset into one key
+  private static long chars(String text, int offset, int length) {
+    long key = 0;
+    for (int i = 0; i < 3; i++) {
+      key = (key << 16) | (i < length ? text.charAt(offset + i) : 0);
+    }
+    return key;
+  }
+
+  private static long chars(String text) {
+    return chars(text, 0, Math.min(3, text.length()));
+  }
+
+  private static long[] trigrams(String text) {
+    long[] trigrams = new long[Math.max(0, text.length() - 2)];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] = TRIGRAM_KEY | chars(text, i, 3);
+    }
+    return Arrays.stream(trigrams).distinct().toArray();
+  }
+
+  private static long[] append(long[] keys, long key) {
+    long[] result = Arrays.copyOf(keys, keys.length + 1);
+    result[keys.length] = key;
+    return result;
+  }
+
+  /**
+   * Sorted, growable array of employee ids. Ids are mostly allocated in increasing order, so adds are usually appends.
+   */
+  private static final class Postings {
+    private long[] ids = new long[4];
+    private int size;
+
+    void add(long id) {
+      if (size > 0 && ids[size - 1] >= id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+          return;
+        }
+        insertAt(-index - 1, id);
+        return;
+      }
+      insertAt(size, id);
+    }
+
+    boolean remove(long id) {
+      int index = Arrays.binarySearch(ids, 0, size, id);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+      size--;
+      return true;
+    }
+
+    boolean contains(long id) {
+      return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    private void insertAt(int index, long id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, index, ids, index + 1, size - index);
+      ids[index] = id;
+      size++;
+    }
+  }
+
+  private static final class Document {
+    private final long id;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final String[] fields;
+
+    Document(Employee employee) {
+      this.id = employee.getId();
+      this.firstName = employee.getFirstName();
+      this.lastName = employee.getLastName();
+      this.email = employee.getEmail();
+      this.fields = new String[] {normalize(firstName), normalize(lastName), normalize(email)};
+    }
+
+    long[] keys() {
+      LongStream.Builder keys = LongStream.builder();
+      for (String field : fields) {
+        keys.add(EXACT_KEY | hash(field));
+        for (int length = 1; length <= Math.min(3, field.length()); length++) {
+          keys.add(PREFIX_KEY | chars(field, 0, length));
+        }
+        for (int i = 1; i + 3 <= field.length(); i++) {
+          if (isWordBoundary(field.charAt(i - 1))) {
+            keys.add(WORD_KEY | chars(field, i, 3));
+          }
+        }
+        Arrays.stream(trigrams(field)).forEach(keys::add);
+      }
+      return keys.build().distinct().toArray();
+    }
+
+    int score(String text) {
+      int score = 0;
+      for (String field : fields) {
+        score = Math.max(score, score(field, text));
+      }
+      return score;
+    }
+
+    EmployeeMatch match(int score) {
+      return new EmployeeMatch(id, firstName, lastName, email, score);
+    }
+
+    private static int score(String field, String text) {
+      if (field.equals(text)) {
+        return EXACT;
+      }
+      if (field.startsWith(text)) {
+        return PREFIX;
+      }
+      if (text.length() < 3) {
+        return 0;
+      }
+      int best = 0;
+      for (int index = field.indexOf(text); index >= 0; index = field.indexOf(text, index + 1)) {
+        if (isWordBoundary(field.charAt(index - 1))) {
+          return WORD_PREFIX;
+        }
+        best = SUBSTRING;
+      }
+      return best;
+    }
+  }
+}
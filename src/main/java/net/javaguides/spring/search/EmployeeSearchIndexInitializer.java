@@ -0,0 +1,33 @@
+package net.javaguides.spring.search;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.spring.datasource.ReplicaRoutingDataSource;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Loads the search index from the database once all beans are ready, before the web server starts taking requests.
+ * The load reads the primary: writes keep the index current from then on, so rows a lagging replica had not seen yet
+ * would never be indexed.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class EmployeeSearchIndexInitializer implements SmartInitializingSingleton {
+
+  private final EmployeeService employeeService;
+  private final EmployeeSearchIndex employeeSearchIndex;
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    long start = System.nanoTime();
+    ReplicaRoutingDataSource.onPrimary(() -> employeeService.exportEmployees(employeeSearchIndex::index));
+    log.info("Indexed {} employees for search in {} ms", employeeSearchIndex.size(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+}
@@ -0,0 +1,31 @@
+package net.javaguides.spring.search;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.spring.service.ReactiveEmployeeService;
+
+/**
+ * Loads the search index for the reactive profile, blocking startup the same way as
+ * {@link EmployeeSearchIndexInitializer}.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveEmployeeSearchIndexInitializer implements SmartInitializingSingleton {
+
+  private final ReactiveEmployeeService employeeService;
+  private final EmployeeSearchIndex employeeSearchIndex;
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    long start = System.nanoTime();
+    employeeService.exportEmployees().doOnNext(employeeSearchIndex::index).blockLast();
+    log.info("Indexed {} employees for search in {} ms", employeeSearchIndex.size(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+}
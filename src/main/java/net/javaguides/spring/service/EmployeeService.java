@@ -1,14 +1,54 @@
 package net.javaguides.spring.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.search.EmployeeMatch;
 
 public interface EmployeeService {
   Employee saveEmployee(Employee employee);
+  List<Employee> saveEmployees(List<Employee> employees);
+
+  /**
+   * Returns those of {@code emails} that already belong to an employee.
+   */
+  List<String> getExistingEmails(Collection<String> emails);
+
   List<Employee> getAllEmployees();
+  List<EmployeeView> getAllEmployeeViews();
+  EmployeeListVersion getEmployeeListVersion();
+  EmployeePage getEmployeesPage(long after, int limit);
+  List<Employee> searchEmployeesByName(String name, int page, int size);
+  List<EmployeeMatch> searchEmployees(String query, int limit);
+  void exportEmployees(Consumer<Employee> action);
   Optional<Employee> getEmployeeById(long id);
-  Employee updateEmployee(Employee employee);
-  void deleteEmployee(long id);
+
+  /**
+   * Returns the employees of {@code ids} that exist, in the order of {@code ids} and without repeats.
+   */
+  List<Employee> getEmployeesByIds(Collection<Long> ids);
+
+  Optional<EmployeeView> getEmployeeViewById(long id);
+
+  /**
+   * Updates the employee with {@code employee}'s id, only at {@code expectedVersion} unless it is null. Returns false
+   * when nothing was updated. On success {@code employee} gets the new version, and without an expected version the
+   * stored row, read back after the update.
+   */
+  boolean updateEmployee(Employee employee, Long expectedVersion);
+
+  /**
+   * Like {@link #updateEmployee(Employee, Long)}, but only changes the fields of {@code changes} that are not null. On
+   * success {@code changes} gets the stored row, read back after the patch.
+   */
+  boolean patchEmployee(long id, Employee changes, Long expectedVersion);
+
+  boolean deleteEmployee(long id);
+  int deleteEmployees(Collection<Long> ids);
 }
@@ -0,0 +1,22 @@
+package net.javaguides.spring.service;
+
+import java.util.List;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.search.EmployeeMatch;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmployeeService {
+  Mono<Employee> saveEmployee(Employee employee);
+  Mono<List<Employee>> saveEmployees(List<Employee> employees);
+  Flux<Employee> getAllEmployees();
+  Mono<EmployeePage> getEmployeesPage(long after, int limit);
+  Flux<Employee> searchEmployeesByName(String name, int page, int size);
+  Flux<EmployeeMatch> searchEmployees(String query, int limit);
+  Flux<Employee> exportEmployees();
+  Mono<Employee> getEmployeeById(long id);
+  Mono<Employee> updateEmployee(Employee employee);
+  Mono<Boolean> deleteEmployee(long id);
+}
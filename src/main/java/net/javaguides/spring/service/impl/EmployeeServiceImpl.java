@@ -1,53 +1,364 @@
 package net.javaguides.spring.service.impl;
 
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.DELETE_CHUNK_SIZE;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.copy;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.matchLimit;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.page;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.pageSize;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.prefixPattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.annotation.Timed;
 
-import net.javaguides.spring.exception.ResourceNotFoundException;
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.datasource.ReplicaRoutingDataSource;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.loader.EmployeeBatchLoader;
+import net.javaguides.spring.loader.EmployeeBatchLoaderProperties;
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeChange;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
 import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.search.EmployeeMatch;
+import net.javaguides.spring.search.EmployeeSearchIndex;
 import net.javaguides.spring.service.EmployeeService;
 
 @Service
+@Profile("!reactive & !sharded")
 public class EmployeeServiceImpl implements EmployeeService {
 
+  private static final String SERVICE_TIMER = "employee.service";
+  // Matches hibernate.jdbc.batch_size so each chunk is flushed as one JDBC batch
+  private static final int BATCH_SIZE = 50;
+
   @Autowired
   private EmployeeRepository employeeRepository;
 
-  public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+  private EntityManager entityManager;
+
+  private EmployeeCache employeeCache;
+
+  private EmployeeSearchIndex employeeSearchIndex;
+
+  private EmployeeBatchLoader employeeBatchLoader;
+
+  private EmployeeChangeFeed employeeChangeFeed;
+
+  public EmployeeServiceImpl(EmployeeRepository employeeRepository, EntityManager entityManager,
+      EmployeeCache employeeCache, EmployeeSearchIndex employeeSearchIndex,
+      EmployeeBatchLoaderProperties batchLoaderProperties, EmployeeChangeFeed employeeChangeFeed) {
     this.employeeRepository = employeeRepository;
+    this.entityManager = entityManager;
+    this.employeeCache = employeeCache;
+    this.employeeSearchIndex = employeeSearchIndex;
+    this.employeeChangeFeed = employeeChangeFeed;
+    // Cache misses read the primary, a copy loaded from a lagging replica would be served for the whole cache ttl.
+    // The batch runs on the thread of whichever lookup opened it, so the pin is set around the query itself.
+    this.employeeBatchLoader = new EmployeeBatchLoader(batchLoaderProperties,
+        ids -> ReplicaRoutingDataSource.onPrimary(() -> employeeRepository.loadAllById(ids)));
   }
 
   @Override
+  @Timed(SERVICE_TIMER)
   public Employee saveEmployee(Employee employee) {
-    Optional<Employee> employeeOpt = employeeRepository.findByEmail(employee.getEmail());
-    if (employeeOpt.isPresent()) {
-      throw new ResourceNotFoundException("Employee already exist with given email: " + employee.getEmail());
+    // Always insert, a client supplied id would turn persist into a select-then-merge, and start at the first
+    // version, Hibernate stores a client supplied one as is
+    employee.setId(0L);
+    employee.setVersion(0L);
+    try {
+      // The unique email index rejects duplicates, flushing surfaces the violation here
+      Employee savedEmployee = employeeRepository.saveAndFlush(employee);
+      employeeCache.put(savedEmployee);
+      employeeSearchIndex.index(savedEmployee);
+      employeeChangeFeed.publish(EmployeeChange.Type.CREATED, savedEmployee.getId(), savedEmployee);
+      return savedEmployee;
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail(e)) {
+        throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail(), e);
+      }
+      throw e;
     }
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional
+  public List<Employee> saveEmployees(List<Employee> employees) {
+    List<Employee> savedEmployees = new ArrayList<>(employees.size());
+    Set<String> emails = new HashSet<>();
+    for (int from = 0; from < employees.size(); from += BATCH_SIZE) {
+      List<Employee> chunk = employees.subList(from, Math.min(from + BATCH_SIZE, employees.size()));
+      List<String> chunkEmails = new ArrayList<>(chunk.size());
+      for (Employee employee : chunk) {
+        if (!emails.add(employee.getEmail())) {
+          throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail());
+        }
+        chunkEmails.add(employee.getEmail());
+        // Always insert, at the first version, whatever id and version the client sent
+        employee.setId(0L);
+        employee.setVersion(0L);
+      }
+
+      List<String> existingEmails = employeeRepository.findExistingEmails(chunkEmails);
+      if (!existingEmails.isEmpty()) {
+        throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + existingEmails.get(0));
+      }
+
+      savedEmployees.addAll(employeeRepository.saveAll(chunk));
+      try {
+        employeeRepository.flush();
+      } catch (DataIntegrityViolationException e) {
+        // Lost a race with a concurrent create between the check and the insert
+        if (isDuplicateEmail(e)) {
+          throw new EmployeeAlreadyExistsException("Employee already exist with one of the given emails", e);
+        }
+        throw e;
+      }
+      entityManager.clear();
+    }
+
+    // Drop negative entries left by lookups of ids that did not exist yet
+    afterCommit(() -> savedEmployees.forEach(savedEmployee -> {
+      employeeCache.invalidate(savedEmployee.getId());
+      employeeSearchIndex.index(savedEmployee);
+    }));
+    savedEmployees.forEach(savedEmployee -> employeeChangeFeed.publish(EmployeeChange.Type.CREATED,
+        savedEmployee.getId(), savedEmployee));
+    return savedEmployees;
+  }
 
-    return employeeRepository.save(employee);
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<String> getExistingEmails(Collection<String> emails) {
+    return emails.isEmpty() ? List.of() : employeeRepository.findExistingEmails(emails);
   }
 
   @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
   public List<Employee> getAllEmployees() {
     return employeeRepository.findAll();
   }
 
+  // Read-only transactions switch Hibernate to manual flushing and mark the JDBC connection read-only
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public List<EmployeeView> getAllEmployeeViews() {
+    return employeeRepository.findAllViews();
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public EmployeeListVersion getEmployeeListVersion() {
+    return employeeRepository.findListVersion();
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public EmployeePage getEmployeesPage(long after, int limit) {
+    int pageSize = pageSize(limit);
+    return page(employeeRepository.findPageAfter(after, PageRequest.of(0, pageSize + 1)), pageSize);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public List<Employee> searchEmployeesByName(String name, int page, int size) {
+    int pageSize = pageSize(size);
+    return employeeRepository.findByLastNamePrefix(prefixPattern(name), PageRequest.of(Math.max(page, 0), pageSize));
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<EmployeeMatch> searchEmployees(String query, int limit) {
+    return employeeSearchIndex.search(query, matchLimit(limit));
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public void exportEmployees(Consumer<Employee> action) {
+    try (Stream<Employee> employees = employeeRepository.streamAll()) {
+      employees.forEach(employee -> {
+        action.accept(employee);
+        // Keep the persistence context from growing with the table
+        entityManager.detach(employee);
+      });
+    }
+  }
+
   @Override
+  @Timed(SERVICE_TIMER)
   public Optional<Employee> getEmployeeById(long id) {
-    return employeeRepository.findById(id);
+    // Not transactional: cache hits would otherwise still check out a connection. Concurrent misses on the same id
+    // already wait for one load in the cache, misses on different ids are merged into one query by the batch loader.
+    return employeeCache.get(id, employeeBatchLoader::load);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<Employee> getEmployeesByIds(Collection<Long> ids) {
+    Map<Long, Optional<Employee>> employees = employeeCache.getAll(ids, employeeBatchLoader::loadAll);
+    return new LinkedHashSet<>(ids).stream()
+        .flatMap(id -> employees.get(id).stream())
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  @Transactional(readOnly = true)
+  public Optional<EmployeeView> getEmployeeViewById(long id) {
+    return employeeRepository.findViewById(id);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public boolean updateEmployee(Employee employee, Long expectedVersion) {
+    if (!updated(employee.getId(), employeeRepository::update, employee, expectedVersion)) {
+      return false;
+    }
+
+    if (expectedVersion != null) {
+      employee.setVersion(expectedVersion + 1);
+    } else {
+      // The new version is unknown without reading the row back
+      Optional<Employee> stored = ReplicaRoutingDataSource.onPrimary(
+          () -> employeeRepository.findById(employee.getId()));
+      if (stored.isEmpty()) {
+        // Deleted right after the update, the delete is what callers and subscribers get to see
+        employeeCache.invalidate(employee.getId());
+        return true;
+      }
+      copy(stored.get(), employee);
+    }
+    employeeCache.put(employee);
+    employeeSearchIndex.index(employee);
+    employeeChangeFeed.publish(EmployeeChange.Type.UPDATED, employee.getId(), employee);
+    return true;
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public boolean patchEmployee(long id, Employee changes, Long expectedVersion) {
+    if (!updated(id, (employee, version) -> employeeRepository.patch(id, employee, version), changes,
+        expectedVersion)) {
+      return false;
+    }
+
+    // Subscribers get the whole row rather than the changes, which leave the other fields unknown
+    Optional<Employee> stored = ReplicaRoutingDataSource.onPrimary(() -> employeeRepository.findById(id));
+    if (stored.isEmpty()) {
+      // Deleted right after the patch, the delete is what subscribers get to see
+      if (expectedVersion != null) {
+        changes.setVersion(expectedVersion + 1);
+      }
+      employeeCache.invalidate(id);
+      return true;
+    }
+    changes.setId(id);
+    copy(stored.get(), changes);
+    employeeCache.put(stored.get());
+    employeeSearchIndex.index(stored.get());
+    employeeChangeFeed.publish(EmployeeChange.Type.PATCHED, id, stored.get());
+    return true;
   }
 
   @Override
-  public Employee updateEmployee(Employee employee) {
-    return employeeRepository.save(employee);
+  @Timed(SERVICE_TIMER)
+  public boolean deleteEmployee(long id) {
+    boolean deleted = employeeRepository.deleteDirectlyById(id) > 0;
+    employeeCache.invalidate(id);
+    employeeSearchIndex.remove(id);
+    if (deleted) {
+      employeeChangeFeed.publish(EmployeeChange.Type.DELETED, id, null);
+    }
+    return deleted;
   }
 
   @Override
-  public void deleteEmployee(long id) {
-    employeeRepository.deleteById(id);
+  @Timed(SERVICE_TIMER)
+  @Transactional
+  public int deleteEmployees(Collection<Long> ids) {
+    List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<Long> deletedIds = new ArrayList<>();
+    for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+      // Only ids that existed are published, the delete alone would just tell how many there were
+      List<Long> existingIds = employeeRepository.findIdsForDelete(
+          distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size())));
+      if (!existingIds.isEmpty()) {
+        employeeRepository.deleteDirectlyByIdIn(existingIds);
+        deletedIds.addAll(existingIds);
+      }
+    }
+
+    afterCommit(() -> distinctIds.forEach(id -> {
+      employeeCache.invalidate(id);
+      employeeSearchIndex.remove(id);
+    }));
+    deletedIds.forEach(id -> employeeChangeFeed.publish(EmployeeChange.Type.DELETED, id, null));
+    return deletedIds.size();
+  }
+
+  /**
+   * Runs {@code action} once the current transaction commits, or right away without one. Evicting before the commit
+   * would let a concurrent lookup, which still sees the old rows, cache them again.
+   */
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private boolean updated(long id, ToIntBiFunction<Employee, Long> update, Employee employee, Long expectedVersion) {
+    return EmployeeServiceSupport.updated(employeeCache, id, update, employee, expectedVersion,
+        EmployeeServiceImpl::isDuplicateEmail);
+  }
+
+  private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+    if (!(e.getCause() instanceof ConstraintViolationException)) {
+      return false;
+    }
+
+    String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+    return constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_INDEX);
   }
 }
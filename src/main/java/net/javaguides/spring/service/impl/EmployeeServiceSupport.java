@@ -0,0 +1,87 @@
+package net.javaguides.spring.service.impl;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+
+/**
+ * Paging, search and update steps shared by the JPA, sharded and reactive services, which differ only in how they
+ * reach the rows.
+ */
+final class EmployeeServiceSupport {
+
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_MATCHES = 100;
+  // Bounded IN lists keep each statement within the driver's parameter limits
+  static final int DELETE_CHUNK_SIZE = 1000;
+
+  private EmployeeServiceSupport() {
+  }
+
+  static int pageSize(int requested) {
+    return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+  }
+
+  static int matchLimit(int requested) {
+    return Math.max(1, Math.min(requested, MAX_MATCHES));
+  }
+
+  static long offset(int page, int pageSize) {
+    return (long) Math.max(page, 0) * pageSize;
+  }
+
+  /**
+   * Returns a LIKE pattern, with {@code !} as the escape character, matching values that start with {@code prefix}.
+   * A prefix pattern lets the (last_name, first_name) index serve both the filter and the order by.
+   */
+  static String prefixPattern(String prefix) {
+    return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+  }
+
+  /**
+   * Builds a keyset page from up to {@code pageSize + 1} rows ordered by id. The extra row tells whether another page
+   * exists without a count query.
+   */
+  static EmployeePage page(List<Employee> employees, int pageSize) {
+    if (employees.size() <= pageSize) {
+      return new EmployeePage(employees, null);
+    }
+
+    List<Employee> content = employees.subList(0, pageSize);
+    return new EmployeePage(content, content.get(pageSize - 1).getId());
+  }
+
+  /**
+   * Runs a conditional update and tells whether it changed the row, evicting the cached copy when it did not.
+   */
+  static boolean updated(EmployeeCache employeeCache, long id, ToIntBiFunction<Employee, Long> update,
+      Employee employee, Long expectedVersion, Predicate<DataIntegrityViolationException> isDuplicateEmail) {
+    try {
+      if (update.applyAsInt(employee, expectedVersion) > 0) {
+        return true;
+      }
+      // Missing or at another version, either way a cached copy is stale
+      employeeCache.invalidate(id);
+      return false;
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail.test(e)) {
+        throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail(), e);
+      }
+      throw e;
+    }
+  }
+
+  static void copy(Employee from, Employee to) {
+    to.setFirstName(from.getFirstName());
+    to.setLastName(from.getLastName());
+    to.setEmail(from.getEmail());
+    to.setVersion(from.getVersion());
+  }
+}
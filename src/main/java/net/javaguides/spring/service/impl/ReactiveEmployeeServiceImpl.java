@@ -0,0 +1,121 @@
+package net.javaguides.spring.service.impl;
+
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.matchLimit;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.offset;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.page;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.pageSize;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.prefixPattern;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.repository.ReactiveEmployeeRepository;
+import net.javaguides.spring.search.EmployeeMatch;
+import net.javaguides.spring.search.EmployeeSearchIndex;
+import net.javaguides.spring.service.ReactiveEmployeeService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+  private final ReactiveEmployeeRepository employeeRepository;
+  private final EmployeeSearchIndex employeeSearchIndex;
+
+  @Override
+  public Mono<Employee> saveEmployee(Employee employee) {
+    // Always insert, the id is generated by the database
+    employee.setId(0L);
+    return employeeRepository.save(employee)
+        .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail,
+            e -> new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail(), e))
+        .doOnNext(employeeSearchIndex::index);
+  }
+
+  @Override
+  @Transactional
+  public Mono<List<Employee>> saveEmployees(List<Employee> employees) {
+    Set<String> emails = new HashSet<>();
+    for (Employee employee : employees) {
+      if (!emails.add(employee.getEmail())) {
+        return Mono.error(
+            new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail()));
+      }
+      employee.setId(0L);
+    }
+
+    return employeeRepository.findExistingEmails(emails).next()
+        .flatMap(email -> Mono.<List<Employee>>error(
+            new EmployeeAlreadyExistsException("Employee already exist with given email: " + email)))
+        .switchIfEmpty(Mono.defer(() -> employeeRepository.saveAll(employees).collectList()))
+        .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail,
+            e -> new EmployeeAlreadyExistsException("Employee already exist with one of the given emails", e))
+        .doOnNext(savedEmployees -> savedEmployees.forEach(employeeSearchIndex::index));
+  }
+
+  @Override
+  public Flux<Employee> getAllEmployees() {
+    return employeeRepository.findAll();
+  }
+
+  @Override
+  public Mono<EmployeePage> getEmployeesPage(long after, int limit) {
+    int pageSize = pageSize(limit);
+    return employeeRepository.findPageAfter(after, pageSize + 1).collectList()
+        .map(employees -> page(employees, pageSize));
+  }
+
+  @Override
+  public Flux<Employee> searchEmployeesByName(String name, int page, int size) {
+    int pageSize = pageSize(size);
+    return employeeRepository.findByLastNamePrefix(prefixPattern(name), pageSize, offset(page, pageSize));
+  }
+
+  @Override
+  public Flux<EmployeeMatch> searchEmployees(String query, int limit) {
+    return Flux.defer(() -> Flux.fromIterable(employeeSearchIndex.search(query, matchLimit(limit))));
+  }
+
+  @Override
+  public Flux<Employee> exportEmployees() {
+    return employeeRepository.findAll();
+  }
+
+  @Override
+  public Mono<Employee> getEmployeeById(long id) {
+    return employeeRepository.findById(id);
+  }
+
+  @Override
+  public Mono<Employee> updateEmployee(Employee employee) {
+    return employeeRepository.save(employee).doOnNext(employeeSearchIndex::index);
+  }
+
+  @Override
+  public Mono<Boolean> deleteEmployee(long id) {
+    return employeeRepository.deleteById(id).doOnSuccess(rows -> employeeSearchIndex.remove(id)).map(rows -> rows > 0);
+  }
+
+  // R2DBC drivers report the violated constraint in the message only
+  private static boolean isDuplicateEmail(Throwable e) {
+    if (!(e instanceof DataIntegrityViolationException)) {
+      return false;
+    }
+
+    String message = ((DataIntegrityViolationException) e).getMostSpecificCause().getMessage();
+    return message != null && message.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_INDEX);
+  }
+}
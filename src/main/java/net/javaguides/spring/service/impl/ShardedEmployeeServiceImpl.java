@@ -0,0 +1,273 @@
+package net.javaguides.spring.service.impl;
+
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.DELETE_CHUNK_SIZE;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.copy;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.matchLimit;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.offset;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.page;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.pageSize;
+import static net.javaguides.spring.service.impl.EmployeeServiceSupport.prefixPattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Collectors;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.annotation.Timed;
+
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.loader.EmployeeBatchLoader;
+import net.javaguides.spring.loader.EmployeeBatchLoaderProperties;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeChange;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.repository.ShardedEmployeeRepository;
+import net.javaguides.spring.search.EmployeeMatch;
+import net.javaguides.spring.search.EmployeeSearchIndex;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * {@link EmployeeService} of the sharded profile, on top of {@link ShardedEmployeeRepository} instead of JPA. Caching
+ * and search indexing work as in {@link EmployeeServiceImpl}.
+ */
+@Service
+@Profile("sharded")
+public class ShardedEmployeeServiceImpl implements EmployeeService {
+
+  private static final String SERVICE_TIMER = "employee.service";
+
+  private final ShardedEmployeeRepository employeeRepository;
+  private final EmployeeCache employeeCache;
+  private final EmployeeSearchIndex employeeSearchIndex;
+  private final EmployeeBatchLoader employeeBatchLoader;
+  private final EmployeeChangeFeed employeeChangeFeed;
+
+  public ShardedEmployeeServiceImpl(ShardedEmployeeRepository employeeRepository, EmployeeCache employeeCache,
+      EmployeeSearchIndex employeeSearchIndex, EmployeeBatchLoaderProperties batchLoaderProperties,
+      EmployeeChangeFeed employeeChangeFeed) {
+    this.employeeRepository = employeeRepository;
+    this.employeeCache = employeeCache;
+    this.employeeSearchIndex = employeeSearchIndex;
+    this.employeeChangeFeed = employeeChangeFeed;
+    this.employeeBatchLoader = new EmployeeBatchLoader(batchLoaderProperties, employeeRepository::findAllById);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public Employee saveEmployee(Employee employee) {
+    try {
+      Employee savedEmployee = employeeRepository.insert(employee);
+      employeeCache.put(savedEmployee);
+      employeeSearchIndex.index(savedEmployee);
+      employeeChangeFeed.publish(EmployeeChange.Type.CREATED, savedEmployee.getId(), savedEmployee);
+      return savedEmployee;
+    } catch (DuplicateKeyException e) {
+      throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail(), e);
+    }
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<Employee> saveEmployees(List<Employee> employees) {
+    Set<String> emails = new HashSet<>();
+    for (Employee employee : employees) {
+      if (!emails.add(employee.getEmail())) {
+        throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + employee.getEmail());
+      }
+    }
+
+    List<String> existingEmails = employeeRepository.findExistingEmails(emails);
+    if (!existingEmails.isEmpty()) {
+      throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + existingEmails.get(0));
+    }
+
+    List<Employee> savedEmployees;
+    try {
+      savedEmployees = employeeRepository.insertAll(employees);
+    } catch (DuplicateKeyException e) {
+      // Lost a race with a concurrent create between the check and the insert
+      throw new EmployeeAlreadyExistsException("Employee already exist with one of the given emails", e);
+    }
+
+    // Drop negative entries left by lookups of ids that did not exist yet
+    savedEmployees.forEach(savedEmployee -> {
+      employeeCache.invalidate(savedEmployee.getId());
+      employeeSearchIndex.index(savedEmployee);
+      employeeChangeFeed.publish(EmployeeChange.Type.CREATED, savedEmployee.getId(), savedEmployee);
+    });
+    return savedEmployees;
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<String> getExistingEmails(Collection<String> emails) {
+    return emails.isEmpty() ? List.of() : employeeRepository.findExistingEmails(emails);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<Employee> getAllEmployees() {
+    return employeeRepository.findAll();
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<EmployeeView> getAllEmployeeViews() {
+    return employeeRepository.findAllViews();
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public EmployeeListVersion getEmployeeListVersion() {
+    return employeeRepository.findListVersion();
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public EmployeePage getEmployeesPage(long after, int limit) {
+    int pageSize = pageSize(limit);
+    return page(employeeRepository.findPageAfter(after, pageSize + 1), pageSize);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<Employee> searchEmployeesByName(String name, int page, int size) {
+    int pageSize = pageSize(size);
+    return employeeRepository.findByLastNamePrefix(prefixPattern(name), pageSize, offset(page, pageSize));
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<EmployeeMatch> searchEmployees(String query, int limit) {
+    return employeeSearchIndex.search(query, matchLimit(limit));
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public void exportEmployees(Consumer<Employee> action) {
+    employeeRepository.streamAll(action);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public Optional<Employee> getEmployeeById(long id) {
+    return employeeCache.get(id, employeeBatchLoader::load);
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public List<Employee> getEmployeesByIds(Collection<Long> ids) {
+    Map<Long, Optional<Employee>> employees = employeeCache.getAll(ids, employeeBatchLoader::loadAll);
+    return new LinkedHashSet<>(ids).stream()
+        .flatMap(id -> employees.get(id).stream())
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public Optional<EmployeeView> getEmployeeViewById(long id) {
+    return employeeRepository.findById(id).map(employee -> new EmployeeView(employee.getId(),
+        employee.getFirstName(), employee.getLastName(), employee.getEmail(), employee.getVersion()));
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public boolean updateEmployee(Employee employee, Long expectedVersion) {
+    if (!updated(employee.getId(), employeeRepository::update, employee, expectedVersion)) {
+      return false;
+    }
+
+    if (expectedVersion != null) {
+      employee.setVersion(expectedVersion + 1);
+    } else {
+      // The new version is unknown without reading the row back
+      Optional<Employee> stored = employeeRepository.findById(employee.getId());
+      if (stored.isEmpty()) {
+        // Deleted right after the update, the delete is what callers and subscribers get to see
+        employeeCache.invalidate(employee.getId());
+        return true;
+      }
+      copy(stored.get(), employee);
+    }
+    employeeCache.put(employee);
+    employeeSearchIndex.index(employee);
+    employeeChangeFeed.publish(EmployeeChange.Type.UPDATED, employee.getId(), employee);
+    return true;
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public boolean patchEmployee(long id, Employee changes, Long expectedVersion) {
+    if (!updated(id, (employee, version) -> employeeRepository.patch(id, employee, version), changes,
+        expectedVersion)) {
+      return false;
+    }
+
+    // Subscribers get the whole row rather than the changes, which leave the other fields unknown
+    Optional<Employee> stored = employeeRepository.findById(id);
+    if (stored.isEmpty()) {
+      // Deleted right after the patch, the delete is what subscribers get to see
+      if (expectedVersion != null) {
+        changes.setVersion(expectedVersion + 1);
+      }
+      employeeCache.invalidate(id);
+      return true;
+    }
+    changes.setId(id);
+    copy(stored.get(), changes);
+    employeeCache.put(stored.get());
+    employeeSearchIndex.index(stored.get());
+    employeeChangeFeed.publish(EmployeeChange.Type.PATCHED, id, stored.get());
+    return true;
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public boolean deleteEmployee(long id) {
+    boolean deleted = employeeRepository.deleteById(id) > 0;
+    employeeCache.invalidate(id);
+    employeeSearchIndex.remove(id);
+    if (deleted) {
+      employeeChangeFeed.publish(EmployeeChange.Type.DELETED, id, null);
+    }
+    return deleted;
+  }
+
+  @Override
+  @Timed(SERVICE_TIMER)
+  public int deleteEmployees(Collection<Long> ids) {
+    List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<Long> deletedIds = new ArrayList<>();
+    for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+      deletedIds.addAll(employeeRepository.deleteByIdIn(
+          distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size()))));
+    }
+
+    distinctIds.forEach(id -> {
+      employeeCache.invalidate(id);
+      employeeSearchIndex.remove(id);
+    });
+    deletedIds.forEach(id -> employeeChangeFeed.publish(EmployeeChange.Type.DELETED, id, null));
+    return deletedIds.size();
+  }
+
+  private boolean updated(long id, ToIntBiFunction<Employee, Long> update, Employee employee, Long expectedVersion) {
+    return EmployeeServiceSupport.updated(employeeCache, id, update, employee, expectedVersion,
+        DuplicateKeyException.class::isInstance);
+  }
+}
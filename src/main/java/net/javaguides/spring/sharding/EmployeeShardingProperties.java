@@ -0,0 +1,32 @@
+package net.javaguides.spring.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.sharding")
+public class EmployeeShardingProperties {
+  /**
+   * One database per shard. Ids are spread by their remainder modulo the shard count, so shards can only be added
+   * by moving rows.
+   */
+  private List<Shard> shards = new ArrayList<>();
+  private String username;
+  private String password;
+  /**
+   * Creates the tables of schema-sharded.sql on every shard at startup, for embedded databases.
+   */
+  private boolean initializeSchema;
+
+  @Getter
+  @Setter
+  public static class Shard {
+    private String url;
+  }
+}
@@ -0,0 +1,56 @@
+package net.javaguides.spring.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import net.javaguides.spring.repository.ShardedEmployeeRepository;
+
+/**
+ * One connection pool per shard of {@code employee.sharding.shards}. The pools are not beans, so JPA and the
+ * datasource auto-configuration stay out of the sharded profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("sharded")
+public class ShardingConfiguration {
+
+  @Bean
+  public ShardedEmployeeRepository shardedEmployeeRepository(EmployeeShardingProperties properties,
+      Environment environment) {
+    if (properties.getShards().isEmpty()) {
+      throw new IllegalStateException("The sharded profile needs at least one employee.sharding.shards entry");
+    }
+
+    Binder binder = Binder.get(environment);
+    List<DataSource> dataSources = new ArrayList<>();
+    for (EmployeeShardingProperties.Shard shard : properties.getShards()) {
+      HikariDataSource dataSource = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .url(shard.getUrl())
+          .username(properties.getUsername())
+          .password(properties.getPassword())
+          .build();
+      // Every shard gets the pool settings of spring.datasource.hikari
+      binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+      dataSource.setPoolName("shard-" + dataSources.size());
+      dataSources.add(dataSource);
+    }
+
+    ShardedEmployeeRepository repository = new ShardedEmployeeRepository(dataSources);
+    if (properties.isInitializeSchema()) {
+      repository.initializeSchema();
+    }
+    return repository;
+  }
+}
@@ -0,0 +1,53 @@
+package net.javaguides.spring.web;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import net.javaguides.spring.protobuf.EmployeeProtobufHttpMessageConverter;
+
+/**
+ * Binary Smile, CBOR and protobuf representations next to JSON, picked by the Accept and Content-Type headers, and
+ * generated property accessors for every Jackson mapper.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+  public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  // Boot registers Module beans with every ObjectMapper it builds: Blackbird replaces reflective getter and setter
+  // calls with lambdas generated at runtime
+  @Bean
+  public BlackbirdModule blackbirdModule() {
+    return new BlackbirdModule();
+  }
+
+  // Built from Boot's builder so the binary formats share the JSON mapper's modules and settings. Boot puts these
+  // beans in place of Spring MVC's default Smile and CBOR converters, after the JSON one.
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  // Appended rather than declared as a bean: Boot puts converter beans of new types first, which would make protobuf
+  // the answer to Accept */*
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new EmployeeProtobufHttpMessageConverter());
+  }
+}
@@ -0,0 +1,18 @@
+-- Schema of the reactive profile. Ids come from employees_seq, the table Hibernate keeps the pooled JPA sequence in on
+-- MySQL, so both profiles can share one database.
+create table if not exists employees_seq (
+  next_val bigint
+);
+
+insert into employees_seq select 1 from dual where not exists (select next_val from employees_seq);
+
+create table if not exists employees (
+  id bigint primary key,
+  first_name varchar(255) not null,
+  last_name varchar(255) not null,
+  email varchar(255) not null,
+  version bigint not null default 0,
+  constraint uk_employees_email unique (email)
+);
+
+create index if not exists idx_employees_last_first on employees (last_name, first_name);
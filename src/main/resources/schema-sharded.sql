@@ -0,0 +1,19 @@
+-- Schema of every shard of the sharded profile, run against embedded databases only. Shard n hands out the ids
+-- n + 1, n + 1 + shard count, ... so an id alone names its shard; on MySQL set auto_increment_offset and
+-- auto_increment_increment to the same values instead.
+create table if not exists employees (
+  id bigint generated by default as identity (start with {first_id} increment by {shard_count}) primary key,
+  first_name varchar(255) not null,
+  last_name varchar(255) not null,
+  email varchar(255) not null,
+  version bigint not null default 0
+);
+
+create index if not exists idx_employees_last_first on employees (last_name, first_name);
+
+-- Global email index, partitioned by email hash rather than by id: a row lives on the shard of its email and points
+-- to the employee, wherever the employee is. Its primary key keeps emails unique across shards.
+create table if not exists employee_emails (
+  email varchar(255) primary key,
+  employee_id bigint not null
+);
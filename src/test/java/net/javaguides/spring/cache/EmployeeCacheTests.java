@@ -0,0 +1,194 @@
+package net.javaguides.spring.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.javaguides.spring.model.Employee;
+
+class EmployeeCacheTests {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private EmployeeCache employeeCache;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    EmployeeCacheProperties properties = new EmployeeCacheProperties();
+    properties.setTtl(Duration.ofMinutes(10));
+    properties.setNegativeTtl(Duration.ofSeconds(5));
+    employeeCache = new EmployeeCache(properties, nanos::get);
+    employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+  }
+
+  private Optional<Employee> load(long id) {
+    loads.incrementAndGet();
+    return id == employee.getId() ? Optional.of(employee) : Optional.empty();
+  }
+
+  @Test
+  void givenCachedEmployee_whenGet_thenNotLoadedAgain() {
+    //given - precondition or setup
+    employeeCache.get(1L, this::load);
+
+    // when - action or the behaviour that we are going to test
+    Optional<Employee> cachedEmployee = employeeCache.get(1L, this::load);
+
+    // then - verify the output
+    assertThat(cachedEmployee).contains(employee);
+    assertThat(loads).hasValue(1);
+    assertThat(employeeCache.stats().hitCount()).isEqualTo(1);
+    assertThat(employeeCache.stats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenConcurrentMisses_whenGet_thenSingleLoad() throws Exception {
+    //given - precondition or setup
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Optional<Employee>> first = CompletableFuture.supplyAsync(() -> employeeCache.get(1L, id -> {
+      loading.countDown();
+      await(release);
+      return load(id);
+    }));
+    loading.await(5, TimeUnit.SECONDS);
+
+    // when - action or the behaviour that we are going to test
+    CompletableFuture<Optional<Employee>> second = CompletableFuture.supplyAsync(() -> employeeCache.get(1L, this::load));
+    release.countDown();
+
+    // then - verify the output
+    assertThat(first.get(5, TimeUnit.SECONDS)).contains(employee);
+    assertThat(second.get(5, TimeUnit.SECONDS)).contains(employee);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void givenLoadInFlight_whenInvalidateAndGetOthers_thenNotBlockedAndStaleLoadNotCached() throws Exception {
+    //given - precondition or setup
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Optional<Employee>> slow = CompletableFuture.supplyAsync(() -> employeeCache.get(1L, id -> {
+      loading.countDown();
+      await(release);
+      return load(id);
+    }));
+    loading.await(5, TimeUnit.SECONDS);
+
+    // when - action or the behaviour that we are going to test
+    CompletableFuture<Optional<Employee>> other = CompletableFuture.supplyAsync(() -> {
+      employeeCache.invalidate(1L);
+      return employeeCache.get(2L, this::load);
+    });
+
+    // then - verify the output
+    assertThat(other.get(5, TimeUnit.SECONDS)).isEmpty();
+    release.countDown();
+    assertThat(slow.get(5, TimeUnit.SECONDS)).contains(employee);
+    employeeCache.get(1L, this::load);
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  void givenFailingLoad_whenGet_thenThrownAndLoadedAgainNextTime() {
+    //given - precondition or setup
+    assertThatThrownBy(() -> employeeCache.get(1L, id -> {
+      throw new IllegalStateException("Database is down");
+    })).isInstanceOf(IllegalStateException.class).hasMessage("Database is down");
+
+    // when - action or the behaviour that we are going to test
+    Optional<Employee> loadedEmployee = employeeCache.get(1L, this::load);
+
+    // then - verify the output
+    assertThat(loadedEmployee).contains(employee);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void givenSomeCached_whenGetAll_thenOnlyMissingLoadedInOneCall() {
+    //given - precondition or setup
+    employeeCache.put(employee);
+    List<Set<Long>> loadedIds = new ArrayList<>();
+
+    // when - action or the behaviour that we are going to test
+    Map<Long, Optional<Employee>> employees = employeeCache.getAll(List.of(1L, 2L, 3L), ids -> {
+      loadedIds.add(ids);
+      Map<Long, Optional<Employee>> results = new LinkedHashMap<>();
+      ids.forEach(id -> results.put(id, Optional.empty()));
+      return results;
+    });
+
+    // then - verify the output
+    assertThat(employees).containsOnlyKeys(1L, 2L, 3L);
+    assertThat(employees.get(1L)).contains(employee);
+    assertThat(loadedIds).containsExactly(Set.of(2L, 3L));
+  }
+
+  @Test
+  void givenMissingEmployee_whenNegativeTtlElapsed_thenLoadedAgain() {
+    //given - precondition or setup
+    employeeCache.get(2L, this::load);
+    employeeCache.get(2L, this::load);
+    assertThat(loads).hasValue(1);
+
+    // when - action or the behaviour that we are going to test
+    nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+    Optional<Employee> missingEmployee = employeeCache.get(2L, this::load);
+
+    // then - verify the output
+    assertThat(missingEmployee).isEmpty();
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void givenCachedEmployee_whenInvalidate_thenLoadedAgain() {
+    //given - precondition or setup
+    employeeCache.get(1L, this::load);
+
+    // when - action or the behaviour that we are going to test
+    employeeCache.invalidate(1L);
+    employeeCache.get(1L, this::load);
+
+    // then - verify the output
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void givenNegativeEntry_whenPut_thenEmployeeReturned() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    employeeCache.get(2L, this::load);
+
+    // when - action or the behaviour that we are going to test
+    employeeCache.put(employee2);
+
+    // then - verify the output
+    assertThat(employeeCache.get(2L, this::load)).contains(employee2);
+    assertThat(loads).hasValue(1);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
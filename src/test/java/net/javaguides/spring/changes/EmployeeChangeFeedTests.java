@@ -0,0 +1,278 @@
+package net.javaguides.spring.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.Filter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.DelegatingServletOutputStream;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.javaguides.spring.controller.EmployeeController;
+import net.javaguides.spring.exception.ServiceUnavailableException;
+import net.javaguides.spring.exception.TooManyRequestsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeChange;
+import net.javaguides.spring.service.EmployeeService;
+
+class EmployeeChangeFeedTests {
+
+  private static final Pattern RESET = Pattern.compile("id:(\\w+)-(\\d+)\nevent:reset\n");
+  // Requests with this header get a response that stops taking writes once stalled, like a client that stopped reading
+  private static final String STALLING = "X-Stalling";
+
+  // Stalls the writes to responses of STALLING requests until released
+  private final AtomicBoolean stalled = new AtomicBoolean();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private EmployeeChangeFeed employeeChangeFeed;
+  private MockMvc mockMvc;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    start(10);
+    employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    employeeChangeFeed.stop();
+  }
+
+  private void start(int bufferSize) {
+    EmployeeChangeFeedProperties properties = new EmployeeChangeFeedProperties();
+    properties.setBufferSize(bufferSize);
+    properties.setMaxSubscribers(3);
+    properties.setDispatchThreads(1);
+    properties.setHeartbeat(Duration.ofMillis(50));
+    properties.setWriteTimeout(Duration.ofMillis(200));
+    employeeChangeFeed = new EmployeeChangeFeed(new ObjectMapper(), properties);
+    employeeChangeFeed.start();
+    Filter stalling = (request, response, chain) -> chain.doFilter(request,
+        ((HttpServletRequest) request).getHeader(STALLING) == null ? response
+            : new StallingResponse((HttpServletResponse) response));
+    mockMvc = MockMvcBuilders.standaloneSetup(new EmployeeController(mock(EmployeeService.class), null, null,
+        employeeChangeFeed, new ObjectMapper(), null, null)).addFilters(stalling).build();
+  }
+
+  private final class StallingResponse extends HttpServletResponseWrapper {
+    private ServletOutputStream output;
+
+    StallingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (output == null) {
+        ServletOutputStream target = super.getOutputStream();
+        output = new DelegatingServletOutputStream(target) {
+          @Override
+          public void write(int b) throws IOException {
+            stall();
+            target.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            stall();
+            target.write(b, off, len);
+          }
+        };
+      }
+      return output;
+    }
+
+    private void stall() {
+      if (stalled.get()) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+    return mockMvc.perform(lastEventId == null ? get("/api/employees/changes")
+        : get("/api/employees/changes").header("Last-Event-ID", lastEventId))
+        .andExpect(request().asyncStarted())
+        .andReturn()
+        .getResponse();
+  }
+
+  private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(response.getContentAsString()).contains(expected);
+    return response.getContentAsString();
+  }
+
+  private static String epoch(String content) {
+    Matcher reset = RESET.matcher(content);
+    assertThat(reset.find()).isTrue();
+    return reset.group(1);
+  }
+
+  @Test
+  void givenNoLastEventId_whenSubscribe_thenResetThenChanges() throws Exception {
+    //given - precondition or setup
+    MockHttpServletResponse response = subscribe(null);
+    String epoch = epoch(awaitContent(response, "event:reset"));
+
+    // when - action or the behaviour that we are going to test
+    employeeChangeFeed.publish(EmployeeChange.Type.CREATED, employee.getId(), employee);
+
+    // then - verify the output
+    String content = awaitContent(response, "id:" + epoch + "-1\n");
+    assertThat(content).startsWith("id:" + epoch + "-0\nevent:reset\ndata:0\n\n");
+    assertThat(content).contains("id:" + epoch + "-1\ndata:{\"sequence\":1,\"type\":\"CREATED\",\"employeeId\":1,"
+        + "\"employee\":{\"id\":1,\"firstName\":\"Elkin\"");
+  }
+
+  @Test
+  void givenLastEventId_whenSubscribe_thenOnlyLaterChanges() throws Exception {
+    //given - precondition or setup
+    String epoch = epoch(awaitContent(subscribe(null), "event:reset"));
+    employeeChangeFeed.publish(EmployeeChange.Type.CREATED, 1L, employee);
+    employeeChangeFeed.publish(EmployeeChange.Type.PATCHED, 1L, Employee.builder().firstName("Sofi").build());
+    employeeChangeFeed.publish(EmployeeChange.Type.DELETED, 1L, null);
+
+    // when - action or the behaviour that we are going to test
+    MockHttpServletResponse response = subscribe(epoch + "-1");
+
+    // then - verify the output
+    String content = awaitContent(response, "id:" + epoch + "-3\n");
+    assertThat(content).doesNotContain("event:reset").doesNotContain("\"CREATED\"");
+    assertThat(content).startsWith("id:" + epoch + "-2\ndata:{\"sequence\":2,\"type\":\"PATCHED\"");
+    assertThat(content).contains("id:" + epoch + "-3\ndata:{\"sequence\":3,\"type\":\"DELETED\",\"employeeId\":1,"
+        + "\"employee\":null}");
+  }
+
+  @Test
+  void givenLastEventIdNoLongerBuffered_whenSubscribe_thenReset() throws Exception {
+    //given - precondition or setup
+    employeeChangeFeed.stop();
+    start(2);
+    String epoch = epoch(awaitContent(subscribe(null), "event:reset"));
+    for (int i = 0; i < 5; i++) {
+      employeeChangeFeed.publish(EmployeeChange.Type.UPDATED, 1L, employee);
+    }
+
+    // when - action or the behaviour that we are going to test
+    MockHttpServletResponse behind = subscribe(epoch + "-1");
+    MockHttpServletResponse otherNode = subscribe("other-4");
+
+    // then - verify the output
+    assertThat(awaitContent(behind, "event:reset")).startsWith("id:" + epoch + "-5\nevent:reset\ndata:5\n\n");
+    assertThat(awaitContent(otherNode, "event:reset")).startsWith("id:" + epoch + "-5\nevent:reset\n");
+  }
+
+  @Test
+  void givenTransaction_whenPublish_thenOnlyCommittedChangesAdded() {
+    //given - precondition or setup
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      // when - action or the behaviour that we are going to test
+      employeeChangeFeed.publish(EmployeeChange.Type.CREATED, employee.getId(), employee);
+      long beforeCommit = employeeChangeFeed.lastSequence();
+      TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+      // then - verify the output
+      assertThat(beforeCommit).isZero();
+      assertThat(employeeChangeFeed.lastSequence()).isEqualTo(1);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void givenMaxSubscribers_whenSubscribe_thenRefused() throws Exception {
+    //given - precondition or setup
+    for (int i = 0; i < 3; i++) {
+      subscribe(null);
+    }
+
+    // when - action or the behaviour that we are going to test
+    assertThatThrownBy(() -> employeeChangeFeed.subscribe(null)).isInstanceOf(TooManyRequestsException.class);
+
+    // then - verify the output
+    assertThat(employeeChangeFeed.subscribers()).isEqualTo(3);
+  }
+
+  @Test
+  void givenSubscriberThatStopsReading_whenWriteTimesOut_thenDroppedAndOthersServed() throws Exception {
+    //given - precondition or setup
+    MockHttpServletResponse stalling = mockMvc.perform(get("/api/employees/changes").header(STALLING, "true"))
+        .andExpect(request().asyncStarted())
+        .andReturn()
+        .getResponse();
+    awaitContent(stalling, "event:reset");
+    stalled.set(true);
+    // Its only dispatch thread is now stuck writing this change
+    employeeChangeFeed.publish(EmployeeChange.Type.CREATED, employee.getId(), employee);
+
+    // when - action or the behaviour that we are going to test
+    MockHttpServletResponse reading = subscribe(null);
+
+    // then - verify the output
+    String epoch = epoch(awaitContent(reading, "event:reset"));
+    employeeChangeFeed.publish(EmployeeChange.Type.DELETED, employee.getId(), null);
+    awaitContent(reading, "id:" + epoch + "-2\n");
+    assertThat(employeeChangeFeed.subscribers()).isEqualTo(1);
+    assertThat(stalling.getContentAsString()).doesNotContain("id:" + epoch + "-1\n");
+  }
+
+  @Test
+  void givenStoppedFeed_whenSubscribe_thenUnavailable() {
+    //given - precondition or setup
+    employeeChangeFeed.stop();
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> employeeChangeFeed.subscribe(null)).isInstanceOf(ServiceUnavailableException.class);
+    employeeChangeFeed.start();
+  }
+
+  @Test
+  void givenIdleSubscriber_whenHeartbeatDue_thenCommentSent() throws Exception {
+    //given - precondition or setup
+    MockHttpServletResponse response = subscribe(null);
+
+    // when - action or the behaviour that we are going to test
+    String content = awaitContent(response, ":heartbeat\n\n");
+
+    // then - verify the output
+    assertThat(content).startsWith("id:");
+  }
+}
@@ -1,48 +1,103 @@
 package net.javaguides.spring.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.util.JsonFormat;
 
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.exception.EmployeeQueueFullException;
+import net.javaguides.spring.exception.InvalidEmployeeException;
+import net.javaguides.spring.exception.ServiceUnavailableException;
+import net.javaguides.spring.exception.TooManyRequestsException;
+import net.javaguides.spring.ingest.EmployeeCsvImporter;
+import net.javaguides.spring.ingest.EmployeeWriteBehindQueue;
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.model.EmployeeListVersion;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.model.EmployeeView;
+import net.javaguides.spring.protobuf.EmployeeProtobufHttpMessageConverter;
+import net.javaguides.spring.protobuf.EmployeeProtos;
+import net.javaguides.spring.search.EmployeeMatch;
 import net.javaguides.spring.service.EmployeeService;
+import net.javaguides.spring.web.WebConfiguration;
 
 @WebMvcTest
+@Import(WebConfiguration.class)
 class EmployeeControllerTests {
 
   @Autowired
   private MockMvc mockMvc;
   @Autowired
   private ObjectMapper objectMapper;
+  @Autowired
+  private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+  @Autowired
+  private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
   @MockBean
   private EmployeeService employeeService;
+  @MockBean
+  private EmployeeWriteBehindQueue employeeWriteBehindQueue;
+  @MockBean
+  private EmployeeCsvImporter employeeCsvImporter;
+  @MockBean
+  private EmployeeChangeFeed employeeChangeFeed;
 
   private Employee employee;
+  private ObjectMapper smileMapper;
+  private ObjectMapper cborMapper;
 
   @BeforeEach
   public void setup() {
+    smileMapper = smileHttpMessageConverter.getObjectMapper();
+    cborMapper = cborHttpMessageConverter.getObjectMapper();
     employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
   }
 
@@ -63,16 +118,490 @@ class EmployeeControllerTests {
   }
 
   @Test
-  void givenExistingEmployees_whenGetAllEmployees_thenFoundEmployees() throws Exception {
+  void givenNewEmployees_whenCreateEmployees_thenCreatedEmployees() throws Exception {
     //given - precondition or setup
     Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
-    given(employeeService.getAllEmployees()).willReturn(List.of(employee, employee2));
+    given(employeeService.saveEmployees(any())).willAnswer((invocation) -> invocation.getArgument(0));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees/batch").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(List.of(employee, employee2))));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isCreated())
+        .andExpect(jsonPath("$.size()", is(2)))
+        .andExpect(jsonPath("$[1].email", is(employee2.getEmail())));
+  }
+
+  @Test
+  void givenNewEmployee_whenCreateEmployeeAsync_thenAcceptedWithJobLocation() throws Exception {
+    //given - precondition or setup
+    given(employeeWriteBehindQueue.submit(any(Employee.class)))
+        .willReturn(new EmployeeCreateJob("job-1", EmployeeCreateJob.Status.QUEUED, null, null));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees").param("async", "true")
+        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isAccepted())
+        .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/employees/jobs/job-1"))
+        .andExpect(jsonPath("$.id", is("job-1")))
+        .andExpect(jsonPath("$.status", is("QUEUED")));
+    verify(employeeService, never()).saveEmployee(any(Employee.class));
+  }
+
+  @Test
+  void givenFullQueue_whenCreateEmployeeAsync_thenTooManyRequests() throws Exception {
+    //given - precondition or setup
+    given(employeeWriteBehindQueue.submit(any(Employee.class)))
+        .willThrow(new EmployeeQueueFullException("Too many employee creates queued, retry later"));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees").param("async", "true")
+        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isTooManyRequests());
+  }
+
+  @Test
+  void givenEmployeeWithoutEmail_whenCreateEmployeeAsync_thenBadRequest() throws Exception {
+    //given - precondition or setup
+    given(employeeWriteBehindQueue.submit(any(Employee.class)))
+        .willThrow(new InvalidEmployeeException("email is missing"));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees").param("async", "true")
+        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Elkin\",\"lastName\":\"Torres\"}"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void givenLastEventId_whenStreamChanges_thenEventsAfterIt() throws Exception {
+    //given - precondition or setup
+    SseEmitter emitter = new SseEmitter();
+    given(employeeChangeFeed.subscribe("k1-41")).willReturn(emitter);
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(get("/api/employees/changes").header("Last-Event-ID", "k1-41"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    emitter.send(SseEmitter.event().id("k1-42").data("{\"type\":\"DELETED\",\"employeeId\":1}"));
+    emitter.complete();
+
+    // then - verify the output
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(content().string("id:k1-42\ndata:{\"type\":\"DELETED\",\"employeeId\":1}\n\n"));
+  }
+
+  @Test
+  void givenTooManySubscribers_whenStreamChanges_thenTooManyRequests() throws Exception {
+    //given - precondition or setup
+    given(employeeChangeFeed.subscribe(null))
+        .willThrow(new TooManyRequestsException("Too many change feed subscribers, retry later"));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/changes"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isTooManyRequests());
+  }
+
+  @Test
+  void givenShuttingDown_whenStreamChanges_thenServiceUnavailable() throws Exception {
+    //given - precondition or setup
+    given(employeeChangeFeed.subscribe(null)).willThrow(
+        new ServiceUnavailableException("The change feed is not accepting subscribers while shutting down"));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/changes"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isServiceUnavailable());
+  }
+
+  @Test
+  void givenFailedJob_whenGetCreateJob_thenFailureReason() throws Exception {
+    //given - precondition or setup
+    given(employeeWriteBehindQueue.getJob("job-1")).willReturn(Optional.of(new EmployeeCreateJob("job-1",
+        EmployeeCreateJob.Status.FAILED, null, "Employee already exist with given email: elkin@vita.com")));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/jobs/{id}", "job-1"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.status", is("FAILED")))
+        .andExpect(jsonPath("$.error", is("Employee already exist with given email: elkin@vita.com")));
+  }
+
+  @Test
+  void givenUnknownJob_whenGetCreateJob_thenNotFound() throws Exception {
+    //given - precondition or setup
+    given(employeeWriteBehindQueue.getJob("job-1")).willReturn(Optional.empty());
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/jobs/{id}", "job-1"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void givenCsvFile_whenImportEmployees_thenAcceptedWithImportLocation() throws Exception {
+    //given - precondition or setup
+    MockMultipartFile file = new MockMultipartFile("file", "employees.csv", "text/csv",
+        "firstName,lastName,email\nElkin,Torres,elkin@vita.com\n".getBytes(StandardCharsets.UTF_8));
+    given(employeeCsvImporter.submit(any())).willReturn(new EmployeeImportJob("import-1",
+        EmployeeImportJob.Status.RUNNING, 0, 0, 0, 0, List.of(), null));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(multipart("/api/employees/imports").file(file));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isAccepted())
+        .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/employees/imports/import-1"))
+        .andExpect(jsonPath("$.status", is("RUNNING")));
+    verify(employeeCsvImporter).submit(argThat(submitted -> "employees.csv".equals(submitted.getOriginalFilename())));
+  }
+
+  @Test
+  void givenImportInProgress_whenGetImportJob_thenProgress() throws Exception {
+    //given - precondition or setup
+    given(employeeCsvImporter.getJob("import-1")).willReturn(Optional.of(new EmployeeImportJob("import-1",
+        EmployeeImportJob.Status.RUNNING, 3000, 2990, 10, 15000,
+        List.of(new EmployeeImportJob.Rejection(7, "email is missing")), null)));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/imports/{id}", "import-1"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.rowsImported", is(2990)))
+        .andExpect(jsonPath("$.rowsPerSecond", is(15000)))
+        .andExpect(jsonPath("$.rejections[0].row", is(7)))
+        .andExpect(jsonPath("$.rejections[0].reason", is("email is missing")));
+  }
+
+  @Test
+  void givenUnknownImport_whenGetImportJob_thenNotFound() throws Exception {
+    //given - precondition or setup
+    given(employeeCsvImporter.getJob("import-1")).willReturn(Optional.empty());
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/imports/{id}", "import-1"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetAllEmployees_thenFoundEmployees() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeeListVersion()).willReturn(listVersion(2, 0, 2, 7));
+    given(employeeService.getAllEmployeeViews()).willReturn(List.of(
+        new EmployeeView(1L, "Elkin", "Torres", "elkin@vita.com", 0L),
+        new EmployeeView(2L, "Sofi", "Torres", "sofi@vita.com", 0L)));
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(get("/api/employees"));
 
     // then - verify the output
-    response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.size()", is(2)));
+    response.andDo(print()).andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, "W/\"2-0-2-7\""))
+        .andExpect(jsonPath("$.size()", is(2)))
+        .andExpect(jsonPath("$[1].email", is("sofi@vita.com")));
+  }
+
+  @Test
+  void givenUnchangedEmployees_whenGetAllEmployeesIfNoneMatch_thenNotModified() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeeListVersion()).willReturn(listVersion(2, 0, 2, 7));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").header(HttpHeaders.IF_NONE_MATCH, "\"2-0-2-7\""));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotModified()).andExpect(content().string(""));
+    verify(employeeService, never()).getAllEmployeeViews();
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetEmployeesPage_thenFoundPageAndCursor() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeesPage(0L, 1)).willReturn(new EmployeePage(List.of(employee), employee.getId()));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("limit", "1"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.size()", is(1)))
+        .andExpect(jsonPath("$.nextCursor", is(1)));
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetEmployeesByIds_thenFoundEmployees() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeesByIds(List.of(1L, 7L))).willReturn(List.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("ids", "1,7"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].email", is(employee.getEmail())));
+  }
+
+  @Test
+  void givenEmptyId_whenGetEmployeesByIds_thenBadRequest() throws Exception {
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("ids", "1,,2"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isBadRequest());
+    verify(employeeService, never()).getEmployeesByIds(any());
+  }
+
+  @Test
+  void givenExistingEmployees_whenSearchEmployees_thenFoundEmployees() throws Exception {
+    //given - precondition or setup
+    given(employeeService.searchEmployeesByName("Tor", 0, 20)).willReturn(List.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/search").param("name", "Tor"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].lastName", is(employee.getLastName())));
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchEmployeesByQuery_thenRankedMatches() throws Exception {
+    //given - precondition or setup
+    given(employeeService.searchEmployees("elk", 5)).willReturn(List.of(
+        new EmployeeMatch(employee.getId(), employee.getFirstName(), employee.getLastName(), employee.getEmail(), 3)));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/search").param("q", "elk").param("limit", "5"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].firstName", is(employee.getFirstName())))
+        .andExpect(jsonPath("$[0].score", is(3)));
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployees_thenNdjsonLines() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    willAnswer((invocation) -> {
+      Consumer<Employee> action = invocation.getArgument(0);
+      action.accept(employee);
+      action.accept(employee2);
+      return null;
+    }).given(employeeService).exportEmployees(any());
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(get("/api/employees/export")).andExpect(request().asyncStarted()).andReturn();
+    ResultActions response = mockMvc.perform(asyncDispatch(result));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string(objectMapper.writeValueAsString(employee) + "\n"
+            + objectMapper.writeValueAsString(employee2) + "\n"));
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployeesAsSmile_thenSmileValues() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    willAnswer((invocation) -> {
+      Consumer<Employee> action = invocation.getArgument(0);
+      action.accept(employee);
+      action.accept(employee2);
+      return null;
+    }).given(employeeService).exportEmployees(any());
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(get("/api/employees/export").accept(WebConfiguration.APPLICATION_SMILE_VALUE))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+        .andExpect(content().contentType(WebConfiguration.APPLICATION_SMILE_VALUE)).andReturn();
+
+    // then - verify the output
+    List<Employee> employees = smileMapper.readerFor(Employee.class)
+        .<Employee>readValues(response.getResponse().getContentAsByteArray()).readAll();
+    assertThat(employees).extracting(Employee::getEmail).containsExactly("elkin@vita.com", "sofi@vita.com");
+  }
+
+  @Test
+  void givenCborEmployee_whenCreateEmployee_thenCreatedCborEmployee() throws Exception {
+    //given - precondition or setup
+    given(employeeService.saveEmployee(any(Employee.class))).willAnswer((invocation) -> invocation.getArgument(0));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_CBOR)
+        .accept(MediaType.APPLICATION_CBOR)
+        .content(cborMapper.writeValueAsBytes(employee)));
+
+    // then - verify the output
+    byte[] body = response.andDo(print()).andExpect(status().isCreated())
+        .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+        .andReturn().getResponse().getContentAsByteArray();
+    assertThat(cborMapper.readValue(body, Employee.class).getEmail()).isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenExistingEmployee_whenGetEmployeeByIdAsSmile_thenSmileEmployee() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/{id}", employee.getId())
+        .accept(WebConfiguration.APPLICATION_SMILE_VALUE));
+
+    // then - verify the output
+    byte[] body = response.andExpect(status().isOk())
+        .andExpect(content().contentType(WebConfiguration.APPLICATION_SMILE_VALUE))
+        .andReturn().getResponse().getContentAsByteArray();
+    assertThat(smileMapper.readValue(body, Employee.class).getLastName()).isEqualTo(employee.getLastName());
+  }
+
+  @Test
+  void givenExistingEmployee_whenGetEmployeeByIdAsProtobuf_thenProtobufEmployee() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/{id}", employee.getId())
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+
+    // then - verify the output
+    byte[] body = response.andExpect(status().isOk())
+        .andExpect(content().contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+        .andReturn().getResponse().getContentAsByteArray();
+    EmployeeProtos.Employee message = EmployeeProtos.Employee.parseFrom(body);
+    assertThat(message.getId()).isEqualTo(employee.getId());
+    assertThat(message.getLastName()).isEqualTo(employee.getLastName());
+  }
+
+  @Test
+  void givenProtobufEmployee_whenCreateEmployee_thenCreatedProtobufEmployee() throws Exception {
+    //given - precondition or setup
+    given(employeeService.saveEmployee(any(Employee.class))).willAnswer((invocation) -> invocation.getArgument(0));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees")
+        .contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+        .content(EmployeeProtobufHttpMessageConverter.toMessage(employee).toByteArray()));
+
+    // then - verify the output
+    byte[] body = response.andExpect(status().isCreated())
+        .andExpect(content().contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+        .andReturn().getResponse().getContentAsByteArray();
+    assertThat(EmployeeProtos.Employee.parseFrom(body).getEmail()).isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenProtobufPatchWithoutNames_whenPatchEmployee_thenNamesLeftOut() throws Exception {
+    //given - precondition or setup
+    EmployeeProtos.Employee changes = EmployeeProtos.Employee.newBuilder().setEmail("new@vita.com").build();
+    given(employeeService.patchEmployee(eq(1L), any(Employee.class), isNull())).willReturn(true);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L)
+        .contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+        .content(changes.toByteArray()));
+
+    // then - verify the output
+    response.andExpect(status().isNoContent());
+    verify(employeeService).patchEmployee(eq(1L), argThat(employee -> employee.getFirstName() == null
+        && employee.getLastName() == null && "new@vita.com".equals(employee.getEmail())), isNull());
+  }
+
+  @Test
+  void givenEmployeesPage_whenGetEmployeesPageAsProtobuf_thenProtobufPage() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getEmployeesPage(0L, 1)).willReturn(new EmployeePage(List.of(employee), 1L));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("limit", "1")
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+
+    // then - verify the output
+    byte[] body = response.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+    EmployeeProtos.EmployeePage page = EmployeeProtos.EmployeePage.parseFrom(body);
+    assertThat(page.getContentList()).extracting(EmployeeProtos.Employee::getEmail).containsExactly("elkin@vita.com");
+    assertThat(page.hasNextCursor()).isTrue();
+    assertThat(page.getNextCursor()).isEqualTo(1L);
+  }
+
+  @Test
+  void givenMatchingEmployees_whenSearchEmployeesAsProtobuf_thenProtobufMatches() throws Exception {
+    //given - precondition or setup
+    given(employeeService.searchEmployees("elkin", 10))
+        .willReturn(List.of(new EmployeeMatch(1L, "Elkin", "Torres", "elkin@vita.com", 3)));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/search").param("q", "elkin")
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+
+    // then - verify the output
+    byte[] body = response.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+    assertThat(EmployeeProtos.EmployeeMatchList.parseFrom(body).getMatchesList())
+        .extracting(EmployeeProtos.EmployeeMatch::getScore).containsExactly(3);
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployeesAsProtobuf_thenDelimitedMessages() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    willAnswer((invocation) -> {
+      Consumer<Employee> action = invocation.getArgument(0);
+      action.accept(employee);
+      action.accept(employee2);
+      return null;
+    }).given(employeeService).exportEmployees(any());
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(get("/api/employees/export")
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+        .andExpect(content().contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF)).andReturn();
+
+    // then - verify the output
+    InputStream body = new ByteArrayInputStream(response.getResponse().getContentAsByteArray());
+    assertThat(EmployeeProtos.Employee.parseDelimitedFrom(body).getEmail()).isEqualTo("elkin@vita.com");
+    assertThat(EmployeeProtos.Employee.parseDelimitedFrom(body).getEmail()).isEqualTo("sofi@vita.com");
+    assertThat(EmployeeProtos.Employee.parseDelimitedFrom(body)).isNull();
+  }
+
+  @Test
+  void givenJsonEmployee_whenParsedAsProtobufJson_thenSameMessage() throws Exception {
+    //given - precondition or setup
+    employee.setVersion(3L);
+    String json = objectMapper.writeValueAsString(employee);
+
+    // when - action or the behaviour that we are going to test
+    EmployeeProtos.Employee.Builder message = EmployeeProtos.Employee.newBuilder();
+    JsonFormat.parser().merge(json, message);
+
+    // then - verify the output
+    assertThat(message.build()).isEqualTo(EmployeeProtobufHttpMessageConverter.toMessage(employee));
+    assertThat(EmployeeProtobufHttpMessageConverter.toEmployee(message.build()))
+        .usingRecursiveComparison().isEqualTo(employee);
   }
 
   @Test
@@ -87,11 +616,27 @@ class EmployeeControllerTests {
     // then - verify the output
     response.andDo(print())
         .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
         .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
         .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
         .andExpect(jsonPath("$.email", is(employee.getEmail())));
   }
 
+  @Test
+  void givenUnchangedEmployee_whenGetEmployeeByIdIfNoneMatch_thenNotModified() throws Exception {
+    //given - precondition or setup
+    long employeeId = 1L;
+    employee.setVersion(3L);
+    given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+        .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotModified()).andExpect(content().string(""));
+  }
+
   @Test
   void givenNonExistingEmployee_whenGetEmployeeById_thenEmpty() throws Exception {
     //given - precondition or setup
@@ -108,8 +653,10 @@ class EmployeeControllerTests {
   @Test
   void givenExistingEmployee_whenUpdateEmployee_thenUpdatedEmployee() throws Exception {
     //given - precondition or setup
-    given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.of(employee));
-    given(employeeService.updateEmployee(any(Employee.class))).willAnswer((invocation) -> invocation.getArgument(0));
+    given(employeeService.updateEmployee(any(Employee.class), isNull())).willAnswer((invocation) -> {
+      invocation.<Employee>getArgument(0).setVersion(4L);
+      return true;
+    });
     employee.setEmail("test@test.org");
     employee.setFirstName("Test");
 
@@ -119,13 +666,62 @@ class EmployeeControllerTests {
 
     // then - verify the output
     response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.firstName", is("Test")))
-        .andExpect(jsonPath("$.email", is("test@test.org")));
+        .andExpect(jsonPath("$.email", is("test@test.org")))
+        .andExpect(jsonPath("$.version", is(4)))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    verify(employeeService, never()).getEmployeeById(employee.getId());
+  }
+
+  @Test
+  void givenMatchingVersion_whenUpdateEmployeeIfMatch_thenUpdatedEmployeeAndNewETag() throws Exception {
+    //given - precondition or setup
+    given(employeeService.updateEmployee(any(Employee.class), eq(2L))).willAnswer((invocation) -> {
+      invocation.<Employee>getArgument(0).setVersion(3L);
+      return true;
+    });
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+        .andExpect(jsonPath("$.version", is(3)));
+  }
+
+  @Test
+  void givenStaleVersion_whenUpdateEmployeeIfMatch_thenPreconditionFailed() throws Exception {
+    //given - precondition or setup
+    given(employeeService.updateEmployee(any(Employee.class), eq(2L))).willReturn(false);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  void givenWeakETag_whenUpdateEmployeeIfMatch_thenPreconditionFailed() throws Exception {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+        .content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isPreconditionFailed());
+    verify(employeeService).updateEmployee(any(Employee.class), eq(-1L));
   }
 
   @Test
   void givenNonExistingEmployee_whenUpdateEmployee_thenUpdatedEmpty() throws Exception {
     //given - precondition or setup
-    given(employeeService.getEmployeeById(employee.getId())).willReturn(Optional.empty());
+    given(employeeService.updateEmployee(any(Employee.class), isNull())).willReturn(false);
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
@@ -135,11 +731,59 @@ class EmployeeControllerTests {
     response.andDo(print()).andExpect(status().isNotFound());
   }
 
+  @Test
+  void givenExistingEmployee_whenPatchEmployeeIfMatch_thenNoContentAndNewETag() throws Exception {
+    //given - precondition or setup
+    given(employeeService.patchEmployee(eq(1L), any(Employee.class), eq(0L))).willAnswer((invocation) -> {
+      invocation.<Employee>getArgument(1).setVersion(1L);
+      return true;
+    });
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .content("{\"email\":\"test@test.org\"}"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNoContent()).andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    verify(employeeService).patchEmployee(eq(1L), argThat(changes -> changes.getFirstName() == null
+        && "test@test.org".equals(changes.getEmail())), eq(0L));
+  }
+
+  @Test
+  void givenExistingEmployee_whenPatchEmployeeWithoutIfMatch_thenETagOfStoredRow() throws Exception {
+    //given - precondition or setup
+    given(employeeService.patchEmployee(eq(1L), any(Employee.class), isNull())).willAnswer((invocation) -> {
+      invocation.<Employee>getArgument(1).setVersion(7L);
+      return true;
+    });
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"email\":\"test@test.org\"}"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNoContent()).andExpect(header().string(HttpHeaders.ETAG, "\"7\""));
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenPatchEmployee_thenNotFound() throws Exception {
+    //given - precondition or setup
+    given(employeeService.patchEmployee(eq(1L), any(Employee.class), isNull())).willReturn(false);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(patch("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"email\":\"test@test.org\"}"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotFound());
+  }
+
   @Test
   void givenExistingEmployee_whenDeleteEmployee_thenOK() throws Exception {
     //given - precondition or setup
     long employeeId = 1L;
-    willDoNothing().given(employeeService).deleteEmployee(employeeId);
+    given(employeeService.deleteEmployee(employeeId)).willReturn(true);
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employeeId));
@@ -148,4 +792,63 @@ class EmployeeControllerTests {
     response.andDo(print()).andExpect(status().isOk());
   }
 
-}
\ No newline at end of file
+  @Test
+  void givenNonExistingEmployee_whenDeleteEmployee_thenNotFound() throws Exception {
+    //given - precondition or setup
+    long employeeId = 1L;
+    given(employeeService.deleteEmployee(employeeId)).willReturn(false);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employeeId));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void givenEmployeeIds_whenDeleteEmployees_thenDeletedCount() throws Exception {
+    //given - precondition or setup
+    given(employeeService.deleteEmployees(List.of(1L, 2L, 3L))).willReturn(2);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(delete("/api/employees").param("ids", "1,2,3"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isOk())
+        .andExpect(content().string("2 employees deleted successfully"));
+  }
+
+  @Test
+  void givenEmptyId_whenDeleteEmployees_thenBadRequest() throws Exception {
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(delete("/api/employees").param("ids", "1,,2"));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isBadRequest());
+    verify(employeeService, never()).deleteEmployees(any());
+  }
+
+  private static EmployeeListVersion listVersion(long count, long versionSum, long maxId, long checksum) {
+    return new EmployeeListVersion() {
+      @Override
+      public long getCount() {
+        return count;
+      }
+
+      @Override
+      public long getVersionSum() {
+        return versionSum;
+      }
+
+      @Override
+      public long getMaxId() {
+        return maxId;
+      }
+
+      @Override
+      public long getChecksum() {
+        return checksum;
+      }
+    };
+  }
+}
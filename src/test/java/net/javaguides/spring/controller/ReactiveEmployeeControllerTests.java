@@ -0,0 +1,151 @@
+package net.javaguides.spring.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.service.ReactiveEmployeeService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ActiveProfiles("reactive")
+@WebFluxTest(ReactiveEmployeeController.class)
+class ReactiveEmployeeControllerTests {
+
+  @Autowired
+  private WebTestClient webTestClient;
+  @MockBean
+  private ReactiveEmployeeService employeeService;
+
+  private Employee employee;
+
+  @BeforeEach
+  public void setup() {
+    employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+  }
+
+  @Test
+  void givenNewEmployee_whenCreateEmployee_thenCreatedEmployee() {
+    //given - precondition or setup
+    given(employeeService.saveEmployee(any(Employee.class)))
+        .willAnswer((invocation) -> Mono.just(invocation.getArgument(0)));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees").bodyValue(employee).exchange();
+
+    // then - verify the output
+    response.expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.firstName").isEqualTo(employee.getFirstName())
+        .jsonPath("$.lastName").isEqualTo(employee.getLastName())
+        .jsonPath("$.email").isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenExistingEmail_whenCreateEmployee_thenConflict() {
+    //given - precondition or setup
+    given(employeeService.saveEmployee(any(Employee.class)))
+        .willReturn(Mono.error(new EmployeeAlreadyExistsException("Employee already exist")));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees").bodyValue(employee).exchange();
+
+    // then - verify the output
+    response.expectStatus().isEqualTo(409);
+  }
+
+  @Test
+  void givenListOfEmployees_whenGetAllEmployees_thenEmployeesList() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    given(employeeService.getAllEmployees()).willReturn(Flux.just(employee, employee2));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees").exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[1].email").isEqualTo("sofi@vita.com");
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetEmployeesPage_thenFoundPageAndCursor() {
+    //given - precondition or setup
+    given(employeeService.getEmployeesPage(0L, 1)).willReturn(Mono.just(new EmployeePage(List.of(employee), 1L)));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees?limit=1").exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.content.length()").isEqualTo(1)
+        .jsonPath("$.nextCursor").isEqualTo(1);
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployees_thenNdjsonLines() {
+    //given - precondition or setup
+    given(employeeService.exportEmployees()).willReturn(Flux.just(employee, employee));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/export").exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .expectBodyList(Employee.class).hasSize(2);
+  }
+
+  @Test
+  void givenEmployeeId_whenGetEmployeeById_thenEmployee() {
+    //given - precondition or setup
+    given(employeeService.getEmployeeById(employee.getId())).willReturn(Mono.just(employee));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/{id}", employee.getId()).exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk().expectBody().jsonPath("$.email").isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenUpdateEmployee_thenNotFound() {
+    //given - precondition or setup
+    given(employeeService.getEmployeeById(employee.getId())).willReturn(Mono.empty());
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees").bodyValue(employee).exchange();
+
+    // then - verify the output
+    response.expectStatus().isNotFound();
+  }
+
+  @Test
+  void givenEmployeeId_whenDeleteEmployee_thenDeleted() {
+    //given - precondition or setup
+    given(employeeService.deleteEmployee(employee.getId())).willReturn(Mono.just(true));
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.delete().uri("/api/employees/{id}", employee.getId())
+        .exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk().expectBody(String.class).isEqualTo("Employee deleted successfully");
+  }
+}
@@ -0,0 +1,199 @@
+package net.javaguides.spring.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReplicaRoutingDataSourceTests {
+
+  private final DataSource primary = mock(DataSource.class);
+  private final DataSource replica1 = mock(DataSource.class);
+  private final DataSource replica2 = mock(DataSource.class);
+  private final Connection primaryConnection = mock(Connection.class);
+  private final Connection replica1Connection = mock(Connection.class);
+  private final Connection replica2Connection = mock(Connection.class);
+
+  private ReplicaRoutingDataSource dataSource;
+
+  @BeforeEach
+  void setup() throws SQLException {
+    given(primary.getConnection()).willReturn(primaryConnection);
+    given(replica1.getConnection()).willReturn(replica1Connection);
+    given(replica2.getConnection()).willReturn(replica2Connection);
+    given(replica1Connection.isValid(1)).willReturn(true);
+    given(replica2Connection.isValid(1)).willReturn(true);
+    // Health checks only run when the tests call them
+    dataSource = new ReplicaRoutingDataSource(primary, List.of(replica1, replica2), Duration.ofHours(1),
+        Duration.ofSeconds(1), 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReplicaRoutingDataSource.unpinPrimary();
+    dataSource.close();
+  }
+
+  @Test
+  void givenNoReadOnlyTransaction_whenGetConnection_thenPrimary() throws SQLException {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    Connection connection = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(connection).isSameAs(primaryConnection);
+  }
+
+  @Test
+  void givenReadOnlyTransactions_whenGetConnection_thenReplicasRoundRobin() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    // when - action or the behaviour that we are going to test
+    List<Connection> connections = List.of(dataSource.getConnection(), dataSource.getConnection(),
+        dataSource.getConnection());
+
+    // then - verify the output
+    assertThat(connections).containsExactly(replica1Connection, replica2Connection, replica1Connection);
+  }
+
+  @Test
+  void givenPinnedPrimary_whenGetConnectionInReadOnlyTransaction_thenPrimary() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource.pinPrimary();
+
+    // when - action or the behaviour that we are going to test
+    Connection connection = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(connection).isSameAs(primaryConnection);
+  }
+
+  @Test
+  void givenOnPrimaryInsidePinnedThread_whenDone_thenStillPinned() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource.pinPrimary();
+
+    // when - action or the behaviour that we are going to test
+    ReplicaRoutingDataSource.onPrimary(() -> null);
+
+    // then - verify the output
+    assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    ReplicaRoutingDataSource.unpinPrimary();
+    assertThat(dataSource.getConnection()).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void givenFailedHealthCheck_whenGetConnection_thenReplicaSkippedUntilHealthy() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1Connection.isValid(1)).willReturn(false);
+    dataSource.checkReplicas();
+
+    // when - action or the behaviour that we are going to test
+    List<Connection> connections = List.of(dataSource.getConnection(), dataSource.getConnection());
+    given(replica1Connection.isValid(1)).willReturn(true);
+    dataSource.checkReplicas();
+
+    // then - verify the output
+    assertThat(connections).containsExactly(replica2Connection, replica2Connection);
+    assertThat(dataSource.getConnection()).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void givenUnreachableReplica_whenGetConnection_thenNextReplicaAndMarkedUnhealthy() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1.getConnection()).willThrow(new SQLException("Connection refused"));
+
+    // when - action or the behaviour that we are going to test
+    Connection first = dataSource.getConnection();
+    Connection second = dataSource.getConnection();
+    Connection third = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(List.of(first, second, third)).containsOnly(replica2Connection);
+  }
+
+  @Test
+  void givenOneFailedConnect_whenGetConnection_thenReplicaKeptUntilThreshold() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1.getConnection()).willThrow(new SQLException("Connection reset")).willReturn(replica1Connection);
+
+    // when - action or the behaviour that we are going to test
+    Connection failedOver = dataSource.getConnection();
+    dataSource.getConnection();
+    Connection retried = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(failedOver).isSameAs(replica2Connection);
+    assertThat(retried).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void givenExhaustedReplicaPool_whenGetConnection_thenNeverMarkedUnhealthy() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1.getConnection()).willThrow(new SQLTransientConnectionException("request timed out"))
+        .willThrow(new SQLTransientConnectionException("request timed out"))
+        .willThrow(new SQLTransientConnectionException("request timed out"))
+        .willReturn(replica1Connection);
+    dataSource.checkReplicas();
+
+    // when - action or the behaviour that we are going to test
+    Connection first = dataSource.getConnection();
+    dataSource.getConnection();
+    Connection second = dataSource.getConnection();
+    dataSource.getConnection();
+    Connection third = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(List.of(first, second)).containsOnly(replica2Connection);
+    assertThat(third).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void givenCredentials_whenGetConnectionInReadOnlyTransaction_thenReplica() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1.getConnection("reader", "secret")).willReturn(replica1Connection);
+
+    // when - action or the behaviour that we are going to test
+    Connection connection = dataSource.getConnection("reader", "secret");
+
+    // then - verify the output
+    assertThat(connection).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void givenNoHealthyReplica_whenGetConnectionInReadOnlyTransaction_thenPrimary() throws SQLException {
+    //given - precondition or setup
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    given(replica1.getConnection()).willThrow(new SQLException("Connection refused"));
+    given(replica2.getConnection()).willThrow(new SQLException("Connection refused"));
+    dataSource.checkReplicas();
+
+    // when - action or the behaviour that we are going to test
+    Connection connection = dataSource.getConnection();
+
+    // then - verify the output
+    assertThat(connection).isSameAs(primaryConnection);
+  }
+}
@@ -0,0 +1,267 @@
+package net.javaguides.spring.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+
+import net.javaguides.spring.exception.TooManyRequestsException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.service.EmployeeService;
+
+class EmployeeCsvImporterTests {
+
+  private final EmployeeService employeeService = mock(EmployeeService.class);
+  private final List<List<String>> savedChunks = new CopyOnWriteArrayList<>();
+
+  private EmployeeCsvImporter employeeCsvImporter;
+
+  @BeforeEach
+  void setup() {
+    given(employeeService.getExistingEmails(anyCollection())).willReturn(List.of());
+    given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+      List<Employee> employees = invocation.getArgument(0);
+      List<String> emails = new ArrayList<>();
+      employees.forEach(employee -> emails.add(employee.getEmail()));
+      savedChunks.add(emails);
+      return employees;
+    });
+
+    EmployeeImportProperties properties = new EmployeeImportProperties();
+    properties.setChunkSize(2);
+    properties.setMaxConcurrent(1);
+    employeeCsvImporter = new EmployeeCsvImporter(employeeService, properties);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    employeeCsvImporter.destroy();
+  }
+
+  private static InputStream csv(String... lines) {
+    return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> reasons(EmployeeImportJob job) {
+    List<String> reasons = new ArrayList<>();
+    job.getRejections().forEach(rejection -> reasons.add(rejection.getRow() + ": " + rejection.getReason()));
+    return reasons;
+  }
+
+  @Test
+  void givenValidRows_whenImportEmployees_thenSavedInChunks() {
+    //given - precondition or setup
+    InputStream csv = csv("firstName,lastName,email",
+        "Elkin,Torres,elkin@vita.com",
+        "Sofi,Torres,sofi@vita.com",
+        "",
+        "Ana,Diaz,ana@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.COMPLETED);
+    assertThat(job.getRowsRead()).isEqualTo(3);
+    assertThat(job.getRowsImported()).isEqualTo(3);
+    assertThat(job.getRowsRejected()).isZero();
+    assertThat(savedChunks).containsExactly(List.of("elkin@vita.com", "sofi@vita.com"), List.of("ana@vita.com"));
+    assertThat(employeeCsvImporter.getJob(job.getId())).get().extracting(EmployeeImportJob::getRowsImported)
+        .isEqualTo(3L);
+  }
+
+  @Test
+  void givenColumnsInOtherOrder_whenImportEmployees_thenMappedByHeader() {
+    //given - precondition or setup
+    InputStream csv = csv("\uFEFFEmail, department ,LASTNAME,firstname", "\" elkin@vita.com \",IT,Torres,Elkin");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getRowsImported()).isEqualTo(1);
+    assertThat(savedChunks).containsExactly(List.of("elkin@vita.com"));
+  }
+
+  @Test
+  void givenInvalidRows_whenImportEmployees_thenRejectedWithRowAndReason() {
+    //given - precondition or setup
+    InputStream csv = csv("firstName,lastName,email",
+        "Elkin,Torres,elkin@vita.com",
+        ",Torres,nofirst@vita.com",
+        "Sofi,Torres,sofi.vita.com",
+        "Ana,Diaz",
+        "Luz,Diaz," + "x".repeat(250) + "@vita.com",
+        "Eva,Ruiz,eva@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.COMPLETED);
+    assertThat(job.getRowsRead()).isEqualTo(6);
+    assertThat(job.getRowsImported()).isEqualTo(2);
+    assertThat(job.getRowsRejected()).isEqualTo(4);
+    assertThat(reasons(job)).containsExactly("2: firstName is missing", "3: email is not valid: sofi.vita.com",
+        "4: Expected 3 columns, found 2", "5: email is longer than 255 characters");
+  }
+
+  @Test
+  void givenRepeatedAndExistingEmails_whenImportEmployees_thenOnlyNewEmailsSaved() {
+    //given - precondition or setup
+    given(employeeService.getExistingEmails(anyCollection())).willAnswer(invocation -> {
+      Collection<String> emails = invocation.getArgument(0);
+      return emails.contains("taken@vita.com") ? List.of("taken@vita.com") : List.of();
+    });
+    InputStream csv = csv("firstName,lastName,email",
+        "Elkin,Torres,elkin@vita.com",
+        "Other,Torres,elkin@vita.com",
+        "Taken,Torres,taken@vita.com",
+        "Ana,Diaz,ana@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getRowsImported()).isEqualTo(2);
+    assertThat(reasons(job)).containsExactly("2: Email repeated in the file: elkin@vita.com",
+        "3: Employee already exist with given email: taken@vita.com");
+    assertThat(savedChunks).containsExactly(List.of("elkin@vita.com"), List.of("ana@vita.com"));
+  }
+
+  @Test
+  void givenFailingChunk_whenImportEmployees_thenOnlyThatChunkRejected() {
+    //given - precondition or setup
+    given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+      List<Employee> employees = invocation.getArgument(0);
+      if (employees.get(0).getEmail().equals("sofi@vita.com")) {
+        throw new DataAccessResourceFailureException("Connection lost");
+      }
+      return employees;
+    });
+    InputStream csv = csv("firstName,lastName,email",
+        "Elkin,Torres,elkin@vita.com",
+        "Ana,Diaz,ana@vita.com",
+        "Sofi,Torres,sofi@vita.com",
+        "Eva,Ruiz,eva@vita.com",
+        "Luz,Diaz,luz@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.COMPLETED);
+    assertThat(job.getRowsImported()).isEqualTo(3);
+    assertThat(reasons(job)).containsExactly("3: Connection lost", "4: Connection lost");
+  }
+
+  @Test
+  void givenFailingDuplicateCheck_whenSubmit_thenJobFailed() throws Exception {
+    //given - precondition or setup
+    given(employeeService.getExistingEmails(anyCollection()))
+        .willThrow(new DataAccessResourceFailureException("Connection lost"));
+    MockMultipartFile file = new MockMultipartFile("file", "employees.csv", "text/csv",
+        "firstName,lastName,email\nElkin,Torres,elkin@vita.com\n".getBytes(StandardCharsets.UTF_8));
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.submit(file);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (employeeCsvImporter.getJob(job.getId()).orElseThrow().getStatus() == EmployeeImportJob.Status.RUNNING
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    // then - verify the output
+    EmployeeImportJob finished = employeeCsvImporter.getJob(job.getId()).orElseThrow();
+    assertThat(finished.getStatus()).isEqualTo(EmployeeImportJob.Status.FAILED);
+    assertThat(finished.getError()).isEqualTo("Import failed after row 1: Connection lost");
+    assertThat(savedChunks).isEmpty();
+  }
+
+  @Test
+  void givenHeaderWithoutEmail_whenImportEmployees_thenFailed() {
+    //given - precondition or setup
+    InputStream csv = csv("firstName,lastName", "Elkin,Torres");
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.importEmployees(csv);
+
+    // then - verify the output
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.FAILED);
+    assertThat(job.getError()).contains("firstName, lastName and email");
+    assertThat(savedChunks).isEmpty();
+  }
+
+  @Test
+  void givenRunningImport_whenSubmitAnother_thenRejectedUntilItFinishes() throws Exception {
+    //given - precondition or setup
+    CountDownLatch saving = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+      saving.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return invocation.getArgument(0);
+    });
+    MockMultipartFile file = new MockMultipartFile("file", "employees.csv", "text/csv",
+        "firstName,lastName,email\nElkin,Torres,elkin@vita.com\n".getBytes(StandardCharsets.UTF_8));
+
+    // when - action or the behaviour that we are going to test
+    EmployeeImportJob job = employeeCsvImporter.submit(file);
+    assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // then - verify the output
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.RUNNING);
+    assertThatThrownBy(() -> employeeCsvImporter.submit(file)).isInstanceOf(TooManyRequestsException.class);
+    release.countDown();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (employeeCsvImporter.getJob(job.getId()).orElseThrow().getStatus() == EmployeeImportJob.Status.RUNNING
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(employeeCsvImporter.getJob(job.getId())).get().extracting(EmployeeImportJob::getRowsImported)
+        .isEqualTo(1L);
+  }
+
+  @Test
+  void givenFailingUpload_whenSubmit_thenTempFileDeleted() {
+    //given - precondition or setup
+    AtomicReference<Path> tempFile = new AtomicReference<>();
+    MockMultipartFile file = new MockMultipartFile("file", "employees.csv", "text/csv", new byte[0]) {
+      @Override
+      public void transferTo(Path dest) throws IOException {
+        tempFile.set(dest);
+        throw new IOException("Connection reset");
+      }
+    };
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> employeeCsvImporter.submit(file)).isInstanceOf(IOException.class);
+    assertThat(tempFile.get()).isNotNull();
+    assertThat(Files.exists(tempFile.get())).isFalse();
+  }
+}
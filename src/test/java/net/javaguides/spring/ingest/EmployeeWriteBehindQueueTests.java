@@ -0,0 +1,224 @@
+package net.javaguides.spring.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.exception.EmployeeQueueFullException;
+import net.javaguides.spring.exception.InvalidEmployeeException;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.service.EmployeeService;
+
+class EmployeeWriteBehindQueueTests {
+
+  private static final String DUPLICATE_EMAIL = "duplicate@vita.com";
+  private static final String REFUSED_EMAIL = "refused@vita.com";
+
+  private final EmployeeService employeeService = mock(EmployeeService.class);
+  private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+  private final AtomicLong ids = new AtomicLong();
+  // The writer holds the first batch until released, so the tests can fill the queue behind it
+  private final CountDownLatch firstBatchTaken = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private EmployeeWriteBehindQueue writeBehindQueue;
+
+  @BeforeEach
+  void setup() {
+    given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+      List<Employee> employees = invocation.getArgument(0);
+      firstBatchTaken.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      batchSizes.add(employees.size());
+      for (Employee employee : employees) {
+        if (DUPLICATE_EMAIL.equals(employee.getEmail())) {
+          throw new EmployeeAlreadyExistsException("Employee already exist with given email: " + DUPLICATE_EMAIL);
+        }
+        if (REFUSED_EMAIL.equals(employee.getEmail())) {
+          throw new DataIntegrityViolationException("Value too long for column");
+        }
+      }
+      employees.forEach(employee -> employee.setId(ids.incrementAndGet()));
+      return new ArrayList<>(employees);
+    });
+
+    EmployeeIngestProperties properties = new EmployeeIngestProperties();
+    properties.setQueueCapacity(10);
+    properties.setBatchSize(4);
+    properties.setLinger(Duration.ZERO);
+    writeBehindQueue = new EmployeeWriteBehindQueue(employeeService, properties);
+    writeBehindQueue.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    writeBehindQueue.stop();
+  }
+
+  private static Employee employee(String email) {
+    return Employee.builder().firstName("Elkin").lastName("Torres").email(email).build();
+  }
+
+  private EmployeeCreateJob holdWriter() throws InterruptedException {
+    EmployeeCreateJob job = writeBehindQueue.submit(employee("first@vita.com"));
+    assertThat(firstBatchTaken.await(5, TimeUnit.SECONDS)).isTrue();
+    return job;
+  }
+
+  private List<EmployeeCreateJob> submit(String... emails) {
+    List<EmployeeCreateJob> jobs = new ArrayList<>();
+    for (String email : emails) {
+      jobs.add(writeBehindQueue.submit(employee(email)));
+    }
+    return jobs;
+  }
+
+  private EmployeeCreateJob outcome(EmployeeCreateJob job) {
+    return writeBehindQueue.getJob(job.getId()).orElseThrow();
+  }
+
+  @Test
+  void givenQueuedCreates_whenWritten_thenBatchedAndCreated() throws InterruptedException {
+    //given - precondition or setup
+    EmployeeCreateJob first = holdWriter();
+    List<EmployeeCreateJob> jobs = submit("a@vita.com", "b@vita.com", "c@vita.com", "d@vita.com", "e@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    assertThat(outcome(jobs.get(0)).getStatus()).isEqualTo(EmployeeCreateJob.Status.QUEUED);
+    release.countDown();
+    writeBehindQueue.stop();
+
+    // then - verify the output
+    assertThat(batchSizes).containsExactly(1, 4, 1);
+    assertThat(outcome(first).getEmployeeId()).isEqualTo(1L);
+    assertThat(jobs).extracting(job -> outcome(job).getStatus()).containsOnly(EmployeeCreateJob.Status.CREATED);
+    assertThat(jobs).extracting(job -> outcome(job).getEmployeeId()).containsExactly(2L, 3L, 4L, 5L, 6L);
+  }
+
+  @Test
+  void givenDuplicateInBatch_whenWritten_thenOnlyDuplicateFails() throws InterruptedException {
+    //given - precondition or setup
+    holdWriter();
+    List<EmployeeCreateJob> jobs = submit("a@vita.com", DUPLICATE_EMAIL, "c@vita.com", "d@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    release.countDown();
+    writeBehindQueue.stop();
+
+    // then - verify the output
+    assertThat(jobs).extracting(job -> outcome(job).getStatus()).containsExactly(EmployeeCreateJob.Status.CREATED,
+        EmployeeCreateJob.Status.FAILED, EmployeeCreateJob.Status.CREATED, EmployeeCreateJob.Status.CREATED);
+    assertThat(outcome(jobs.get(1)).getError()).contains(DUPLICATE_EMAIL);
+    assertThat(outcome(jobs.get(1)).getEmployeeId()).isNull();
+  }
+
+  @Test
+  void givenRefusedRowInBatch_whenWritten_thenOnlyRefusedRowFails() throws InterruptedException {
+    //given - precondition or setup
+    holdWriter();
+    List<EmployeeCreateJob> jobs = submit("a@vita.com", "b@vita.com", REFUSED_EMAIL, "d@vita.com");
+
+    // when - action or the behaviour that we are going to test
+    release.countDown();
+    writeBehindQueue.stop();
+
+    // then - verify the output
+    assertThat(jobs).extracting(job -> outcome(job).getStatus()).containsExactly(EmployeeCreateJob.Status.CREATED,
+        EmployeeCreateJob.Status.CREATED, EmployeeCreateJob.Status.FAILED, EmployeeCreateJob.Status.CREATED);
+    assertThat(outcome(jobs.get(2)).getError())
+        .isEqualTo("Could not write 1 queued employee create, the cause is in the server log");
+  }
+
+  @Test
+  void givenMissingOrMalformedFields_whenSubmit_thenRejectedBeforeQueued() {
+    //given - precondition or setup
+    Employee withoutFirstName = Employee.builder().lastName("Torres").email("a@vita.com").build();
+    Employee withBlankLastName = Employee.builder().firstName("Elkin").lastName(" ").email("a@vita.com").build();
+    Employee withLongEmail = employee("a".repeat(250) + "@vita.com");
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> writeBehindQueue.submit(withoutFirstName))
+        .isInstanceOf(InvalidEmployeeException.class).hasMessage("firstName is missing");
+    assertThatThrownBy(() -> writeBehindQueue.submit(withBlankLastName))
+        .isInstanceOf(InvalidEmployeeException.class).hasMessage("lastName is missing");
+    assertThatThrownBy(() -> writeBehindQueue.submit(employee("not-an-email")))
+        .isInstanceOf(InvalidEmployeeException.class).hasMessage("email is not valid: not-an-email");
+    assertThatThrownBy(() -> writeBehindQueue.submit(withLongEmail))
+        .isInstanceOf(InvalidEmployeeException.class).hasMessage("email is longer than 255 characters");
+    assertThat(writeBehindQueue.queued()).isZero();
+  }
+
+  @Test
+  void givenDatabaseFailure_whenWritten_thenBatchFails() {
+    //given - precondition or setup
+    willThrow(new DataAccessResourceFailureException("Database is down")).given(employeeService)
+        .saveEmployees(anyList());
+    EmployeeCreateJob job = writeBehindQueue.submit(employee("a@vita.com"));
+
+    // when - action or the behaviour that we are going to test
+    writeBehindQueue.stop();
+
+    // then - verify the output
+    assertThat(outcome(job).getStatus()).isEqualTo(EmployeeCreateJob.Status.FAILED);
+    assertThat(outcome(job).getError())
+        .isEqualTo("Could not write 1 queued employee create, the cause is in the server log");
+  }
+
+  @Test
+  void givenFullQueue_whenSubmit_thenRejected() throws InterruptedException {
+    //given - precondition or setup
+    holdWriter();
+    for (int i = 0; i < 10; i++) {
+      writeBehindQueue.submit(employee("employee" + i + "@vita.com"));
+    }
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> writeBehindQueue.submit(employee("late@vita.com")))
+        .isInstanceOf(EmployeeQueueFullException.class);
+    assertThat(writeBehindQueue.queued()).isEqualTo(10);
+  }
+
+  @Test
+  void givenStoppedQueue_whenSubmit_thenRejected() {
+    //given - precondition or setup
+    writeBehindQueue.stop();
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> writeBehindQueue.submit(employee("late@vita.com")))
+        .isInstanceOf(EmployeeQueueFullException.class);
+  }
+
+  @Test
+  void givenUnknownJob_whenGetJob_thenEmpty() {
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThat(writeBehindQueue.getJob("unknown")).isEmpty();
+  }
+}
@@ -1,32 +1,67 @@
 package net.javaguides.spring.integration;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManagerFactory;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.util.JsonFormat;
 
+import net.javaguides.spring.cache.EmployeeCache;
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeCreateJob;
+import net.javaguides.spring.model.EmployeeImportJob;
+import net.javaguides.spring.protobuf.EmployeeProtobufHttpMessageConverter;
+import net.javaguides.spring.protobuf.EmployeeProtos;
 import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.sql.SqlStatementCounter;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = SqlStatementCounter.PROPERTY)
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 public class EmployeeControllerITests {
 
   @Autowired
@@ -35,6 +70,12 @@ public class EmployeeControllerITests {
   private ObjectMapper objectMapper;
   @Autowired
   private EmployeeRepository employeeRepository;
+  @Autowired
+  private TestRestTemplate restTemplate;
+  @Autowired
+  private EmployeeCache employeeCache;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
 
   private Employee employee;
 
@@ -43,6 +84,8 @@ public class EmployeeControllerITests {
     employee = Employee.builder().id(1L).firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
 
     employeeRepository.deleteAll();
+    employeeCache.invalidateAll();
+    SqlStatementCounter.reset();
   }
 
   @Test
@@ -58,6 +101,135 @@ public class EmployeeControllerITests {
         .andExpect(jsonPath("$.firstName", is(employee.getFirstName())))
         .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
         .andExpect(jsonPath("$.email", is(employee.getEmail())));
+    SqlStatementCounter.assertStatements(0, 1, 0, 0);
+  }
+
+  @Test
+  void givenExistingEmployee_whenCreateEmployee_thenConflict() throws Exception {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(employee)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isConflict());
+    SqlStatementCounter.assertStatements(0, 1, 0, 0);
+  }
+
+  @Test
+  void givenConcurrentCreatesWithSameEmail_whenCreateEmployee_thenOnlyOneCreated() throws Exception {
+    //given - precondition or setup
+    int requests = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(requests);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<HttpStatus>> statuses = new ArrayList<>();
+
+    // when - action or the behaviour that we are going to test
+    for (int i = 0; i < requests; i++) {
+      statuses.add(executor.submit(() -> {
+        start.await();
+        return restTemplate.postForEntity("/api/employees", employee, String.class).getStatusCode();
+      }));
+    }
+    start.countDown();
+    List<HttpStatus> responses = new ArrayList<>();
+    for (Future<HttpStatus> status : statuses) {
+      responses.add(status.get());
+    }
+    executor.shutdown();
+
+    // then - verify the output
+    assertThat(responses).containsOnly(HttpStatus.CREATED, HttpStatus.CONFLICT).containsOnlyOnce(HttpStatus.CREATED);
+    assertThat(employeeRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void givenNewAndExistingEmails_whenCreateEmployeesAsync_thenJobsReportEachOutcome() throws Exception {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    Employee newEmployee = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<EmployeeCreateJob> created = restTemplate.postForEntity("/api/employees?async=true", newEmployee,
+        EmployeeCreateJob.class);
+    ResponseEntity<EmployeeCreateJob> duplicate = restTemplate.postForEntity("/api/employees?async=true", employee,
+        EmployeeCreateJob.class);
+
+    // then - verify the output
+    assertThat(created.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    assertThat(created.getHeaders().getLocation().getPath())
+        .isEqualTo("/api/employees/jobs/" + created.getBody().getId());
+    EmployeeCreateJob createdJob = awaitJob(created.getHeaders().getLocation().getPath());
+    assertThat(createdJob.getStatus()).isEqualTo(EmployeeCreateJob.Status.CREATED);
+    assertThat(employeeRepository.findById(createdJob.getEmployeeId())).get().extracting(Employee::getEmail)
+        .isEqualTo(newEmployee.getEmail());
+    EmployeeCreateJob duplicateJob = awaitJob(duplicate.getHeaders().getLocation().getPath());
+    assertThat(duplicateJob.getStatus()).isEqualTo(EmployeeCreateJob.Status.FAILED);
+    assertThat(duplicateJob.getError()).contains(employee.getEmail());
+  }
+
+  private EmployeeCreateJob awaitJob(String location) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    EmployeeCreateJob job;
+    do {
+      Thread.sleep(10);
+      job = restTemplate.getForObject(location, EmployeeCreateJob.class);
+    } while (job.getStatus() == EmployeeCreateJob.Status.QUEUED && System.currentTimeMillis() < deadline);
+    return job;
+  }
+
+  @Test
+  void givenCsvWithExistingAndInvalidRows_whenImportEmployees_thenOtherRowsImported() throws Exception {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+    for (int i = 0; i < 2500; i++) {
+      csv.append("First").append(i).append(",Last").append(i).append(",employee").append(i).append("@vita.com\n");
+    }
+    csv.append("Elkin,Torres,elkin@vita.com\n").append("No,Email,\n");
+    MockMultipartFile file = new MockMultipartFile("file", "employees.csv", "text/csv",
+        csv.toString().getBytes(StandardCharsets.UTF_8));
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(multipart("/api/employees/imports").file(file))
+        .andExpect(status().isAccepted())
+        .andReturn();
+
+    // then - verify the output
+    String location = URI.create(result.getResponse().getHeader(HttpHeaders.LOCATION)).getPath();
+    EmployeeImportJob job;
+    long deadline = System.currentTimeMillis() + 10000;
+    do {
+      Thread.sleep(20);
+      job = restTemplate.getForObject(location, EmployeeImportJob.class);
+    } while (job.getStatus() == EmployeeImportJob.Status.RUNNING && System.currentTimeMillis() < deadline);
+    assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.COMPLETED);
+    assertThat(job.getRowsRead()).isEqualTo(2502);
+    assertThat(job.getRowsImported()).isEqualTo(2500);
+    assertThat(job.getRejections()).extracting(EmployeeImportJob.Rejection::getRow)
+        .containsExactlyInAnyOrder(2501L, 2502L);
+    assertThat(employeeRepository.count()).isEqualTo(2501);
+  }
+
+  @Test
+  void givenNewEmployees_whenCreateEmployees_thenCreatedEmployees() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    var employeesList = List.of(employee, employee2);
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(post("/api/employees/batch").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(employeesList)));
+
+    // then - verify the output
+    response.andDo(print()).andExpect(status().isCreated())
+        .andExpect(jsonPath("$.size()", is(employeesList.size())));
+    SqlStatementCounter.assertStatements(1, 1, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
+    assertThat(employeeRepository.count()).isEqualTo(employeesList.size());
   }
 
   @Test
@@ -66,18 +238,104 @@ public class EmployeeControllerITests {
     Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
     var employeesList = List.of(employee, employee2);
     employeeRepository.saveAll(employeesList);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(get("/api/employees"));
 
     // then - verify the output
     response.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$.size()", is(employeesList.size())));
+    // The list version for the ETag and the list itself, both read the whole table on purpose
+    SqlStatementCounter.assertStatements(2, 0, 0, 0);
+    assertThat(SqlStatementCounter.fullScans()).hasSize(2);
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetEmployeesPage_thenOneStatementWithoutCount() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    Employee employee3 = Employee.builder().firstName("Ana").lastName("Diaz").email("ana@vita.com").build();
+    List<Employee> employees = employeeRepository.saveAll(List.of(employee, employee2, employee3));
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("limit", "2"));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.size()", is(2)))
+        .andExpect(jsonPath("$.nextCursor", is((int) employees.get(1).getId())));
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
+  }
+
+  @Test
+  void givenExistingEmployees_whenSearchEmployeesByName_thenOneStatement() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    Employee employee3 = Employee.builder().firstName("Ana").lastName("Diaz").email("ana@vita.com").build();
+    employeeRepository.saveAll(List.of(employee, employee2, employee3));
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees/search").param("name", "Tor"));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(2)))
+        .andExpect(jsonPath("$[0].firstName", is("Elkin")));
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetAllEmployeesAsProtobuf_thenSameEmployeesAsJson() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    employeeRepository.saveAll(List.of(employee, employee2));
+
+    // when - action or the behaviour that we are going to test
+    String json = mockMvc.perform(get("/api/employees")).andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    byte[] protobuf = mockMvc.perform(get("/api/employees")
+        .accept(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(EmployeeProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    // then - verify the output
+    EmployeeProtos.EmployeeList.Builder fromJson = EmployeeProtos.EmployeeList.newBuilder();
+    JsonFormat.parser().merge("{\"employees\":" + json + "}", fromJson);
+    assertThat(EmployeeProtos.EmployeeList.parseFrom(protobuf)).isEqualTo(fromJson.build());
+    assertThat(protobuf.length).isLessThan(json.length());
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployees_thenNdjsonLines() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    employeeRepository.saveAll(List.of(employee, employee2));
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    MvcResult result = mockMvc.perform(get("/api/employees/export")).andExpect(request().asyncStarted()).andReturn();
+    ResultActions response = mockMvc.perform(asyncDispatch(result));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("\"email\":\"sofi@vita.com\",\"version\":0}\n")));
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
   }
 
   @Test
   void givenExistingEmployee_whenGetEmployeeById_thenFoundEmployee() throws Exception {
     //given - precondition or setup
     employee = employeeRepository.save(employee);
+    entityManagerFactory.getCache().evictAll();
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(get("/api/employees/{id}", employee.getId()));
@@ -88,6 +346,100 @@ public class EmployeeControllerITests {
         .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
         .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
         .andExpect(jsonPath("$.email", is(employee.getEmail())));
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
+  }
+
+  @Test
+  void givenExistingEmployees_whenGetEmployeesByIds_thenFoundInOneStatement() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    Employee employee3 = Employee.builder().firstName("Ana").lastName("Diaz").email("ana@vita.com").build();
+    List<Employee> employees = employeeRepository.saveAll(List.of(employee, employee2, employee3));
+    String ids = employees.get(2).getId() + ",0," + employees.get(0).getId() + "," + employees.get(2).getId();
+    entityManagerFactory.getCache().evictAll();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/api/employees").param("ids", ids));
+    long selects = SqlStatementCounter.count(SqlStatementCounter.Kind.SELECT);
+    SqlStatementCounter.assertNoFullScans();
+    SqlStatementCounter.reset();
+    ResultActions cached = mockMvc.perform(get("/api/employees").param("ids", ids));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()", is(2)))
+        .andExpect(jsonPath("$[0].email", is("ana@vita.com")))
+        .andExpect(jsonPath("$[1].email", is("elkin@vita.com")));
+    cached.andExpect(status().isOk()).andExpect(jsonPath("$.size()", is(2)));
+    assertThat(selects).isEqualTo(1);
+    SqlStatementCounter.assertStatements(0, 0, 0, 0);
+  }
+
+  @Test
+  void givenCachedEmployee_whenGetEmployeeCacheStats_thenHitCounted() throws Exception {
+    //given - precondition or setup
+    employee = employeeRepository.save(employee);
+    mockMvc.perform(get("/api/employees/{id}", employee.getId()));
+    mockMvc.perform(get("/api/employees/{id}", employee.getId()));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/actuator/employeecache"));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.hitCount", greaterThan(0)))
+        .andExpect(jsonPath("$.loadSuccessCount", greaterThan(0)));
+  }
+
+  @Test
+  void givenEmployeeTraffic_whenScrapePrometheus_thenRouteServiceRepositoryAndPoolMetrics() throws Exception {
+    //given - precondition or setup
+    mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(employee)));
+    mockMvc.perform(get("/api/employees"));
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(get("/actuator/prometheus"));
+
+    // then - verify the output
+    response.andExpect(status().isOk())
+        .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+        .andExpect(content().string(containsString("uri=\"/api/employees\"")))
+        .andExpect(content().string(containsString("employee_service_seconds_bucket{")))
+        .andExpect(content().string(containsString("method=\"getAllEmployeeViews\"")))
+        .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")))
+        .andExpect(content().string(containsString("employee_repository_rows_count{")))
+        .andExpect(content().string(containsString("hibernate_sessions_open_total")))
+        .andExpect(content().string(containsString("hibernate_second_level_cache_requests_total")))
+        .andExpect(content().string(containsString("hikaricp_connections_active")))
+        .andExpect(content().string(containsString("cache_gets_total{cache=\"employeeCache\"")));
+  }
+
+  @Test
+  void givenLargeAndSmallResponses_whenAcceptGzip_thenOnlyLargeCompressed() {
+    //given - precondition or setup
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      employees.add(Employee.builder().firstName("First" + i).lastName("Last" + i).email("gzip" + i + "@vita.com")
+          .build());
+    }
+    employee = employeeRepository.saveAll(employees).get(0);
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<byte[]> list = restTemplate.exchange("/api/employees", HttpMethod.GET,
+        new HttpEntity<>(headers), byte[].class);
+    ResponseEntity<byte[]> single = restTemplate.exchange("/api/employees/" + employee.getId(), HttpMethod.GET,
+        new HttpEntity<>(headers), byte[].class);
+
+    // then - verify the output
+    assertThat(list.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(single.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
   }
 
   @Test
@@ -101,6 +453,7 @@ public class EmployeeControllerITests {
     // then - verify the output
     response.andDo(print())
         .andExpect(status().isNotFound());
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
   }
 
   @Test
@@ -109,6 +462,7 @@ public class EmployeeControllerITests {
     employee = employeeRepository.save(employee);
     employee.setEmail("test@test.org");
     employee.setFirstName("Test");
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(put("/api/employees")
@@ -119,7 +473,75 @@ public class EmployeeControllerITests {
     response.andDo(print())
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.firstName", is("Test")))
-        .andExpect(jsonPath("$.email", is("test@test.org")));
+        .andExpect(jsonPath("$.email", is("test@test.org")))
+        .andExpect(jsonPath("$.version", is(1)))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    // Without If-Match the new version is read back
+    SqlStatementCounter.assertStatements(1, 0, 1, 0);
+    SqlStatementCounter.assertNoFullScans();
+  }
+
+  @Test
+  void givenETags_whenConditionalRequests_thenNotModifiedAndLostUpdateRejected() throws Exception {
+    //given - precondition or setup
+    employee = employeeRepository.save(employee);
+    String listETag = mockMvc.perform(get("/api/employees")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    mockMvc.perform(get("/api/employees/{id}", employee.getId()))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+    employee.setFirstName("Test");
+
+    // when - action or the behaviour that we are going to test
+    ResultActions notModified = mockMvc.perform(get("/api/employees/{id}", employee.getId())
+        .header(HttpHeaders.IF_NONE_MATCH, "\"0\""));
+    ResultActions listNotModified = mockMvc.perform(get("/api/employees").header(HttpHeaders.IF_NONE_MATCH, listETag));
+    ResultActions updated = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .content(objectMapper.writeValueAsString(employee)));
+    ResultActions lostUpdate = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .content(objectMapper.writeValueAsString(employee)));
+    ResultActions listChanged = mockMvc.perform(get("/api/employees").header(HttpHeaders.IF_NONE_MATCH, listETag));
+
+    // then - verify the output
+    notModified.andDo(print()).andExpect(status().isNotModified());
+    assertThat(listETag).matches("W/\"1-0-\\d+-[1-9]\\d*\"");
+    listNotModified.andDo(print()).andExpect(status().isNotModified());
+    updated.andDo(print()).andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+        .andExpect(jsonPath("$.firstName", is("Test")));
+    lostUpdate.andDo(print()).andExpect(status().isPreconditionFailed());
+    listChanged.andDo(print()).andExpect(status().isOk()).andExpect(jsonPath("$[0].version", is(1)));
+  }
+
+  @Test
+  void givenExistingEmployee_whenUpdateAndPatchEmployee_thenOneStatementEach() throws Exception {
+    //given - precondition or setup
+    employee = employeeRepository.save(employee);
+    employee.setFirstName("Test");
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions updated = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(employee)));
+    long updateStatements = SqlStatementCounter.count(SqlStatementCounter.Kind.UPDATE);
+    SqlStatementCounter.assertStatements(1, 0, 1, 0);
+    SqlStatementCounter.reset();
+    ResultActions patched = mockMvc.perform(patch("/api/employees/{id}", employee.getId())
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"1\"")
+        .content("{\"email\":\"test@test.org\"}"));
+    long patchStatements = SqlStatementCounter.count(SqlStatementCounter.Kind.UPDATE);
+    SqlStatementCounter.assertStatements(1, 0, 1, 0);
+    SqlStatementCounter.assertNoFullScans();
+
+    // then - verify the output
+    updated.andDo(print()).andExpect(status().isOk());
+    patched.andDo(print()).andExpect(status().isNoContent()).andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    assertThat(updateStatements).isEqualTo(1);
+    assertThat(patchStatements).isEqualTo(1);
+    assertThat(employeeRepository.findById(employee.getId())).get()
+        .matches(dbEmployee -> dbEmployee.getFirstName().equals("Test") && dbEmployee.getEmail().equals("test@test.org")
+            && dbEmployee.getLastName().equals("Torres") && dbEmployee.getVersion() == 2);
   }
 
   @Test
@@ -127,6 +549,7 @@ public class EmployeeControllerITests {
     //given - precondition or setup
     employee = employeeRepository.save(employee);
     employee.setId(0L);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(put("/api/employees").contentType(MediaType.APPLICATION_JSON)
@@ -135,12 +558,14 @@ public class EmployeeControllerITests {
     // then - verify the output
     response.andDo(print())
         .andExpect(status().isNotFound());
+    SqlStatementCounter.assertStatements(0, 0, 1, 0);
   }
 
   @Test
   void givenExistingEmployee_whenDeleteEmployee_thenOK() throws Exception {
     //given - precondition or setup
     employee = employeeRepository.save(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employee.getId()));
@@ -148,6 +573,42 @@ public class EmployeeControllerITests {
     // then - verify the output
     response.andDo(print())
         .andExpect(status().isOk());
+    SqlStatementCounter.assertStatements(0, 0, 0, 1);
+    SqlStatementCounter.assertNoFullScans();
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenDeleteEmployee_thenNotFoundInOneStatement() throws Exception {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(delete("/api/employees/{id}", 1L));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isNotFound());
+    SqlStatementCounter.assertStatements(0, 0, 0, 1);
+  }
+
+  @Test
+  void givenExistingEmployees_whenDeleteEmployeesByIds_thenOnlyThoseDeleted() throws Exception {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    Employee employee3 = Employee.builder().firstName("Ana").lastName("Diaz").email("ana@vita.com").build();
+    List<Employee> employees = employeeRepository.saveAll(List.of(employee, employee2, employee3));
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    ResultActions response = mockMvc.perform(delete("/api/employees")
+        .param("ids", employees.get(0).getId() + "," + employees.get(2).getId() + ",0"));
+
+    // then - verify the output
+    response.andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(content().string("2 employees deleted successfully"));
+    SqlStatementCounter.assertStatements(1, 0, 0, 1);
+    SqlStatementCounter.assertNoFullScans();
+    assertThat(employeeRepository.findAll()).extracting(Employee::getEmail).containsExactly("sofi@vita.com");
   }
 
 }
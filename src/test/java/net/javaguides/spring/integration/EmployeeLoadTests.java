@@ -0,0 +1,270 @@
+package net.javaguides.spring.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.service.EmployeeService;
+
+/**
+ * Open-model load test: requests are started on a fixed schedule whatever the response times are, and latency is
+ * measured from the scheduled start, so a stalled server shows up in the tail instead of slowing the load down.
+ * <p>
+ * Tuned with {@code load.*} system properties, for example
+ * {@code mvn -P load test -Dload.rate=500 -Dload.duration=30s -Dload.mix.export=0 -Dload.budget.read.p99=20}.
+ * Budgets are in milliseconds and fall back to {@code load.budget.p50}, {@code load.budget.p99} and
+ * {@code load.budget.p999}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false"})
+public class EmployeeLoadTests {
+
+  private static final Map<String, Integer> DEFAULT_MIX = new LinkedHashMap<>();
+
+  static {
+    DEFAULT_MIX.put("create", 10);
+    DEFAULT_MIX.put("createBatch", 1);
+    DEFAULT_MIX.put("list", 1);
+    DEFAULT_MIX.put("page", 10);
+    DEFAULT_MIX.put("searchByName", 5);
+    DEFAULT_MIX.put("searchByQuery", 5);
+    DEFAULT_MIX.put("export", 1);
+    DEFAULT_MIX.put("read", 50);
+    DEFAULT_MIX.put("update", 10);
+    DEFAULT_MIX.put("delete", 5);
+  }
+
+  // The full table endpoints get looser defaults than the per-row ones
+  private static final Map<String, Double> DEFAULT_BUDGETS = Map.of(
+      "list.p50", 200.0, "list.p99", 1000.0, "list.p999", 2000.0,
+      "export.p50", 200.0, "export.p99", 1000.0, "export.p999", 2000.0);
+
+  @LocalServerPort
+  private int port;
+  @Autowired
+  private Environment environment;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private EmployeeRepository employeeRepository;
+  @Autowired
+  private EmployeeService employeeService;
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private final AtomicLong sequence = new AtomicLong();
+  private final List<Long> ids = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    employeeRepository.deleteAllInBatch();
+
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < environment.getProperty("load.table-size", Integer.class, 1000); i++) {
+      employees.add(newEmployee());
+    }
+    employeeService.saveEmployees(employees).forEach(employee -> ids.add(employee.getId()));
+  }
+
+  @Test
+  void givenEmployeeTraffic_whenRunAtFixedRate_thenLatencyWithinBudgets() throws Exception {
+    //given - precondition or setup
+    int rate = environment.getProperty("load.rate", Integer.class, 200);
+    Duration warmup = environment.getProperty("load.warmup", Duration.class, Duration.ofSeconds(2));
+    Duration duration = environment.getProperty("load.duration", Duration.class, Duration.ofSeconds(10));
+    Duration drainTimeout = environment.getProperty("load.drain-timeout", Duration.class, Duration.ofSeconds(30));
+    Map<String, Endpoint> endpoints = endpoints();
+
+    // when - action or the behaviour that we are going to test
+    assertThat(run(endpoints, rate, warmup, drainTimeout, false)).as("warmup drained").isTrue();
+    endpoints.values().forEach(Endpoint::reset);
+    boolean drained = run(endpoints, rate, duration, drainTimeout, true);
+
+    // then - verify the output
+    System.out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s%n",
+        "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    endpoints.forEach((name, endpoint) -> System.out.printf("%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+        name, endpoint.histogram.getTotalCount(), endpoint.errors.get(),
+        endpoint.histogram.getTotalCount() / (duration.toMillis() / 1000.0),
+        millis(endpoint.histogram, 50), millis(endpoint.histogram, 99), millis(endpoint.histogram, 99.9),
+        endpoint.histogram.getMaxValue() / 1000.0));
+
+    assertThat(drained).as("requests still in flight %s after the last one was sent", drainTimeout).isTrue();
+    double maxErrorRate = environment.getProperty("load.max-error-rate", Double.class, 0.01);
+    endpoints.forEach((name, endpoint) -> {
+      long count = endpoint.histogram.getTotalCount();
+      assertThat(endpoint.errors.get()).as("%s errors", name).isLessThanOrEqualTo((long) (count * maxErrorRate));
+      assertThat(millis(endpoint.histogram, 50)).as("%s p50", name).isLessThanOrEqualTo(budget(name, "p50", 50));
+      assertThat(millis(endpoint.histogram, 99)).as("%s p99", name).isLessThanOrEqualTo(budget(name, "p99", 250));
+      assertThat(millis(endpoint.histogram, 99.9)).as("%s p999", name).isLessThanOrEqualTo(budget(name, "p999", 1000));
+    });
+  }
+
+  // Returns false when the server could not keep up and responses were still outstanding after the drain timeout
+  private boolean run(Map<String, Endpoint> endpoints, int rate, Duration duration, Duration drainTimeout,
+      boolean record) throws Exception {
+    List<Endpoint> schedule = new ArrayList<>();
+    endpoints.values().forEach(endpoint -> {
+      for (int i = 0; i < endpoint.weight; i++) {
+        schedule.add(endpoint);
+      }
+    });
+
+    long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    long requests = duration.toNanos() / interval;
+    List<CompletableFuture<?>> responses = new ArrayList<>();
+    long start = System.nanoTime();
+    for (long i = 0; i < requests; i++) {
+      long intendedStart = start + i * interval;
+      LockSupport.parkNanos(intendedStart - System.nanoTime());
+      Endpoint endpoint = schedule.get(ThreadLocalRandom.current().nextInt(schedule.size()));
+      responses.add(httpClient.sendAsync(endpoint.request.get(), HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, failure) -> {
+            if (record) {
+              endpoint.histogram.recordValue((System.nanoTime() - intendedStart) / 1000);
+              if (failure != null || response.statusCode() >= 400) {
+                endpoint.errors.incrementAndGet();
+              }
+            }
+          }));
+    }
+    try {
+      CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).handle((result, failure) -> null)
+          .get(drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    }
+  }
+
+  private Map<String, Endpoint> endpoints() {
+    Map<String, Supplier<HttpRequest>> requests = new LinkedHashMap<>();
+    requests.put("create", () -> post("", json(newEmployee())));
+    requests.put("createBatch", () -> post("/batch", json(List.of(newEmployee(), newEmployee(), newEmployee()))));
+    requests.put("list", () -> get(""));
+    requests.put("page", () -> get("?limit=20&after=" + randomId()));
+    requests.put("searchByName", () -> get("/search?name=Last" + ThreadLocalRandom.current().nextInt(100)));
+    requests.put("searchByQuery", () -> get("/search?q=first" + ThreadLocalRandom.current().nextInt(100)));
+    requests.put("export", () -> get("/export"));
+    requests.put("read", () -> get("/" + randomId()));
+    requests.put("update", () -> {
+      Employee employee = newEmployee();
+      employee.setId(randomId());
+      return HttpRequest.newBuilder(uri("")).header("Content-Type", "application/json")
+          .PUT(HttpRequest.BodyPublishers.ofString(json(employee))).build();
+    });
+    requests.put("delete", () -> HttpRequest.newBuilder(uri("/" + takeId())).DELETE().build());
+
+    Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    requests.forEach((name, request) -> {
+      int weight = environment.getProperty("load.mix." + name, Integer.class, DEFAULT_MIX.get(name));
+      if (weight > 0) {
+        endpoints.put(name, new Endpoint(weight, request));
+      }
+    });
+    return endpoints;
+  }
+
+  private Employee newEmployee() {
+    long n = sequence.incrementAndGet();
+    return Employee.builder().firstName("First" + n).lastName("Last" + n).email("load" + n + "@vita.com").build();
+  }
+
+  private long randomId() {
+    synchronized (ids) {
+      return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+  }
+
+  // Deleted ids leave the pool so later reads and deletes keep hitting existing rows
+  private long takeId() {
+    synchronized (ids) {
+      int index = ThreadLocalRandom.current().nextInt(ids.size());
+      long id = ids.get(index);
+      ids.set(index, ids.get(ids.size() - 1));
+      ids.remove(ids.size() - 1);
+      return id;
+    }
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + port + "/api/employees" + path);
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(uri(path)).GET().build();
+  }
+
+  private HttpRequest post(String path, String body) {
+    return HttpRequest.newBuilder(uri(path)).header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+  }
+
+  private String json(Object value) {
+    try {
+      return objectMapper.writeValueAsString(value);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private double budget(String endpoint, String percentile, double defaultMillis) {
+    double fallback = DEFAULT_BUDGETS.getOrDefault(endpoint + "." + percentile,
+        environment.getProperty("load.budget." + percentile, Double.class, defaultMillis));
+    return environment.getProperty("load.budget." + endpoint + "." + percentile, Double.class, fallback);
+  }
+
+  private static double millis(Histogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  private static class Endpoint {
+    private final int weight;
+    private final Supplier<HttpRequest> request;
+    // Microseconds from the scheduled start
+    private final Histogram histogram = new ConcurrentHistogram(3);
+    private final AtomicLong errors = new AtomicLong();
+
+    Endpoint(int weight, Supplier<HttpRequest> request) {
+      this.weight = weight;
+      this.request = request;
+    }
+
+    void reset() {
+      histogram.reset();
+      errors.set(0);
+    }
+  }
+}
@@ -15,8 +15,9 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
 import net.javaguides.spring.model.Employee;
 import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.sql.SqlStatementCounter;
 
-@DataJpaTest
+@DataJpaTest(properties = SqlStatementCounter.PROPERTY)
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class EmployeeRepositoryITests {
 
@@ -34,7 +35,7 @@ class EmployeeRepositoryITests {
         .lastName("Torres")
         .email("elkin@vita.com")
         .build();
-    employeeRepository.deleteAll();
+    employeeRepository.deleteAllInBatch();
   }
 
   //@DisplayName("JUnit test for save employee operation")
@@ -83,12 +84,15 @@ class EmployeeRepositoryITests {
   @Test
   void givenExistingEmployee_whenFindByEmail_thenFoundEmployee() {
     //given - precondition or setup
-    employeeRepository.save(employee);
+    employeeRepository.saveAndFlush(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeRepository.findByEmail(employee.getEmail()).get();
 
     // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
     assertThat(dbEmployee).isNotNull();
     assertThat(dbEmployee.getFirstName()).isEqualTo("Elkin");
   }
@@ -128,12 +132,15 @@ class EmployeeRepositoryITests {
   @Test
   void givenExistingEmployeeAndFilters_whenFindByJPQL_thenFoundEmployee() {
     //given - precondition or setup
-    employeeRepository.save(employee);
+    employeeRepository.saveAndFlush(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeRepository.findByJPQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
 
     // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
     assertThat(dbEmployee).isNotNull();
     assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
   }
@@ -141,12 +148,15 @@ class EmployeeRepositoryITests {
   @Test
   void givenExistingEmployeeAndFilters_whenFindByJPQLNamedParams_thenFoundEmployee() {
     //given - precondition or setup
-    employeeRepository.save(employee);
+    employeeRepository.saveAndFlush(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeRepository.findByJPQLNamedParams(FIRST_NAME_FILTER, LAST_NAME_FILTER);
 
     // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
     assertThat(dbEmployee).isNotNull();
     assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
   }
@@ -154,12 +164,15 @@ class EmployeeRepositoryITests {
   @Test
   void givenExistingEmployeeAndFilters_whenFindByNativeSQL_thenFoundEmployee() {
     //given - precondition or setup
-    employeeRepository.save(employee);
+    employeeRepository.saveAndFlush(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeRepository.findByNativeSQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
 
     // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
     assertThat(dbEmployee).isNotNull();
     assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
   }
@@ -167,12 +180,15 @@ class EmployeeRepositoryITests {
   @Test
   void givenExistingEmployeeAndFilters_whenFindByNativeSQLNamedParams_thenFoundEmployee() {
     //given - precondition or setup
-    employeeRepository.save(employee);
+    employeeRepository.saveAndFlush(employee);
+    SqlStatementCounter.reset();
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeRepository.findByNativeSQLNamedParams(FIRST_NAME_FILTER, LAST_NAME_FILTER);
 
     // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    SqlStatementCounter.assertNoFullScans();
     assertThat(dbEmployee).isNotNull();
     assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
   }
@@ -0,0 +1,213 @@
+package net.javaguides.spring.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.repository.ReactiveEmployeeRepository;
+import net.javaguides.spring.search.EmployeeSearchIndex;
+
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.r2dbc.url=r2dbc:h2:mem:///reactive-it?options=DB_CLOSE_DELAY=-1")
+public class ReactiveEmployeeControllerITests {
+
+  @Autowired
+  private WebTestClient webTestClient;
+  @Autowired
+  private DatabaseClient databaseClient;
+  @Autowired
+  private ReactiveEmployeeRepository employeeRepository;
+  @Autowired
+  private EmployeeSearchIndex employeeSearchIndex;
+
+  private Employee employee;
+
+  @BeforeEach
+  public void setup() {
+    employee = Employee.builder().firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+
+    databaseClient.sql("delete from employees").fetch().rowsUpdated().block();
+    employeeSearchIndex.clear();
+  }
+
+  @Test
+  void givenNewEmployee_whenCreateEmployee_thenCreatedEmployee() {
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees").bodyValue(employee).exchange();
+
+    // then - verify the output
+    response.expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.id").isNumber()
+        .jsonPath("$.firstName").isEqualTo(employee.getFirstName())
+        .jsonPath("$.email").isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenExistingEmail_whenCreateEmployee_thenConflict() {
+    //given - precondition or setup
+    employeeRepository.save(employee).block();
+    Employee duplicate = Employee.builder().firstName("Other").lastName("Person").email(employee.getEmail()).build();
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees").bodyValue(duplicate).exchange();
+
+    // then - verify the output
+    response.expectStatus().isEqualTo(409);
+  }
+
+  @Test
+  void givenNewEmployees_whenCreateEmployees_thenCreatedInOrder() {
+    //given - precondition or setup
+    List<Employee> employees = List.of(employee,
+        Employee.builder().firstName("Sofi").lastName("Diaz").email("sofi@vita.com").build());
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees/batch").bodyValue(employees)
+        .exchange();
+
+    // then - verify the output
+    response.expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[1].email").isEqualTo("sofi@vita.com");
+    assertThat(employeeRepository.findAll().collectList().block()).hasSize(2);
+  }
+
+  @Test
+  void givenEmployees_whenGetEmployeesPage_thenPageAndCursor() {
+    //given - precondition or setup
+    Employee first = employeeRepository.save(employee).block();
+    employeeRepository.save(Employee.builder().firstName("Sofi").lastName("Diaz").email("sofi@vita.com").build())
+        .block();
+
+    // when - action or the behaviour that we are going to test
+    EmployeePage page = webTestClient.get().uri("/api/employees?limit=1").exchange()
+        .expectStatus().isOk()
+        .expectBody(EmployeePage.class).returnResult().getResponseBody();
+
+    // then - verify the output
+    assertThat(page.getContent()).extracting(Employee::getEmail).containsExactly(employee.getEmail());
+    assertThat(page.getNextCursor()).isEqualTo(first.getId());
+  }
+
+  @Test
+  void givenEmployees_whenSearchEmployees_thenMatchesByNameAndQuery() {
+    //given - precondition or setup
+    webTestClient.post().uri("/api/employees").bodyValue(employee).exchange().expectStatus().isCreated();
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec byName = webTestClient.get().uri("/api/employees/search?name=Tor").exchange();
+    WebTestClient.ResponseSpec byQuery = webTestClient.get().uri("/api/employees/search?q=lki").exchange();
+
+    // then - verify the output
+    byName.expectStatus().isOk().expectBody().jsonPath("$[0].lastName").isEqualTo("Torres");
+    byQuery.expectStatus().isOk().expectBody().jsonPath("$[0].firstName").isEqualTo("Elkin");
+  }
+
+  @Test
+  void givenEmployees_whenExportEmployees_thenNdjsonLines() {
+    //given - precondition or setup
+    employeeRepository.save(employee).block();
+    employeeRepository.save(Employee.builder().firstName("Sofi").lastName("Diaz").email("sofi@vita.com").build())
+        .block();
+
+    // when - action or the behaviour that we are going to test
+    String body = webTestClient.get().uri("/api/employees/export").exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .expectBody(String.class).returnResult().getResponseBody();
+
+    // then - verify the output
+    assertThat(body.split("\n")).hasSize(2);
+  }
+
+  @Test
+  void givenExistingEmployee_whenGetEmployeeById_thenEmployee() {
+    //given - precondition or setup
+    Employee savedEmployee = employeeRepository.save(employee).block();
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/{id}", savedEmployee.getId())
+        .exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk().expectBody().jsonPath("$.email").isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenGetEmployeeById_thenNotFound() {
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/{id}", 1L).exchange();
+
+    // then - verify the output
+    response.expectStatus().isNotFound();
+  }
+
+  @Test
+  void givenExistingEmployee_whenUpdateEmployee_thenUpdatedEmployee() {
+    //given - precondition or setup
+    Employee savedEmployee = employeeRepository.save(employee).block();
+    Employee updatedEmployee = Employee.builder().id(savedEmployee.getId()).firstName("Test").lastName("Torres")
+        .email("test@test.org").build();
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees").bodyValue(updatedEmployee)
+        .exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk().expectBody().jsonPath("$.email").isEqualTo("test@test.org");
+    assertThat(employeeRepository.findById(savedEmployee.getId()).block().getFirstName()).isEqualTo("Test");
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenUpdateEmployee_thenNotFound() {
+    //given - precondition or setup
+    employee.setId(1L);
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees").bodyValue(employee).exchange();
+
+    // then - verify the output
+    response.expectStatus().isNotFound();
+  }
+
+  @Test
+  void givenExistingEmployee_whenDeleteEmployee_thenDeleted() {
+    //given - precondition or setup
+    Employee savedEmployee = employeeRepository.save(employee).block();
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.delete().uri("/api/employees/{id}", savedEmployee.getId())
+        .exchange();
+
+    // then - verify the output
+    response.expectStatus().isOk().expectBody(String.class).isEqualTo("Employee deleted successfully");
+    assertThat(employeeRepository.findById(savedEmployee.getId()).block()).isNull();
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenDeleteEmployee_thenNotFound() {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    WebTestClient.ResponseSpec response = webTestClient.delete().uri("/api/employees/{id}", 1L).exchange();
+
+    // then - verify the output
+    response.expectStatus().isNotFound();
+  }
+}
@@ -0,0 +1,126 @@
+package net.javaguides.spring.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.datasource.ReadYourWritesFilter;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.repository.EmployeeRepository;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and its replica. Replication is a snapshot of the primary
+ * taken in setup, so anything written afterwards is only visible on the primary.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "employee.datasource.replicas[0].url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+    "employee.datasource.read-your-writes-window=1m"})
+public class ReplicaRoutingITests {
+
+  private static final String REPLICA_ONLY_EMAIL = "replica@vita.com";
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+  @Autowired
+  private EmployeeRepository employeeRepository;
+  @Autowired
+  private EmployeeCache employeeCache;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:primary", "sa", ""));
+  private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:replica", "sa", ""));
+
+  @BeforeEach
+  public void setup() {
+    employeeRepository.deleteAllInBatch();
+    employeeCache.invalidateAll();
+    entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAll();
+    employeeRepository.save(Employee.builder().firstName("Elkin").lastName("Torres").email("elkin@vita.com").build());
+
+    List<String> script = primary.queryForList("SCRIPT", String.class);
+    replica.execute("DROP ALL OBJECTS");
+    script.forEach(replica::execute);
+    replica.update("insert into employees (id, first_name, last_name, email, version) values (?, ?, ?, ?, ?)",
+        1_000_000L, "Replica", "Only", REPLICA_ONLY_EMAIL, 0L);
+  }
+
+  @Test
+  void givenEmployeeOnlyOnReplica_whenReadInReadOnlyTransactions_thenReadFromReplica() {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<String> response = restTemplate.getForEntity("/api/employees", String.class);
+
+    // then - verify the output
+    assertThat(response.getBody()).contains(REPLICA_ONLY_EMAIL, "elkin@vita.com");
+    assertThat(employeeRepository.findByEmail(REPLICA_ONLY_EMAIL)).isPresent();
+    assertThat(employeeRepository.findAll()).extracting(Employee::getEmail).contains(REPLICA_ONLY_EMAIL);
+  }
+
+  @Test
+  void givenEmployeeOnlyOnReplica_whenGetEmployeeById_thenCacheMissReadFromPrimary() {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<String> response = restTemplate.getForEntity("/api/employees/{id}", String.class, 1_000_000L);
+
+    // then - verify the output
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
+  @Test
+  void givenCreatedEmployee_whenReadWithReadYourWritesCookie_thenReadFromPrimary() {
+    //given - precondition or setup
+    Employee employee = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    ResponseEntity<Employee> created = restTemplate.postForEntity("/api/employees", employee, Employee.class);
+    String cookie = created.getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+
+    // when - action or the behaviour that we are going to test
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.COOKIE, cookie.substring(0, cookie.indexOf(';')));
+    ResponseEntity<String> withCookie = restTemplate.exchange("/api/employees", HttpMethod.GET,
+        new HttpEntity<>(headers), String.class);
+    ResponseEntity<String> withoutCookie = restTemplate.getForEntity("/api/employees", String.class);
+
+    // then - verify the output
+    assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(cookie).startsWith(ReadYourWritesFilter.COOKIE_NAME + "=").contains("Max-Age=60");
+    assertThat(withCookie.getBody()).contains("sofi@vita.com").doesNotContain(REPLICA_ONLY_EMAIL);
+    assertThat(withoutCookie.getBody()).contains(REPLICA_ONLY_EMAIL).doesNotContain("sofi@vita.com");
+  }
+
+  @Test
+  void givenExpiredReadYourWritesCookie_whenGetAllEmployees_thenReadFromReplica() {
+    //given - precondition or setup
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.COOKIE, ReadYourWritesFilter.COOKIE_NAME + "=" + (System.currentTimeMillis() - 1));
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<String> response = restTemplate.exchange("/api/employees", HttpMethod.GET,
+        new HttpEntity<>(headers), String.class);
+
+    // then - verify the output
+    assertThat(response.getBody()).contains(REPLICA_ONLY_EMAIL);
+  }
+}
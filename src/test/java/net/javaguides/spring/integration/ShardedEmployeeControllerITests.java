@@ -0,0 +1,172 @@
+package net.javaguides.spring.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeePage;
+import net.javaguides.spring.repository.ShardedEmployeeRepository;
+import net.javaguides.spring.search.EmployeeSearchIndex;
+
+/**
+ * Three in-memory H2 databases stand in for the shards.
+ */
+@ActiveProfiles("sharded")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "employee.sharding.shards[0].url=jdbc:h2:mem:shard-it-0;DB_CLOSE_DELAY=-1",
+    "employee.sharding.shards[1].url=jdbc:h2:mem:shard-it-1;DB_CLOSE_DELAY=-1",
+    "employee.sharding.shards[2].url=jdbc:h2:mem:shard-it-2;DB_CLOSE_DELAY=-1",
+    "employee.sharding.username=sa",
+    "employee.sharding.password=",
+    "employee.sharding.initialize-schema=true"})
+public class ShardedEmployeeControllerITests {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+  @Autowired
+  private ShardedEmployeeRepository employeeRepository;
+  @Autowired
+  private EmployeeCache employeeCache;
+  @Autowired
+  private EmployeeSearchIndex employeeSearchIndex;
+
+  private Employee employee;
+
+  @BeforeEach
+  public void setup() {
+    employee = Employee.builder().firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+
+    employeeRepository.deleteByIdIn(
+        employeeRepository.findAll().stream().map(Employee::getId).collect(Collectors.toList()));
+    employeeCache.invalidateAll();
+    employeeSearchIndex.clear();
+  }
+
+  private static List<Employee> employees(int count) {
+    return IntStream.range(0, count).mapToObj(n -> Employee.builder().firstName("First" + n).lastName("Last" + n)
+        .email("employee" + n + "@vita.com").build()).collect(Collectors.toList());
+  }
+
+  @Test
+  void givenNewEmployee_whenCreateEmployee_thenFoundById() {
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<Employee> created = restTemplate.postForEntity("/api/employees", employee, Employee.class);
+    employeeCache.invalidateAll();
+    ResponseEntity<Employee> found = restTemplate.getForEntity("/api/employees/{id}", Employee.class,
+        created.getBody().getId());
+
+    // then - verify the output
+    assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(found.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(found.getBody().getEmail()).isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenExistingEmail_whenCreateEmployee_thenConflict() {
+    //given - precondition or setup
+    employeeRepository.insert(employee);
+    Employee duplicate = Employee.builder().firstName("Other").lastName("Person").email(employee.getEmail()).build();
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<String> response = restTemplate.postForEntity("/api/employees", duplicate, String.class);
+
+    // then - verify the output
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+  }
+
+  @Test
+  void givenNewEmployees_whenCreateEmployeesInBatch_thenListedAcrossShards() {
+    //given - precondition or setup
+    List<Employee> employees = employees(12);
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<Employee[]> created = restTemplate.postForEntity("/api/employees/batch", employees,
+        Employee[].class);
+    ResponseEntity<Employee[]> listed = restTemplate.getForEntity("/api/employees", Employee[].class);
+
+    // then - verify the output
+    assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(created.getBody()).extracting(Employee::getEmail)
+        .containsExactlyElementsOf(employees.stream().map(Employee::getEmail).collect(Collectors.toList()));
+    // Every shard counts its own ids, so the list is in id order rather than creation order
+    assertThat(listed.getBody()).extracting(Employee::getId)
+        .containsExactlyInAnyOrder(Stream.of(created.getBody()).map(Employee::getId).toArray(Long[]::new))
+        .isSorted();
+  }
+
+  @Test
+  void givenEmployees_whenGetEmployeesPages_thenEveryEmployeeOnce() {
+    //given - precondition or setup
+    employeeRepository.insertAll(employees(10));
+
+    // when - action or the behaviour that we are going to test
+    EmployeePage first = restTemplate.getForObject("/api/employees?limit=6", EmployeePage.class);
+    EmployeePage second = restTemplate.getForObject("/api/employees?limit=6&after={after}", EmployeePage.class,
+        first.getNextCursor());
+
+    // then - verify the output
+    assertThat(first.getContent()).hasSize(6);
+    assertThat(second.getContent()).hasSize(4);
+    assertThat(second.getNextCursor()).isNull();
+    assertThat(second.getContent().get(0).getId()).isGreaterThan(first.getNextCursor());
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenGetEmployeesByIds_thenFoundInRequestOrder() {
+    //given - precondition or setup
+    List<Employee> employees = employeeRepository.insertAll(employees(6));
+    String ids = employees.get(5).getId() + "," + employees.get(1).getId() + ",1000," + employees.get(3).getId();
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<Employee[]> response = restTemplate.getForEntity("/api/employees?ids={ids}", Employee[].class, ids);
+
+    // then - verify the output
+    assertThat(response.getBody()).extracting(Employee::getId)
+        .containsExactly(employees.get(5).getId(), employees.get(1).getId(), employees.get(3).getId());
+  }
+
+  @Test
+  void givenEmployees_whenSearchEmployeesByName_thenSortedByName() {
+    //given - precondition or setup
+    employeeRepository.insertAll(employees(12));
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<Employee[]> response = restTemplate.getForEntity("/api/employees/search?name=Last1&size=3",
+        Employee[].class);
+
+    // then - verify the output
+    assertThat(response.getBody()).extracting(Employee::getLastName).containsExactly("Last1", "Last10", "Last11");
+  }
+
+  @Test
+  void givenExistingEmployee_whenDeleteEmployee_thenNotFound() {
+    //given - precondition or setup
+    Employee savedEmployee = employeeRepository.insert(employee);
+
+    // when - action or the behaviour that we are going to test
+    ResponseEntity<String> deleted = restTemplate.exchange("/api/employees/{id}", HttpMethod.DELETE,
+        HttpEntity.EMPTY, String.class, savedEmployee.getId());
+
+    // then - verify the output
+    assertThat(deleted.getBody()).isEqualTo("Employee deleted successfully");
+    assertThat(restTemplate.getForEntity("/api/employees/{id}", String.class, savedEmployee.getId())
+        .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(employeeRepository.findByEmail(employee.getEmail())).isEmpty();
+  }
+}
@@ -0,0 +1,141 @@
+package net.javaguides.spring.loader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import net.javaguides.spring.model.Employee;
+
+class EmployeeBatchLoaderTests {
+
+  private final List<List<Long>> queries = new CopyOnWriteArrayList<>();
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private EmployeeBatchLoader loader(Duration window, int maxBatchSize) {
+    return loader(window, maxBatchSize, ids -> {
+      List<Employee> employees = new ArrayList<>();
+      // Odd ids exist, even ids do not
+      ids.stream().filter(id -> id % 2 == 1).forEach(id -> employees.add(employee(id)));
+      return employees;
+    });
+  }
+
+  private EmployeeBatchLoader loader(Duration window, int maxBatchSize,
+      Function<Collection<Long>, List<Employee>> query) {
+    EmployeeBatchLoaderProperties properties = new EmployeeBatchLoaderProperties();
+    properties.setWindow(window);
+    properties.setMaxBatchSize(maxBatchSize);
+    return new EmployeeBatchLoader(properties, ids -> {
+      queries.add(List.copyOf(ids));
+      return query.apply(ids);
+    });
+  }
+
+  private static Employee employee(long id) {
+    return Employee.builder().id(id).firstName("Elkin").lastName("Torres").email("elkin" + id + "@vita.com").build();
+  }
+
+  @Test
+  void givenConcurrentLookups_whenLoad_thenMergedIntoOneQuery() throws Exception {
+    //given - precondition or setup
+    // The window is longer than the test, only filling the batch sends it
+    EmployeeBatchLoader loader = loader(Duration.ofMinutes(1), 3);
+
+    // when - action or the behaviour that we are going to test
+    List<Future<Optional<Employee>>> lookups = new ArrayList<>();
+    for (long id = 1; id <= 3; id++) {
+      long employeeId = id;
+      lookups.add(executor.submit(() -> loader.load(employeeId)));
+    }
+
+    // then - verify the output
+    assertThat(lookups.get(0).get(5, TimeUnit.SECONDS)).get().extracting(Employee::getId).isEqualTo(1L);
+    assertThat(lookups.get(1).get(5, TimeUnit.SECONDS)).isEmpty();
+    assertThat(lookups.get(2).get(5, TimeUnit.SECONDS)).get().extracting(Employee::getId).isEqualTo(3L);
+    assertThat(queries).hasSize(1);
+    assertThat(queries.get(0)).containsExactlyInAnyOrder(1L, 2L, 3L);
+  }
+
+  @Test
+  void givenSingleLookup_whenLoad_thenSentWhenWindowEnds() {
+    //given - precondition or setup
+    EmployeeBatchLoader loader = loader(Duration.ofMillis(20), 100);
+
+    // when - action or the behaviour that we are going to test
+    long start = System.nanoTime();
+    Optional<Employee> employee = loader.load(1L);
+
+    // then - verify the output
+    assertThat(employee).get().extracting(Employee::getId).isEqualTo(1L);
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(20).toNanos());
+    assertThat(queries).containsExactly(List.of(1L));
+  }
+
+  @Test
+  void givenMoreIdsThanBatchSize_whenLoadAll_thenSplitAcrossQueries() {
+    //given - precondition or setup
+    EmployeeBatchLoader loader = loader(Duration.ofMillis(5), 2);
+
+    // when - action or the behaviour that we are going to test
+    Map<Long, Optional<Employee>> employees = loader.loadAll(List.of(5L, 1L, 2L, 5L, 3L, 4L));
+
+    // then - verify the output
+    assertThat(employees).containsOnlyKeys(5L, 1L, 2L, 3L, 4L);
+    assertThat(employees.get(2L)).isEmpty();
+    assertThat(employees.get(3L)).get().extracting(Employee::getId).isEqualTo(3L);
+    assertThat(queries).containsExactly(List.of(5L, 1L), List.of(2L, 3L), List.of(4L));
+  }
+
+  @Test
+  void givenFailingQuery_whenLoad_thenEveryLookupOfTheBatchFails() throws Exception {
+    //given - precondition or setup
+    EmployeeBatchLoader loader = loader(Duration.ofMinutes(1), 2, ids -> {
+      throw new DataAccessResourceFailureException("Connection lost");
+    });
+
+    // when - action or the behaviour that we are going to test
+    Future<Optional<Employee>> other = executor.submit(() -> loader.load(2L));
+
+    // then - verify the output
+    assertThatThrownBy(() -> loader.load(1L)).isInstanceOf(DataAccessResourceFailureException.class);
+    assertThatThrownBy(() -> other.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(DataAccessResourceFailureException.class);
+    assertThat(queries).hasSize(1);
+  }
+
+  @Test
+  void givenZeroWindow_whenLoad_thenEveryLookupQueriedOnItsOwn() {
+    //given - precondition or setup
+    EmployeeBatchLoader loader = loader(Duration.ZERO, 100);
+
+    // when - action or the behaviour that we are going to test
+    loader.load(1L);
+    Map<Long, Optional<Employee>> employees = loader.loadAll(List.of(3L, 4L));
+
+    // then - verify the output
+    assertThat(employees.get(3L)).isPresent();
+    assertThat(employees.get(4L)).isEmpty();
+    assertThat(queries).containsExactly(List.of(1L), List.of(3L, 4L));
+  }
+}
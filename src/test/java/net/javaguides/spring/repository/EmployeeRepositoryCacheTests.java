@@ -0,0 +1,147 @@
+package net.javaguides.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.sql.SqlStatementCounter;
+
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", SqlStatementCounter.PROPERTY})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmployeeRepositoryCacheTests {
+
+  private static final String FIRST_NAME_FILTER = "Elkin";
+  private static final String LAST_NAME_FILTER = "Torres";
+  @Autowired
+  private EmployeeRepository employeeRepository;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    employeeRepository.deleteAllInBatch();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    employee = employeeRepository.save(Employee.builder()
+        .firstName("Elkin")
+        .lastName("Torres")
+        .email("elkin@vita.com")
+        .build());
+  }
+
+  @Test
+  void givenCachedEmployee_whenFindById_thenNoStatementExecuted() {
+    //given - precondition or setup
+    employeeRepository.findById(employee.getId());
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    Employee dbEmployee = employeeRepository.findById(employee.getId()).get();
+
+    // then - verify the output
+    assertThat(dbEmployee.getEmail()).isEqualTo("elkin@vita.com");
+    SqlStatementCounter.assertStatements(0, 0, 0, 0);
+    assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenOneCachedEmployee_whenLoadAllById_thenOnlyTheOtherRead() {
+    //given - precondition or setup
+    Employee employee2 = employeeRepository.save(Employee.builder()
+        .firstName("Sofi")
+        .lastName("Torres")
+        .email("sofi@vita.com")
+        .build());
+    employeeRepository.findById(employee.getId());
+    entityManagerFactory.getCache().evict(Employee.class, employee2.getId());
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employees = employeeRepository.loadAllById(List.of(employee.getId(), employee2.getId(), 0L));
+
+    // then - verify the output
+    assertThat(employees).extracting(Employee::getEmail).containsExactly("elkin@vita.com", "sofi@vita.com");
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+    assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenRepeatedLookup_whenFindByEmail_thenNoStatementExecuted() {
+    //given - precondition or setup
+    employeeRepository.findByEmail(employee.getEmail());
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    Employee dbEmployee = employeeRepository.findByEmail(employee.getEmail()).get();
+
+    // then - verify the output
+    assertThat(dbEmployee.getFirstName()).isEqualTo("Elkin");
+    SqlStatementCounter.assertStatements(0, 0, 0, 0);
+    assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void givenRepeatedLookup_whenFindByJPQL_thenNoStatementExecuted() {
+    //given - precondition or setup
+    employeeRepository.findByJPQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+    employeeRepository.findByJPQLNamedParams(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.findByJPQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+    Employee dbEmployee = employeeRepository.findByJPQLNamedParams(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+
+    // then - verify the output
+    assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
+    SqlStatementCounter.assertStatements(0, 0, 0, 0);
+  }
+
+  @Test
+  void givenEmployeesChanged_whenFindByEmail_thenStatementExecuted() {
+    //given - precondition or setup
+    employeeRepository.findByEmail(employee.getEmail());
+    employeeRepository.save(Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build());
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.findByEmail(employee.getEmail());
+
+    // then - verify the output
+    assertThat(statistics.getQueryCacheHitCount()).isZero();
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+  }
+
+  @Test
+  void givenRepeatedLookup_whenFindByNativeSQL_thenStatementExecuted() {
+    //given - precondition or setup
+    employeeRepository.findByNativeSQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+    statistics.clear();
+    SqlStatementCounter.reset();
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.findByNativeSQL(FIRST_NAME_FILTER, LAST_NAME_FILTER);
+
+    // then - verify the output
+    SqlStatementCounter.assertStatements(1, 0, 0, 0);
+  }
+
+}
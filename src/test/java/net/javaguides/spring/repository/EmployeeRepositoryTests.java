@@ -10,8 +10,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeView;
 
 @DataJpaTest
 class EmployeeRepositoryTests {
@@ -20,6 +23,8 @@ class EmployeeRepositoryTests {
   private static final String LAST_NAME_FILTER = "Torres";
   @Autowired
   private EmployeeRepository employeeRepository;
+  @Autowired
+  private TestEntityManager entityManager;
 
   private Employee employee;
 
@@ -62,6 +67,36 @@ class EmployeeRepositoryTests {
         .hasSize(2);
   }
 
+  @Test
+  void givenExistingEmployees_whenFindAllViews_thenUnmanagedViews() {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    employeeRepository.save(Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build());
+    entityManager.flush();
+    entityManager.clear();
+
+    // when - action or the behaviour that we are going to test
+    List<EmployeeView> views = employeeRepository.findAllViews();
+
+    // then - verify the output
+    assertThat(views).extracting(EmployeeView::getEmail).containsExactlyInAnyOrder("elkin@vita.com", "sofi@vita.com");
+    assertThat(entityManager.getEntityManager().contains(employee)).isFalse();
+    assertThat(entityManager.find(Employee.class, employee.getId())).isNotSameAs(employee);
+  }
+
+  @Test
+  void givenExistingEmployee_whenFindViewById_thenFoundView() {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+
+    // when - action or the behaviour that we are going to test
+    Optional<EmployeeView> view = employeeRepository.findViewById(employee.getId());
+
+    // then - verify the output
+    assertThat(view).get().extracting(EmployeeView::getFirstName, EmployeeView::getLastName, EmployeeView::getVersion)
+        .containsExactly("Elkin", "Torres", 0L);
+  }
+
   @Test
   void givenExistingEmployee_whenFindById_thenFoundEmployee() {
     //given - precondition or setup
@@ -172,4 +207,60 @@ class EmployeeRepositoryTests {
     assertThat(dbEmployee.getLastName()).isEqualTo("Torres");
   }
 
+  @Test
+  void givenExistingEmployees_whenFindPageAfter_thenFoundNextEmployees() {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    Employee employee2 = Employee.builder().firstName("Valita").lastName("Torres").email("muñeca@hermosa.com").build();
+    employeeRepository.save(employee2);
+    Employee employee3 = Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    employeeRepository.save(employee3);
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employeeList = employeeRepository.findPageAfter(employee.getId(), PageRequest.of(0, 1));
+
+    // then - verify the output
+    assertThat(employeeList)
+        .hasSize(1)
+        .extracting(Employee::getId)
+        .containsExactly(employee2.getId());
+  }
+
+  @Test
+  void givenExistingEmployees_whenFindByLastNamePrefix_thenFoundEmployeesInNameOrder() {
+    //given - precondition or setup
+    employeeRepository.save(employee);
+    Employee employee2 = Employee.builder().firstName("Sofi").lastName("Torrente").email("sofi@vita.com").build();
+    employeeRepository.save(employee2);
+    Employee employee3 = Employee.builder().firstName("Valita").lastName("Echeverria").email("muñeca@hermosa.com").build();
+    employeeRepository.save(employee3);
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employeeList = employeeRepository.findByLastNamePrefix("Torr%", PageRequest.of(0, 10));
+
+    // then - verify the output
+    assertThat(employeeList)
+        .extracting(Employee::getLastName)
+        .containsExactly("Torrente", "Torres");
+  }
+
+  @Test
+  void givenNameFilters_whenExplainNameLookups_thenNameIndexUsed() {
+    //given - precondition or setup
+    String[] nameLookups = {
+        "select * from employees e where e.first_name = 'Elkin' and e.last_name = 'Torres'",
+        "select * from employees e where e.last_name like 'Tor%' order by e.last_name, e.first_name"
+    };
+
+    for (String nameLookup : nameLookups) {
+      // when - action or the behaviour that we are going to test
+      String plan = entityManager.getEntityManager().createNativeQuery("explain " + nameLookup).getSingleResult().toString();
+
+      // then - verify the output
+      assertThat(plan)
+          .containsIgnoringCase(Employee.NAME_INDEX)
+          .doesNotContainIgnoringCase("tableScan");
+    }
+  }
+
 }
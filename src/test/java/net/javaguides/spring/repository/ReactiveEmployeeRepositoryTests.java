@@ -0,0 +1,197 @@
+package net.javaguides.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import net.javaguides.spring.model.Employee;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ActiveProfiles("reactive")
+@Import(ReactiveEmployeeRepository.class)
+@DataR2dbcTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///reactive-repository?options=DB_CLOSE_DELAY=-1")
+class ReactiveEmployeeRepositoryTests {
+
+  @Autowired
+  private ReactiveEmployeeRepository employeeRepository;
+  @Autowired
+  private DatabaseClient databaseClient;
+  @Autowired
+  private ReactiveTransactionManager transactionManager;
+
+  private Employee employee;
+
+  @BeforeEach
+  void setup() {
+    databaseClient.sql("delete from employees").fetch().rowsUpdated().block();
+    employee = Employee.builder().firstName("Elkin").lastName("Torres").email("elkin@vita.com").build();
+  }
+
+  @Test
+  void givenNewEmployee_whenSave_thenGeneratedId() {
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.save(employee))
+        // then - verify the output
+        .expectNextMatches(savedEmployee -> savedEmployee.getId() > 0)
+        .verifyComplete();
+  }
+
+  @Test
+  void givenClientVersion_whenSave_thenInsertedAtFirstVersion() {
+    //given - precondition or setup
+    employee.setVersion(5L);
+
+    // when - action or the behaviour that we are going to test
+    Employee savedEmployee = employeeRepository.save(employee).block();
+
+    // then - verify the output
+    assertThat(savedEmployee.getVersion()).isZero();
+    StepVerifier.create(employeeRepository.findById(savedEmployee.getId()))
+        .expectNextMatches(dbEmployee -> dbEmployee.getVersion() == 0)
+        .verifyComplete();
+  }
+
+  @Test
+  void givenBlockReservedByJpa_whenSave_thenIdsOutsideIt() {
+    //given - precondition or setup
+    List<Long> ids = new ArrayList<>(saveEmployees("before", 51));
+    long value = databaseClient.sql("select next_val from employees_seq").map(row -> row.get("next_val", Long.class))
+        .one().block();
+    // What Hibernate's pooled optimizer does on the JPA side: take the ids value - 49 to value
+    databaseClient.sql("update employees_seq set next_val = next_val + 50").fetch().rowsUpdated().block();
+
+    // when - action or the behaviour that we are going to test
+    ids.addAll(saveEmployees("after", 51));
+
+    // then - verify the output
+    assertThat(ids).doesNotHaveDuplicates().allMatch(id -> id > 0 && (id < value - 49 || id > value));
+  }
+
+  @Test
+  void givenRolledBackInsert_whenSaveAgain_thenBlockStillReserved() {
+    //given - precondition or setup
+    ReactiveEmployeeRepository freshRepository = new ReactiveEmployeeRepository(databaseClient, transactionManager);
+    long before = sequenceValue();
+    Mono<Employee> rolledBack = TransactionalOperator.create(transactionManager).transactional(
+        freshRepository.save(employee).then(Mono.error(new IllegalStateException("Rolled back"))));
+    StepVerifier.create(rolledBack).expectError(IllegalStateException.class).verify();
+
+    // when - action or the behaviour that we are going to test
+    ReactiveEmployeeRepository otherNode = new ReactiveEmployeeRepository(databaseClient, transactionManager);
+    Employee saved = otherNode.save(Employee.builder().firstName("Sofi").lastName("Torres").email("sofi@vita.com")
+        .build()).block();
+
+    // then - verify the output
+    assertThat(sequenceValue()).isEqualTo(before + 100);
+    assertThat(saved.getId()).isGreaterThan(before);
+  }
+
+  private long sequenceValue() {
+    return databaseClient.sql("select next_val from employees_seq").map(row -> row.get("next_val", Long.class))
+        .one().block();
+  }
+
+  private List<Long> saveEmployees(String prefix, int count) {
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      employees.add(Employee.builder().firstName("First").lastName("Last").email(prefix + i + "@vita.com").build());
+    }
+    List<Long> ids = new ArrayList<>();
+    employeeRepository.saveAll(employees).doOnNext(saved -> ids.add(saved.getId())).blockLast();
+    return ids;
+  }
+
+  @Test
+  void givenExistingEmail_whenSave_thenDataIntegrityViolation() {
+    //given - precondition or setup
+    employeeRepository.save(employee).block();
+    Employee duplicate = Employee.builder().firstName("Other").lastName("Person").email(employee.getEmail()).build();
+
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.save(duplicate))
+        // then - verify the output
+        .expectError(DataIntegrityViolationException.class)
+        .verify();
+  }
+
+  @Test
+  void givenEmployeeObject_whenFindByEmail_thenEmployee() {
+    //given - precondition or setup
+    employeeRepository.save(employee).block();
+
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.findByEmail(employee.getEmail()))
+        // then - verify the output
+        .expectNextMatches(found -> found.getFirstName().equals(employee.getFirstName()))
+        .verifyComplete();
+  }
+
+  @Test
+  void givenFirstNameAndLastName_whenFindByFirstNameAndLastName_thenEmployees() {
+    //given - precondition or setup
+    employeeRepository.save(employee).block();
+
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.findByFirstNameAndLastName("Elkin", "Torres"))
+        // then - verify the output
+        .expectNextMatches(found -> found.getEmail().equals(employee.getEmail()))
+        .verifyComplete();
+  }
+
+  @Test
+  void givenEmployees_whenFindPageAfter_thenOrderedById() {
+    //given - precondition or setup
+    Employee first = employeeRepository.save(employee).block();
+    Employee second = employeeRepository
+        .save(Employee.builder().firstName("Sofi").lastName("Diaz").email("sofi@vita.com").build()).block();
+
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.findPageAfter(first.getId(), 10))
+        // then - verify the output
+        .expectNextMatches(found -> found.getId() == second.getId())
+        .verifyComplete();
+  }
+
+  @Test
+  void givenEmployees_whenFindByLastNamePrefix_thenMatchesOnly() {
+    //given - precondition or setup
+    employeeRepository.saveAll(List.of(employee,
+        Employee.builder().firstName("Sofi").lastName("Diaz").email("sofi@vita.com").build())).blockLast();
+
+    // when - action or the behaviour that we are going to test
+    StepVerifier.create(employeeRepository.findByLastNamePrefix("Tor%", 10, 0))
+        // then - verify the output
+        .expectNextMatches(found -> found.getLastName().equals("Torres"))
+        .verifyComplete();
+  }
+
+  @Test
+  void givenExistingEmployee_whenUpdateAndDelete_thenChangedThenGone() {
+    //given - precondition or setup
+    Employee savedEmployee = employeeRepository.save(employee).block();
+    savedEmployee.setEmail("test@test.org");
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.save(savedEmployee).block();
+    StepVerifier.create(employeeRepository.findById(savedEmployee.getId()))
+        .expectNextMatches(found -> found.getEmail().equals("test@test.org") && found.getVersion() == 1)
+        .verifyComplete();
+    employeeRepository.deleteById(savedEmployee.getId()).block();
+
+    // then - verify the output
+    StepVerifier.create(employeeRepository.findById(savedEmployee.getId())).verifyComplete();
+  }
+}
@@ -0,0 +1,312 @@
+package net.javaguides.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeListVersion;
+
+class ShardedEmployeeRepositoryTests {
+
+  private static final int SHARDS = 3;
+
+  private final List<JdbcTemplate> shards = new ArrayList<>();
+
+  private ShardedEmployeeRepository employeeRepository;
+
+  @BeforeEach
+  void setup() {
+    List<DataSource> dataSources = new ArrayList<>();
+    for (int i = 0; i < SHARDS; i++) {
+      DataSource dataSource = new DriverManagerDataSource(
+          "jdbc:h2:mem:employee-shard-" + i + ";DB_CLOSE_DELAY=-1", "sa", "");
+      dataSources.add(dataSource);
+      shards.add(new JdbcTemplate(dataSource));
+    }
+    employeeRepository = new ShardedEmployeeRepository(dataSources);
+    employeeRepository.initializeSchema();
+  }
+
+  @AfterEach
+  void tearDown() {
+    shards.forEach(shard -> shard.execute("drop all objects"));
+    employeeRepository.close();
+  }
+
+  private static Employee employee(int n) {
+    return Employee.builder().firstName("First" + n).lastName("Last" + n).email("employee" + n + "@vita.com").build();
+  }
+
+  private List<Employee> insert(int count) {
+    return IntStream.range(0, count).mapToObj(n -> employeeRepository.insert(employee(n)))
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void givenNewEmployees_whenInsert_thenUniqueIdsStoredOnTheirShard() {
+    //given - precondition or setup
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employees = insert(30);
+
+    // then - verify the output
+    assertThat(employees).extracting(Employee::getId).doesNotHaveDuplicates();
+    for (Employee employee : employees) {
+      JdbcTemplate shard = shards.get((int) ((employee.getId() - 1) % SHARDS));
+      assertThat(shard.queryForObject("select email from employees where id = ?", String.class, employee.getId()))
+          .isEqualTo(employee.getEmail());
+    }
+    for (JdbcTemplate shard : shards) {
+      assertThat(shard.queryForObject("select count(*) from employees", Long.class)).isPositive();
+    }
+  }
+
+  @Test
+  void givenEmployees_whenFindByIdAndEmail_thenFound() {
+    //given - precondition or setup
+    List<Employee> employees = insert(10);
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    for (Employee employee : employees) {
+      assertThat(employeeRepository.findById(employee.getId())).get().extracting(Employee::getEmail)
+          .isEqualTo(employee.getEmail());
+      assertThat(employeeRepository.findByEmail(employee.getEmail())).get().extracting(Employee::getId)
+          .isEqualTo(employee.getId());
+    }
+    assertThat(employeeRepository.findById(1_000_000L)).isEmpty();
+    assertThat(employeeRepository.findByEmail("nobody@vita.com")).isEmpty();
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenFindAllById_thenFoundOnTheirShards() {
+    //given - precondition or setup
+    List<Long> ids = insert(6).stream().map(Employee::getId).collect(Collectors.toList());
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employees = employeeRepository.findAllById(List.of(ids.get(4), ids.get(0), ids.get(2), 1000L));
+
+    // then - verify the output
+    assertThat(employees).extracting(Employee::getId).containsExactlyInAnyOrder(ids.get(4), ids.get(0), ids.get(2));
+  }
+
+  @Test
+  void givenEmployee_whenEmailChangedToOneOfAnotherShard_thenFoundByNewEmailOnly() {
+    //given - precondition or setup
+    Employee employee = employeeRepository.insert(employee(1));
+    String newEmail = IntStream.range(0, 100).mapToObj(n -> "moved" + n + "@vita.com")
+        .filter(email -> Math.floorMod(email.hashCode(), SHARDS) != (employee.getId() - 1) % SHARDS)
+        .findFirst().orElseThrow();
+
+    // when - action or the behaviour that we are going to test
+    int updated = employeeRepository.patch(employee.getId(), Employee.builder().email(newEmail).build(), 0L);
+
+    // then - verify the output
+    assertThat(updated).isEqualTo(1);
+    assertThat(employeeRepository.findByEmail(newEmail)).get().extracting(Employee::getVersion).isEqualTo(1L);
+    assertThat(employeeRepository.findByEmail(employee.getEmail())).isEmpty();
+    assertThat(employeeRepository.insert(employee(1)).getId()).isNotEqualTo(employee.getId());
+  }
+
+  @Test
+  void givenEmailOfAnotherShardsEmployee_whenUpdate_thenDuplicateAndUnchanged() {
+    //given - precondition or setup
+    List<Employee> employees = insert(10);
+    Employee employee = employees.get(0);
+    Employee other = employees.stream()
+        .filter(candidate -> (candidate.getId() - 1) % SHARDS != (employee.getId() - 1) % SHARDS)
+        .findFirst().orElseThrow();
+
+    // when - action or the behaviour that we are going to test
+    Employee changed = Employee.builder().id(employee.getId()).firstName("Elkin").lastName("Torres")
+        .email(other.getEmail()).build();
+
+    // then - verify the output
+    assertThatThrownBy(() -> employeeRepository.update(changed, null)).isInstanceOf(DuplicateKeyException.class);
+    assertThat(employeeRepository.findById(employee.getId())).get().extracting(Employee::getEmail)
+        .isEqualTo(employee.getEmail());
+  }
+
+  @Test
+  void givenStaleVersion_whenPatchEmail_thenNotUpdatedAndNewEmailFree() {
+    //given - precondition or setup
+    Employee employee = employeeRepository.insert(employee(1));
+
+    // when - action or the behaviour that we are going to test
+    int updated = employeeRepository.patch(employee.getId(), Employee.builder().email("new@vita.com").build(), 5L);
+
+    // then - verify the output
+    assertThat(updated).isZero();
+    assertThat(employeeRepository.findExistingEmails(List.of("new@vita.com", employee.getEmail())))
+        .containsExactly(employee.getEmail());
+  }
+
+  @Test
+  void givenFailingUpdate_whenEmailChanged_thenNewClaimUndoneAndOldKept() {
+    //given - precondition or setup
+    Employee employee = employeeRepository.insert(employee(1));
+    String newEmail = IntStream.range(0, 100).mapToObj(n -> "moved" + n + "@vita.com")
+        .filter(email -> Math.floorMod(email.hashCode(), SHARDS) != (employee.getId() - 1) % SHARDS)
+        .findFirst().orElseThrow();
+    // Too long for the column, so the update fails after the new email is claimed on the other shard
+    Employee changes = Employee.builder().firstName("F".repeat(300)).email(newEmail).build();
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> employeeRepository.patch(employee.getId(), changes, null))
+        .isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(claimOwners(newEmail)).isEmpty();
+    assertThat(claimOwners(employee.getEmail())).containsExactly(employee.getId());
+    assertThat(employeeRepository.findByEmail(employee.getEmail())).isPresent();
+  }
+
+  private List<Long> claimOwners(String email) {
+    return shards.get(Math.floorMod(email.hashCode(), SHARDS))
+        .queryForList("select employee_id from employee_emails where email = ?", Long.class, email);
+  }
+
+  @Test
+  void givenClaimLeftByFailedWrite_whenInsertWithThatEmail_thenClaimTakenOver() {
+    //given - precondition or setup
+    Employee employee = employee(1);
+    shards.get(Math.floorMod(employee.getEmail().hashCode(), SHARDS))
+        .update("insert into employee_emails (email, employee_id) values (?, ?)", employee.getEmail(), 999L);
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.insert(employee);
+
+    // then - verify the output
+    assertThat(employeeRepository.findByEmail(employee.getEmail())).get().extracting(Employee::getId)
+        .isEqualTo(employee.getId());
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenPaged_thenMergedInIdOrder() {
+    //given - precondition or setup
+    List<Long> ids = insert(20).stream().map(Employee::getId).sorted().collect(Collectors.toList());
+
+    // when - action or the behaviour that we are going to test
+    List<Long> pagedIds = new ArrayList<>();
+    long after = 0;
+    List<Employee> page;
+    while (!(page = employeeRepository.findPageAfter(after, 6)).isEmpty()) {
+      page.forEach(employee -> pagedIds.add(employee.getId()));
+      after = page.get(page.size() - 1).getId();
+    }
+
+    // then - verify the output
+    assertThat(pagedIds).isEqualTo(ids);
+    assertThat(employeeRepository.findAll()).extracting(Employee::getId).isEqualTo(ids);
+    assertThat(employeeRepository.findAllViews()).extracting(view -> view.getId()).isEqualTo(ids);
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenSearchByNamePages_thenMergedInNameOrder() {
+    //given - precondition or setup
+    insert(20);
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> firstPage = employeeRepository.findByLastNamePrefix("Last1%", 4, 0);
+    List<Employee> secondPage = employeeRepository.findByLastNamePrefix("Last1%", 4, 4);
+
+    // then - verify the output
+    assertThat(firstPage).extracting(Employee::getLastName).containsExactly("Last1", "Last10", "Last11", "Last12");
+    assertThat(secondPage).extracting(Employee::getLastName).containsExactly("Last13", "Last14", "Last15", "Last16");
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenFindListVersion_thenAggregated() {
+    //given - precondition or setup
+    List<Employee> employees = insert(9);
+    employeeRepository.patch(employees.get(0).getId(), Employee.builder().firstName("Sofi").build(), null);
+
+    // when - action or the behaviour that we are going to test
+    EmployeeListVersion listVersion = employeeRepository.findListVersion();
+
+    // then - verify the output
+    assertThat(listVersion.getCount()).isEqualTo(9);
+    assertThat(listVersion.getVersionSum()).isEqualTo(1);
+    assertThat(listVersion.getMaxId()).isEqualTo(employees.stream().mapToLong(Employee::getId).max().getAsLong());
+  }
+
+  @Test
+  void givenDeleteAndInsertBelowMaxId_whenFindListVersion_thenChecksumChanged() {
+    //given - precondition or setup
+    Employee deleted = employeeRepository.insert(employeeOnShard("deleted", 1));
+    employeeRepository.insert(employeeOnShard("kept", 2));
+    employeeRepository.insert(employeeOnShard("max", 2));
+    EmployeeListVersion before = employeeRepository.findListVersion();
+
+    // when - action or the behaviour that we are going to test
+    employeeRepository.deleteById(deleted.getId());
+    // Shard 0 has not handed out an id yet, so the new one is below the maximum
+    employeeRepository.insert(employeeOnShard("inserted", 0));
+    EmployeeListVersion after = employeeRepository.findListVersion();
+
+    // then - verify the output
+    assertThat(after.getCount()).isEqualTo(before.getCount());
+    assertThat(after.getVersionSum()).isEqualTo(before.getVersionSum());
+    assertThat(after.getMaxId()).isEqualTo(before.getMaxId());
+    assertThat(after.getChecksum()).isNotEqualTo(before.getChecksum());
+  }
+
+  private static Employee employeeOnShard(String name, int shard) {
+    String email = IntStream.range(0, 100).mapToObj(n -> name + n + "@vita.com")
+        .filter(candidate -> Math.floorMod(candidate.hashCode(), SHARDS) == shard)
+        .findFirst().orElseThrow();
+    return Employee.builder().firstName(name).lastName(name).email(email).build();
+  }
+
+  @Test
+  void givenEmployeesOnEveryShard_whenDeleteByIdIn_thenDeletedAndEmailsFree() {
+    //given - precondition or setup
+    List<Employee> employees = insert(9);
+    List<Long> ids = employees.subList(0, 6).stream().map(Employee::getId).collect(Collectors.toList());
+    long missingId = employees.stream().mapToLong(Employee::getId).max().getAsLong() + 1;
+
+    // when - action or the behaviour that we are going to test
+    List<Long> deletedIds = employeeRepository.deleteByIdIn(
+        Stream.concat(ids.stream(), Stream.of(missingId)).collect(Collectors.toList()));
+
+    // then - verify the output
+    assertThat(deletedIds).containsExactlyInAnyOrderElementsOf(ids);
+    assertThat(employeeRepository.findAll()).hasSize(3);
+    assertThat(employeeRepository.findExistingEmails(
+        employees.stream().map(Employee::getEmail).collect(Collectors.toList()))).hasSize(3);
+    assertThat(employeeRepository.deleteById(ids.get(0))).isZero();
+  }
+
+  @Test
+  void givenDuplicateOnOneShard_whenInsertAll_thenNothingInserted() {
+    //given - precondition or setup
+    Employee existing = employeeRepository.insert(employee(0));
+    List<Employee> employees = IntStream.range(1, 10).mapToObj(ShardedEmployeeRepositoryTests::employee)
+        .collect(Collectors.toCollection(ArrayList::new));
+    employees.add(employee(0));
+
+    // when - action or the behaviour that we are going to test
+
+    // then - verify the output
+    assertThatThrownBy(() -> employeeRepository.insertAll(employees)).isInstanceOf(DuplicateKeyException.class);
+    assertThat(employeeRepository.findAll()).extracting(Employee::getId).containsExactly(existing.getId());
+    assertThat(employeeRepository.insertAll(employees.subList(0, 9))).hasSize(9);
+  }
+}
@@ -0,0 +1,102 @@
+package net.javaguides.spring.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.javaguides.spring.model.Employee;
+
+class EmployeeSearchIndexTests {
+
+  private EmployeeSearchIndex employeeSearchIndex;
+
+  @BeforeEach
+  void setup() {
+    employeeSearchIndex = new EmployeeSearchIndex();
+    employeeSearchIndex.index(employee(1L, "Elkin", "Torres", "elkin@vita.com"));
+    employeeSearchIndex.index(employee(2L, "Sofia", "Torrente", "sofia.torrente@vita.com"));
+    employeeSearchIndex.index(employee(3L, "Victor", "Mestorre", "victor@acme.org"));
+    employeeSearchIndex.index(employee(4L, "Ana", "Diaz", "ana@vita.com"));
+  }
+
+  private static Employee employee(long id, String firstName, String lastName, String email) {
+    return Employee.builder().id(id).firstName(firstName).lastName(lastName).email(email).build();
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchSubstring_thenRankedByMatchQuality() {
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> matches = employeeSearchIndex.search("TORR", 10);
+
+    // then - verify the output
+    assertThat(matches).extracting(EmployeeMatch::getId).containsExactly(1L, 2L, 3L);
+    assertThat(matches).extracting(EmployeeMatch::getScore).containsExactly(3, 3, 1);
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchWordInEmail_thenWordPrefixMatch() {
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> matches = employeeSearchIndex.search("acme", 10);
+
+    // then - verify the output
+    assertThat(matches).extracting(EmployeeMatch::getId).containsExactly(3L);
+    assertThat(matches.get(0).getScore()).isEqualTo(2);
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchShortQuery_thenFieldPrefixMatchesOnly() {
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> oneChar = employeeSearchIndex.search("v", 10);
+    List<EmployeeMatch> twoChars = employeeSearchIndex.search("el", 10);
+
+    // then - verify the output
+    assertThat(oneChar).extracting(EmployeeMatch::getId).containsExactly(3L);
+    assertThat(twoChars).extracting(EmployeeMatch::getId).containsExactly(1L);
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchGramsSpreadAcrossFields_thenNoMatch() {
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> matches = employeeSearchIndex.search("elkintorres", 10);
+
+    // then - verify the output
+    assertThat(matches).isEmpty();
+  }
+
+  @Test
+  void givenIndexedEmployees_whenSearchWithLimit_thenBestMatchesOnly() {
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> matches = employeeSearchIndex.search("vita.com", 2);
+
+    // then - verify the output
+    assertThat(matches).extracting(EmployeeMatch::getId).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void givenReindexedEmployee_whenSearch_thenOldValuesNoLongerMatch() {
+    //given - precondition or setup
+    employeeSearchIndex.index(employee(1L, "Elkin", "Ramirez", "elkin@vita.com"));
+
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> oldMatches = employeeSearchIndex.search("torres", 10);
+    List<EmployeeMatch> newMatches = employeeSearchIndex.search("ramirez", 10);
+
+    // then - verify the output
+    assertThat(oldMatches).isEmpty();
+    assertThat(newMatches).extracting(EmployeeMatch::getId).containsExactly(1L);
+    assertThat(employeeSearchIndex.size()).isEqualTo(4);
+  }
+
+  @Test
+  void givenRemovedEmployee_whenSearch_thenNotFound() {
+    // when - action or the behaviour that we are going to test
+    employeeSearchIndex.remove(2L);
+
+    // then - verify the output
+    assertThat(employeeSearchIndex.search("sofia", 10)).isEmpty();
+    assertThat(employeeSearchIndex.search("torr", 10)).extracting(EmployeeMatch::getId).containsExactly(1L, 3L);
+  }
+}
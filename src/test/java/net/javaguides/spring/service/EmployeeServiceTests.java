@@ -3,26 +3,45 @@ package net.javaguides.spring.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
-import net.javaguides.spring.exception.ResourceNotFoundException;
+import net.javaguides.spring.cache.EmployeeCache;
+import net.javaguides.spring.cache.EmployeeCacheProperties;
+import net.javaguides.spring.changes.EmployeeChangeFeed;
+import net.javaguides.spring.exception.EmployeeAlreadyExistsException;
+import net.javaguides.spring.loader.EmployeeBatchLoaderProperties;
 import net.javaguides.spring.model.Employee;
+import net.javaguides.spring.model.EmployeeChange;
+import net.javaguides.spring.model.EmployeePage;
 import net.javaguides.spring.repository.EmployeeRepository;
+import net.javaguides.spring.search.EmployeeMatch;
+import net.javaguides.spring.search.EmployeeSearchIndex;
 import net.javaguides.spring.service.impl.EmployeeServiceImpl;
 
 @ExtendWith({MockitoExtension.class})
@@ -30,6 +49,16 @@ class EmployeeServiceTests {
 
   @Mock
   private EmployeeRepository employeeRepository;
+  @Mock
+  private EntityManager entityManager;
+  @Mock
+  private EmployeeChangeFeed employeeChangeFeed;
+  @Spy
+  private EmployeeCache employeeCache = new EmployeeCache(new EmployeeCacheProperties());
+  @Spy
+  private EmployeeSearchIndex employeeSearchIndex = new EmployeeSearchIndex();
+  @Spy
+  private EmployeeBatchLoaderProperties batchLoaderProperties = new EmployeeBatchLoaderProperties();
   @InjectMocks
   private EmployeeServiceImpl employeeService;
   private Employee employee;
@@ -47,26 +76,80 @@ class EmployeeServiceTests {
   @Test
   void givenNewEmployee_whenSaveEmployee_thenSavedEmployee() {
     //given - precondition or setup
-    given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-    given(employeeRepository.save(employee)).willReturn(employee);
+    given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeService.saveEmployee(employee);
 
     // then - verify the output
     assertThat(dbEmployee).isNotNull();
+    verify(employeeRepository, never()).findByEmail(any());
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.CREATED, employee.getId(), employee);
+  }
+
+  @Test
+  void givenClientIdAndVersion_whenSaveEmployee_thenInsertedAtFirstVersion() {
+    //given - precondition or setup
+    employee.setVersion(5L);
+    given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
+
+    // when - action or the behaviour that we are going to test
+    employeeService.saveEmployee(employee);
+
+    // then - verify the output
+    verify(employeeRepository).saveAndFlush(argThat(saved -> saved.getId() == 0 && saved.getVersion() == 0));
   }
 
   @Test
   void givenExistingEmployee_whenSave_thenException() {
     //given - precondition or setup
-    given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+    given(employeeRepository.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("duplicate",
+        new ConstraintViolationException("duplicate", null, Employee.EMAIL_INDEX)));
+
+    // when - action or the behaviour that we are going to test
+    assertThrows(EmployeeAlreadyExistsException.class, () -> employeeService.saveEmployee(employee));
+
+    // then - verify the output
+    verify(employeeRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void givenNewEmployees_whenSaveEmployees_thenSavedEmployees() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder()
+        .id(2L)
+        .firstName("Sofi")
+        .lastName("Torres")
+        .email("sofi@vita.com")
+        .version(3L)
+        .build();
+    List<Employee> employees = List.of(employee, employee2);
+    given(employeeRepository.findExistingEmails(List.of(employee.getEmail(), employee2.getEmail())))
+        .willReturn(Collections.emptyList());
+    given(employeeRepository.saveAll(employees)).willReturn(employees);
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> dbEmployees = employeeService.saveEmployees(employees);
+
+    // then - verify the output
+    assertThat(dbEmployees).hasSize(2);
+    assertThat(employee2.getVersion()).isZero();
+    verify(employeeRepository).flush();
+    verify(entityManager).clear();
+  }
+
+  @Test
+  void givenExistingEmail_whenSaveEmployees_thenException() {
+    //given - precondition or setup
+    given(employeeRepository.findExistingEmails(List.of(employee.getEmail())))
+        .willReturn(List.of(employee.getEmail()));
 
     // when - action or the behaviour that we are going to test
-    assertThrows(ResourceNotFoundException.class, () -> employeeService.saveEmployee(employee));
+    List<Employee> employees = List.of(employee);
+    assertThrows(EmployeeAlreadyExistsException.class, () -> employeeService.saveEmployees(employees));
 
     // then - verify the output
-    verify(employeeRepository, never()).save(any(Employee.class));
+    verify(employeeRepository, never()).saveAll(any());
   }
 
   @Test
@@ -101,10 +184,75 @@ class EmployeeServiceTests {
     assertThat(employeeList).isEmpty();
   }
 
+  @Test
+  void givenMoreEmployeesThanLimit_whenGetEmployeesPage_thenNextCursor() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder()
+        .id(2L)
+        .firstName("Sofi")
+        .lastName("Torres")
+        .email("sofi@vita.com")
+        .build();
+    given(employeeRepository.findPageAfter(0L, PageRequest.of(0, 2))).willReturn(List.of(employee, employee2));
+
+    // when - action or the behaviour that we are going to test
+    EmployeePage employeePage = employeeService.getEmployeesPage(0L, 1);
+
+    // then - verify the output
+    assertThat(employeePage.getContent()).containsExactly(employee);
+    assertThat(employeePage.getNextCursor()).isEqualTo(employee.getId());
+  }
+
+  @Test
+  void givenLastEmployees_whenGetEmployeesPage_thenNoNextCursor() {
+    //given - precondition or setup
+    given(employeeRepository.findPageAfter(0L, PageRequest.of(0, 3))).willReturn(List.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    EmployeePage employeePage = employeeService.getEmployeesPage(0L, 2);
+
+    // then - verify the output
+    assertThat(employeePage.getContent()).containsExactly(employee);
+    assertThat(employeePage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void givenNameWithWildcards_whenSearchEmployeesByName_thenEscapedPrefixPattern() {
+    //given - precondition or setup
+    given(employeeRepository.findByLastNamePrefix("To!%r!_%", PageRequest.of(1, 20))).willReturn(List.of(employee));
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employeeList = employeeService.searchEmployeesByName("To%r_", 1, 20);
+
+    // then - verify the output
+    assertThat(employeeList).containsExactly(employee);
+  }
+
+  @Test
+  void givenExistingEmployees_whenExportEmployees_thenEachEmployeeVisitedAndDetached() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder()
+        .id(2L)
+        .firstName("Sofi")
+        .lastName("Torres")
+        .email("sofi@vita.com")
+        .build();
+    given(employeeRepository.streamAll()).willReturn(Stream.of(employee, employee2));
+    List<Employee> exported = new ArrayList<>();
+
+    // when - action or the behaviour that we are going to test
+    employeeService.exportEmployees(exported::add);
+
+    // then - verify the output
+    assertThat(exported).containsExactly(employee, employee2);
+    verify(entityManager).detach(employee);
+    verify(entityManager).detach(employee2);
+  }
+
   @Test
   void givenExistingEmployee_whenGetEmployeeById_thenFoundEmployee() {
     //given - precondition or setup
-    given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
+    given(employeeRepository.loadAllById(List.of(1L))).willReturn(List.of(employee));
 
     // when - action or the behaviour that we are going to test
     Employee dbEmployee = employeeService.getEmployeeById(employee.getId()).get();
@@ -113,33 +261,273 @@ class EmployeeServiceTests {
     assertThat(dbEmployee).isNotNull();
   }
 
+  @Test
+  void givenCachedEmployee_whenGetEmployeeById_thenRepositoryNotCalledAgain() {
+    //given - precondition or setup
+    given(employeeRepository.loadAllById(List.of(1L))).willReturn(List.of(employee));
+    employeeService.getEmployeeById(employee.getId());
+
+    // when - action or the behaviour that we are going to test
+    Employee dbEmployee = employeeService.getEmployeeById(employee.getId()).get();
+
+    // then - verify the output
+    assertThat(dbEmployee).isSameAs(employee);
+    verify(employeeRepository, times(1)).loadAllById(List.of(1L));
+  }
+
+  @Test
+  void givenCachedEmployee_whenDeleteEmployee_thenCacheInvalidated() {
+    //given - precondition or setup
+    given(employeeRepository.loadAllById(List.of(1L))).willReturn(List.of(employee), List.of());
+    employeeService.getEmployeeById(employee.getId());
+
+    // when - action or the behaviour that we are going to test
+    employeeService.deleteEmployee(employee.getId());
+
+    // then - verify the output
+    assertThat(employeeService.getEmployeeById(employee.getId())).isEmpty();
+  }
+
+  @Test
+  void givenCachedAndMissingIds_whenGetEmployeesByIds_thenOnlyUncachedIdsQueriedOnce() {
+    //given - precondition or setup
+    Employee employee2 = Employee.builder().id(2L).firstName("Sofi").lastName("Torres").email("sofi@vita.com").build();
+    given(employeeRepository.loadAllById(List.of(1L))).willReturn(List.of(employee));
+    employeeService.getEmployeeById(employee.getId());
+    given(employeeRepository.loadAllById(any())).willReturn(List.of(employee2));
+
+    // when - action or the behaviour that we are going to test
+    List<Employee> employees = employeeService.getEmployeesByIds(List.of(2L, 1L, 3L, 2L));
+
+    // then - verify the output
+    assertThat(employees).containsExactly(employee2, employee);
+    verify(employeeRepository, times(2)).loadAllById(any());
+    verify(employeeRepository).loadAllById(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(2L, 3L))));
+  }
+
   @Test
   void givenExistingEmployee_whenUpdateEmployee_thenUpdatedEmployee() {
     //given - precondition or setup
-    given(employeeRepository.save(employee)).willReturn(employee);
+    given(employeeRepository.update(employee, 2L)).willReturn(1);
     employee.setEmail("test@test.org");
     employee.setFirstName("Test");
 
     // when - action or the behaviour that we are going to test
-    Employee dbEmployee = employeeService.updateEmployee(employee);
+    boolean updated = employeeService.updateEmployee(employee, 2L);
 
     // then - verify the output
-    assertThat(dbEmployee).isNotNull();
-    assertThat(dbEmployee.getEmail()).isEqualTo("test@test.org");
-    assertThat(dbEmployee.getFirstName()).isEqualTo("Test");
+    assertThat(updated).isTrue();
+    assertThat(employee.getVersion()).isEqualTo(3L);
+    assertThat(employeeService.getEmployeeById(employee.getId())).containsSame(employee);
+    verify(employeeRepository, never()).loadAllById(List.of(employee.getId()));
+  }
+
+  @Test
+  void givenNoExpectedVersion_whenUpdateEmployee_thenStoredRowReadBack() {
+    //given - precondition or setup
+    given(employeeRepository.update(employee, null)).willReturn(1);
+    given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(Employee.builder()
+        .id(employee.getId()).firstName("Test").lastName("Torres").email("test@test.org").version(5L).build()));
+    employee.setEmail("test@test.org");
+    employee.setFirstName("Test");
+    employee.setVersion(0L);
+
+    // when - action or the behaviour that we are going to test
+    boolean updated = employeeService.updateEmployee(employee, null);
+
+    // then - verify the output
+    assertThat(updated).isTrue();
+    assertThat(employee.getVersion()).isEqualTo(5L);
+    assertThat(employeeService.getEmployeeById(employee.getId())).containsSame(employee);
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.UPDATED, employee.getId(), employee);
+  }
+
+  @Test
+  void givenStaleVersion_whenUpdateEmployee_thenCachedEmployeeEvicted() {
+    //given - precondition or setup
+    given(employeeRepository.loadAllById(List.of(employee.getId()))).willReturn(List.of(employee));
+    employeeService.getEmployeeById(employee.getId());
+    given(employeeRepository.update(employee, 2L)).willReturn(0);
+
+    // when - action or the behaviour that we are going to test
+    boolean updated = employeeService.updateEmployee(employee, 2L);
+    employeeService.getEmployeeById(employee.getId());
+
+    // then - verify the output
+    assertThat(updated).isFalse();
+    verify(employeeRepository, times(2)).loadAllById(List.of(employee.getId()));
+  }
+
+  @Test
+  void givenDuplicateEmail_whenUpdateEmployee_thenException() {
+    //given - precondition or setup
+    given(employeeRepository.update(employee, null)).willThrow(new DataIntegrityViolationException("duplicate",
+        new ConstraintViolationException("duplicate", null, Employee.EMAIL_INDEX)));
+
+    // when - action or the behaviour that we are going to test
+    assertThrows(EmployeeAlreadyExistsException.class, () -> employeeService.updateEmployee(employee, null));
+
+    // then - verify the output
+    assertThat(employeeSearchIndex.size()).isZero();
+  }
+
+  @Test
+  void givenSavedAndUpdatedEmployee_whenSearchEmployees_thenOnlyCurrentValuesMatch() {
+    //given - precondition or setup
+    given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
+    given(employeeRepository.update(employee, null)).willReturn(1);
+    // Saving resets the id to 0, the mocked repository keeps it
+    given(employeeRepository.findById(anyLong())).willReturn(Optional.of(Employee.builder()
+        .id(0L).firstName("Elkin").lastName("Ramirez").email("elkin@vita.com").version(1L).build()));
+    employeeService.saveEmployee(employee);
+    employee.setLastName("Ramirez");
+    employeeService.updateEmployee(employee, null);
+
+    // when - action or the behaviour that we are going to test
+    List<EmployeeMatch> oldMatches = employeeService.searchEmployees("torr", 10);
+    List<EmployeeMatch> newMatches = employeeService.searchEmployees("mire", 10);
+
+    // then - verify the output
+    assertThat(oldMatches).isEmpty();
+    assertThat(newMatches).extracting(EmployeeMatch::getLastName).containsExactly("Ramirez");
   }
 
   @Test
-  void givenExistingEmployee_whenDeleteEmployee_thenNothing() {
+  void givenIndexedEmployee_whenPatchEmployee_thenStoredRowIndexedAndPublished() {
+    //given - precondition or setup
+    employeeSearchIndex.index(employee);
+    Employee changes = Employee.builder().lastName("Ramirez").build();
+    Employee stored = Employee.builder().id(employee.getId()).firstName(employee.getFirstName()).lastName("Ramirez")
+        .email(employee.getEmail()).version(1L).build();
+    given(employeeRepository.patch(employee.getId(), changes, null)).willReturn(1);
+    given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(stored));
+
+    // when - action or the behaviour that we are going to test
+    employeeService.patchEmployee(employee.getId(), changes, null);
+
+    // then - verify the output
+    assertThat(changes.getVersion()).isEqualTo(1L);
+    assertThat(changes.getFirstName()).isEqualTo(employee.getFirstName());
+    assertThat(employeeService.searchEmployees("mire", 10)).extracting(EmployeeMatch::getFirstName)
+        .containsExactly("Elkin");
+    assertThat(employeeService.searchEmployees("torr", 10)).isEmpty();
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.PATCHED, employee.getId(), stored);
+  }
+
+  @Test
+  void givenIndexedEmployee_whenDeleteEmployee_thenRemovedFromSearch() {
+    //given - precondition or setup
+    employeeSearchIndex.index(employee);
+
+    // when - action or the behaviour that we are going to test
+    employeeService.deleteEmployee(employee.getId());
+
+    // then - verify the output
+    assertThat(employeeService.searchEmployees("elkin", 10)).isEmpty();
+  }
+
+  @Test
+  void givenExistingEmployee_whenDeleteEmployee_thenDeleted() {
+    //given - precondition or setup
+    long employeeId = 1L;
+    given(employeeRepository.deleteDirectlyById(employeeId)).willReturn(1);
+
+    // when - action or the behaviour that we are going to test
+    boolean deleted = employeeService.deleteEmployee(employeeId);
+
+    // then - verify the output
+    assertThat(deleted).isTrue();
+    verify(employeeRepository, never()).loadAllById(List.of(employeeId));
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.DELETED, employeeId, null);
+  }
+
+  @Test
+  void givenNonExistingEmployee_whenDeleteEmployee_thenNoChangePublished() {
     //given - precondition or setup
     long employeeId = 1L;
-    willDoNothing().given(employeeRepository).deleteById(employeeId);
+    given(employeeRepository.deleteDirectlyById(employeeId)).willReturn(0);
+
+    // when - action or the behaviour that we are going to test
+    boolean deleted = employeeService.deleteEmployee(employeeId);
+
+    // then - verify the output
+    assertThat(deleted).isFalse();
+    verify(employeeChangeFeed, never()).publish(any(), anyLong(), any());
+  }
+
+  @Test
+  void givenManyIds_whenDeleteEmployees_thenDistinctIdsDeletedInChunks() {
+    //given - precondition or setup
+    List<Long> ids = new ArrayList<>();
+    for (long id = 1; id <= 2500; id++) {
+      ids.add(id);
+    }
+    ids.add(1L);
+    given(employeeRepository.findIdsForDelete(any())).willAnswer((invocation) ->
+        new ArrayList<>(invocation.<List<Long>>getArgument(0)));
+    given(employeeRepository.deleteDirectlyByIdIn(any())).willAnswer((invocation) ->
+        invocation.<List<Long>>getArgument(0).size());
+
+    // when - action or the behaviour that we are going to test
+    int deleted = employeeService.deleteEmployees(ids);
+
+    // then - verify the output
+    assertThat(deleted).isEqualTo(2500);
+    verify(employeeRepository, times(3)).findIdsForDelete(any());
+    verify(employeeRepository, times(3)).deleteDirectlyByIdIn(any());
+  }
+
+  @Test
+  void givenTransaction_whenDeleteEmployees_thenEvictedOnlyAfterCommit() {
+    //given - precondition or setup
+    employeeCache.put(employee);
+    employeeSearchIndex.index(employee);
+    given(employeeRepository.findIdsForDelete(List.of(employee.getId()))).willReturn(List.of(employee.getId()));
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      // when - action or the behaviour that we are going to test
+      employeeService.deleteEmployees(List.of(employee.getId()));
+      verify(employeeCache, never()).invalidate(anyLong());
+      List<EmployeeMatch> matchesBeforeCommit = employeeService.searchEmployees("elkin", 10);
+      TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+      // then - verify the output
+      assertThat(matchesBeforeCommit).hasSize(1);
+      verify(employeeCache).invalidate(employee.getId());
+      assertThat(employeeService.searchEmployees("elkin", 10)).isEmpty();
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void givenSomeMissingIds_whenDeleteEmployees_thenOnlyExistingPublished() {
+    //given - precondition or setup
+    given(employeeRepository.findIdsForDelete(List.of(1L, 2L, 3L))).willReturn(List.of(1L, 3L));
+    given(employeeRepository.deleteDirectlyByIdIn(List.of(1L, 3L))).willReturn(2);
+
+    // when - action or the behaviour that we are going to test
+    int deleted = employeeService.deleteEmployees(List.of(1L, 2L, 3L));
+
+    // then - verify the output
+    assertThat(deleted).isEqualTo(2);
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.DELETED, 1L, null);
+    verify(employeeChangeFeed).publish(EmployeeChange.Type.DELETED, 3L, null);
+    verify(employeeChangeFeed, never()).publish(EmployeeChange.Type.DELETED, 2L, null);
+  }
+
+  @Test
+  void givenOnlyMissingIds_whenDeleteEmployees_thenNothingDeletedOrPublished() {
+    //given - precondition or setup
+    given(employeeRepository.findIdsForDelete(List.of(7L))).willReturn(List.of());
 
     // when - action or the behaviour that we are going to test
-    employeeService.deleteEmployee(employeeId);
+    int deleted = employeeService.deleteEmployees(List.of(7L));
 
     // then - verify the output
-    verify(employeeRepository, times(1)).deleteById(employeeId);
+    assertThat(deleted).isZero();
+    verify(employeeRepository, never()).deleteDirectlyByIdIn(any());
+    verify(employeeChangeFeed, never()).publish(any(), anyLong(), any());
   }
 
 }
\ No newline at end of file
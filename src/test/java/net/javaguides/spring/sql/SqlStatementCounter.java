@@ -0,0 +1,127 @@
+package net.javaguides.spring.sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the statements Hibernate prepares, by kind, so tests can pin down how many a route or service method runs and
+ * catch an N+1 or an extra SELECT before it ships. Register it on a test context with {@link #PROPERTY}, then call
+ * {@link #reset()} before the action and {@link #assertStatements(long, long, long, long)} after it.
+ *
+ * <p>Counts are shared by every session factory and thread, so background writers count too, and tests that use them
+ * must not run in parallel. Like {@code Statistics.getPrepareStatementCount()}, a JDBC batch counts once. Shapes that
+ * read a whole table, a SELECT, UPDATE or DELETE without a WHERE clause or a LIKE with a leading wildcard, are logged
+ * as a warning and listed by {@link #fullScans()}.
+ */
+@Slf4j
+public class SqlStatementCounter implements StatementInspector {
+
+  public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+      + "net.javaguides.spring.sql.SqlStatementCounter";
+
+  public enum Kind {
+    SELECT, INSERT, UPDATE, DELETE, OTHER
+  }
+
+  // Kept for failure messages only, the counts go on after this many
+  private static final int MAX_RECORDED = 200;
+  private static final Pattern WHERE = Pattern.compile("\\bwhere\\b");
+  private static final Pattern LEADING_WILDCARD = Pattern.compile("\\blike\\s+'%");
+
+  private static final Map<Kind, LongAdder> counts = new EnumMap<>(Kind.class);
+  private static final List<String> statements = new ArrayList<>();
+  private static final List<String> fullScans = new ArrayList<>();
+
+  static {
+    for (Kind kind : Kind.values()) {
+      counts.put(kind, new LongAdder());
+    }
+  }
+
+  @Override
+  public String inspect(String sql) {
+    String normalized = sql.trim().toLowerCase(Locale.ROOT);
+    Kind kind = kindOf(normalized);
+    counts.get(kind).increment();
+    boolean fullScan = kind != Kind.INSERT && kind != Kind.OTHER
+        && (!WHERE.matcher(normalized).find() || LEADING_WILDCARD.matcher(normalized).find());
+    synchronized (statements) {
+      if (statements.size() < MAX_RECORDED) {
+        statements.add(sql);
+      }
+      if (fullScan && fullScans.size() < MAX_RECORDED) {
+        fullScans.add(sql);
+      }
+    }
+    if (fullScan) {
+      log.warn("Full table scan: {}", sql);
+    }
+    return sql;
+  }
+
+  private static Kind kindOf(String sql) {
+    // Common table expressions only ever read here
+    if (sql.startsWith("select") || sql.startsWith("with")) {
+      return Kind.SELECT;
+    }
+    if (sql.startsWith("insert")) {
+      return Kind.INSERT;
+    }
+    if (sql.startsWith("update")) {
+      return Kind.UPDATE;
+    }
+    if (sql.startsWith("delete")) {
+      return Kind.DELETE;
+    }
+    return Kind.OTHER;
+  }
+
+  public static void reset() {
+    synchronized (statements) {
+      counts.values().forEach(LongAdder::reset);
+      statements.clear();
+      fullScans.clear();
+    }
+  }
+
+  public static long count(Kind kind) {
+    return counts.get(kind).sum();
+  }
+
+  public static List<String> statements() {
+    synchronized (statements) {
+      return List.copyOf(statements);
+    }
+  }
+
+  public static List<String> fullScans() {
+    synchronized (statements) {
+      return List.copyOf(fullScans);
+    }
+  }
+
+  /**
+   * Fails unless exactly these statements ran since the last {@link #reset()}, listing them when they did not. Other
+   * statements, like the sequence calls that hand out a new block of ids every 50 inserts, are left out.
+   */
+  public static void assertStatements(long selects, long inserts, long updates, long deletes) {
+    assertThat(new long[] {count(Kind.SELECT), count(Kind.INSERT), count(Kind.UPDATE), count(Kind.DELETE)})
+        .as("SELECT, INSERT, UPDATE and DELETE statements run: %s", statements())
+        .containsExactly(selects, inserts, updates, deletes);
+  }
+
+  public static void assertNoFullScans() {
+    assertThat(fullScans()).as("Statements reading a whole table").isEmpty();
+  }
+}